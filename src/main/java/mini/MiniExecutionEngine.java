@@ -3,8 +3,15 @@ package mini;
 import cn.hutool.core.util.RandomUtil;
 import mini.cl.MethodCaller;
 import mini.cl.MiniClass;
+import mini.cl.MiniDecodedCode;
 import mini.cl.MiniStackFrame;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniTlab;
 import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.structure.MiniLocalVariableTable;
+import mini.data.structure.MiniOperandStack;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -15,32 +22,205 @@ import java.util.Map;
  */
 public class MiniExecutionEngine {
     private MiniExecutionEngine() {
+        // ========== 常量入栈指令 ==========
+        register(0x00, "nop", new NopInstruction());
+        register(0x01, "aconst_null", new AconstInstruction());
+        IconstInstruction iconst = new IconstInstruction();
+        register(0x02, "iconst_m1", iconst);
+        for (int i = 0; i <= 5; i++) {
+            register(0x03 + i, "iconst_" + i, iconst);
+        }
+        register(0x10, "bipush", new BipushInstruction());
+        register(0x12, "ldc", new LdcInstruction());
+        register(0x14, "ldc2_w", new Ldc2wInstruction());
+        // ========== 局部变量值转载到栈中指令 ==========
+        IloadInstruction iload = new IloadInstruction();
+        AloadInstruction aload = new AloadInstruction();
+        for (int i = 0; i <= 3; i++) {
+            register(0x1A + i, "iload_" + i, iload);
+            register(0x2A + i, "aload_" + i, aload);
+        }
+        // ========== 将栈顶值保存到局部变量中指令 ==========
+        IstoreInstruction istore = new IstoreInstruction();
+        AstoreInstruction astore = new AstoreInstruction();
+        for (int i = 0; i <= 3; i++) {
+            register(0x3B + i, "istore_" + i, istore);
+            register(0x4B + i, "astore_" + i, astore);
+        }
+        // ========== 通用（无类型）栈操作指令 ==========
+        register(0x59, "dup", new DupInstruction());
+        // ========== 整数运算 ==========
+        register(0x60, "iadd", new IaddInstruction());
+        // ========== 方法返回指令 ==========
+        register(0xAC, "ireturn", new IreturnInstruction());
+        register(0xB1, "return", new ReturnInstruction());
+        // ========== 字段访问指令 ==========
+        register(0xB2, "getstatic", new GetstaticInstruction());
+        register(0xB3, "putstatic", new PutstaticInstruction());
+        register(0xB4, "getfield", new GetfieldInstruction());
+        register(0xB5, "putfield", new PutfieldInstruction());
+        // ========== 方法调用指令 ==========
+        register(0xB6, "invokevirtual", new InvokevirtualInstruction());
+        register(0xB7, "invokespecial", new InvokespecialInstruction());
+        register(0xB8, "invokestatic", new InvokestaticInstruction());
+        register(0xBA, "invokedynamic", new InvokedynamicInstruction());
+        // ========== 对象操作指令 ==========
+        register(0xBB, "new", new NewInstruction());
     }
 
     public final static MiniExecutionEngine INSTANCE = new MiniExecutionEngine();
 
     /**
-     * 执行指令
+     * 指令分派表，下标为操作码（0x00 ~ 0xFF），在虚拟机启动时一次性填充
+     * <p>
+     * 指令实现都是无状态的单例，执行时直接按操作码取出，不再走反射创建实例
+     * </p>
      */
-    public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-        String opcode = instruction.split(" ")[0];
+    private final Instruction[] instructions = new Instruction[256];
+    /**
+     * 操作码到助记符的映射，仅用于输出日志
+     */
+    private final String[] mnemonics = new String[256];
+    /**
+     * 助记符到操作码的映射，仅供 {@link #execute(MiniStackFrame, int, String)} 这类调试/测试入口使用
+     */
+    private final Map<String, Integer> opcodes = new HashMap<>();
 
-        // 如果指令携带 _%d 则去除末尾这部分
-        if (opcode.contains("_")) {
-            opcode = opcode.substring(0, opcode.indexOf("_"));
+    private void register(int opcode, String mnemonic, Instruction instruction) {
+        instructions[opcode] = instruction;
+        mnemonics[opcode] = mnemonic;
+        opcodes.put(mnemonic, opcode);
+    }
+
+    /**
+     * 执行指令
+     *
+     * @param opcode   操作码，用于在分派表中定位指令实现
+     * @param operand  预解码后的整型操作数
+     * @param resolved 预解析的操作数对象
+     */
+    public void execute(MiniStackFrame stackFrame, int pc, int opcode, int operand, Object resolved) {
+        Instruction instructionInstance = instructions[opcode];
+        if (instructionInstance == null) {
+            System.out.printf("   %4d (%s#%s): [error] 未实现的指令 0x%02X%n", pc, getClassName(stackFrame), stackFrame.getMethodName(), opcode);
+            return;
         }
 
-        String className = opcode.substring(0, 1).toUpperCase() + opcode.substring(1) + "Instruction";
         try {
-            // 为了便于测试和维护，指令类放在当前类的内部并通过反射调用
-            Class<?> clazz = Class.forName(String.format("%s.%s$%s", this.getClass().getPackageName(), this.getClass().getSimpleName(), className));
-            Instruction instructionInstance = (Instruction) clazz.getDeclaredConstructor().newInstance();
-            instructionInstance.execute(stackFrame, pc, instruction);
+            instructionInstance.execute(stackFrame, pc, operand, resolved);
         } catch (Exception e) {
-            System.out.printf("   %4d (%s#%s): [error] 执行 %s 指令失败: %s%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), instruction, e.getMessage());
+            System.out.printf("   %4d (%s#%s): [error] 执行 %s 指令失败: %s%n", pc, getClassName(stackFrame), stackFrame.getMethodName(), mnemonics[opcode], e.getMessage());
         }
     }
 
+    /**
+     * 执行指令（文本形式）
+     * <p>
+     * 仅作为调试和单元测试的入口：先由助记符查出操作码并解析出操作数，再走 {@link #execute(MiniStackFrame, int, int, int, Object)}
+     * </p>
+     * eg: iconst_3、bipush 10、getstatic i:I、invokestatic demo/HelloStackVM.add (II)I、new demo/TestObject
+     */
+    public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
+        String[] parts = instruction.split(" ");
+        Integer opcode = opcodes.get(parts[0]);
+        if (opcode == null) {
+            System.out.printf("   %4d (%s#%s): [error] 未知的指令: %s%n", pc, getClassName(stackFrame), stackFrame.getMethodName(), instruction);
+            return;
+        }
+
+        int operand = 0;
+        Object resolved = null;
+        int suffixIndex = parts[0].lastIndexOf('_');
+        if (suffixIndex != -1) {
+            // 指令携带 _%d，如 iconst_m1、iload_1
+            String suffix = parts[0].substring(suffixIndex + 1);
+            operand = "m1".equals(suffix) ? -1 : Integer.parseInt(suffix);
+        } else if (parts.length > 1) {
+            resolved = switch (opcode) {
+                case 0xBB -> new MiniDecodedCode.ClassOperand(parts[1]);
+                case 0xB2, 0xB3, 0xB4, 0xB5 -> parseFieldOperand(stackFrame, parts[1]);
+                case 0xB6, 0xB7, 0xB8 -> parseMethodOperand(parts[1], parts[2]);
+                default -> {
+                    operand = Integer.parseInt(parts[1]);
+                    yield null;
+                }
+            };
+        }
+        execute(stackFrame, pc, opcode, operand, resolved);
+    }
+
+    private static MiniDecodedCode.FieldOperand parseFieldOperand(MiniStackFrame stackFrame, String text) {
+        // name:type 或 className.name:type
+        String[] field = text.split(":");
+        int dotIndex = field[0].lastIndexOf('.');
+        if (dotIndex == -1) {
+            String className = stackFrame.getClazz() == null ? null : stackFrame.getClazz().getName().replace(".", "/");
+            return new MiniDecodedCode.FieldOperand(className, field[0], field[1], true);
+        }
+        return new MiniDecodedCode.FieldOperand(field[0].substring(0, dotIndex), field[0].substring(dotIndex + 1), field[1], false);
+    }
+
+    private static MiniDecodedCode.MethodOperand parseMethodOperand(String method, String descriptor) {
+        // className.methodName (II)I
+        int dotIndex = method.lastIndexOf('.');
+        return MiniDecodedCode.MethodOperand.of(method.substring(0, dotIndex), method.substring(dotIndex + 1), descriptor);
+    }
+
+    /**
+     * 仅用于日志输出：槽位中保存引用时输出引用，否则输出基本类型的值
+     */
+    private static Object describe(MiniLocalVariableTable locals, int index) {
+        return locals.isRef(index) ? MiniObjectLayout.describe(locals.getRef(index)) : locals.getInt(index);
+    }
+
+    /**
+     * 仅用于日志输出：静态变量的当前值
+     */
+    private static Object describeStatic(MiniDecodedCode.FieldOperand field, MiniClass fieldClass, int slot) {
+        return switch (field.descriptor().charAt(0)) {
+            case 'L', '[' -> MiniObjectLayout.describe(fieldClass.getStaticRef(slot));
+            case 'J' -> fieldClass.getStaticValue(slot);
+            case 'D' -> Double.longBitsToDouble(fieldClass.getStaticValue(slot));
+            case 'F' -> Float.intBitsToFloat((int) fieldClass.getStaticValue(slot));
+            default -> (int) fieldClass.getStaticValue(slot);
+        };
+    }
+
+    /**
+     * 仅用于日志输出：对象字段的当前值
+     */
+    private static Object describeField(MiniDecodedCode.FieldOperand field, int address) {
+        MiniVirtualMachineMemory.MiniHeapArea heap = MiniVirtualMachineMemory.HEAP_AREA;
+        return switch (field.descriptor().charAt(0)) {
+            case 'L', '[' -> MiniObjectLayout.describe(heap.getInt(address));
+            case 'J' -> heap.getLong(address);
+            case 'D' -> Double.longBitsToDouble(heap.getLong(address));
+            case 'F' -> Float.intBitsToFloat(heap.getInt(address));
+            case 'C' -> (char) heap.getShort(address);
+            case 'S' -> heap.getShort(address);
+            case 'B' -> heap.getByte(address);
+            case 'Z' -> heap.getByte(address) != 0;
+            default -> heap.getInt(address);
+        };
+    }
+
+    private static void trace(MiniTraceEvent event, MiniStackFrame stackFrame, int pc) {
+        trace(event, stackFrame, pc, 0, 0, 0, null, null);
+    }
+
+    /**
+     * 记录指令执行事件：pc、类名、方法名之后依次是整型参数和对象参数，跟踪关闭时直接返回
+     */
+    private static void trace(MiniTraceEvent event, MiniStackFrame stackFrame, int pc,
+                              long value1, long value2, long value3, Object object1, Object object2) {
+        if (!MiniTrace.isEnabled(event)) return;
+        MiniTrace.record(event, pc, value1, value2, value3, getClassName(stackFrame), stackFrame.getMethodName(), object1, object2);
+    }
+
+    private static String getClassName(MiniStackFrame stackFrame) {
+        return stackFrame.getClazz() == null ? null : stackFrame.getClazz().getName();
+    }
+
     /**
      * 模拟栈式虚拟机的指令集
      * <p>
@@ -50,8 +230,12 @@ public class MiniExecutionEngine {
     public interface Instruction {
         /**
          * 执行指令
+         *
+         * @param pc       指令在原始字节码中的偏移
+         * @param operand  预解码后的整型操作数（常量值、局部变量下标等）
+         * @param resolved 预解析的操作数对象（字段、方法、类名等），没有则为 null
          */
-        void execute(MiniStackFrame stackFrame, int pc, String instruction) throws IOException;
+        void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException;
     }
 
     /**
@@ -60,7 +244,7 @@ public class MiniExecutionEngine {
      */
     public static class NopInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
 //            System.out.printf("   %4d (%s#%s): [nop] 执行空指令%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
         }
     }
@@ -71,10 +255,10 @@ public class MiniExecutionEngine {
      */
     public static class DupInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            int value = stackFrame.getOperandStack().peek();
-            stackFrame.getOperandStack().push(value);
-            System.out.printf("   %4d (%s#%s): [dup] 复制栈顶元素 %d%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), value);
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            int value = stackFrame.getOperandStack().peekInt();
+            stackFrame.getOperandStack().dup();
+            trace(MiniTraceEvent.DUP, stackFrame, pc, value, 0, 0, null, null);
         }
     }
 
@@ -84,25 +268,44 @@ public class MiniExecutionEngine {
      */
     public static class BipushInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            int value = Integer.parseInt(instruction.split(" ")[1]);
-            stackFrame.getOperandStack().push(value);
-            System.out.printf("   %4d (%s#%s): [bipush] 将常量 %d 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), value);
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            int value = operand;
+            stackFrame.getOperandStack().pushInt(value);
+            trace(MiniTraceEvent.BIPUSH, stackFrame, pc, value, 0, 0, null, null);
         }
     }
 
     /**
      * ldc
-     * 将常量压入栈
+     * 将常量压入栈，字符串常量压入其在堆中的对象地址
      */
     public static class LdcInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            Integer constantIndex = Integer.parseInt(instruction.split(" ")[1]);
-
-            stackFrame.getOperandStack().push(constantIndex);
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            if (resolved instanceof String value) {
+                stackFrame.getOperandStack().pushRef(MiniVirtualMachineMemory.METHOD_AREA.internString(value));
+            } else {
+                stackFrame.getOperandStack().pushInt(operand);
+            }
+            if (MiniTrace.isEnabled(MiniTraceEvent.LDC)) {
+                trace(MiniTraceEvent.LDC, stackFrame, pc, 0, 0, 0, resolved != null ? "\"" + resolved + "\"" : operand, null);
+            }
+        }
+    }
 
-            System.out.printf("   %4d (%s#%s): [ldc] 将常量 %d 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), constantIndex);
+    /**
+     * ldc2_w
+     * 将 long 或 double 常量压入栈
+     */
+    public static class Ldc2wInstruction implements Instruction {
+        @Override
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            if (resolved instanceof Long value) {
+                stackFrame.getOperandStack().pushLong(value);
+            } else {
+                stackFrame.getOperandStack().pushDouble((Double) resolved);
+            }
+            trace(MiniTraceEvent.LDC2_W, stackFrame, pc, 0, 0, 0, resolved, null);
         }
     }
 
@@ -112,9 +315,9 @@ public class MiniExecutionEngine {
      */
     public static class AconstInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            stackFrame.getOperandStack().push(null);
-            System.out.printf("   %4d (%s#%s): [aconst_null] 将 null 值压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            stackFrame.getOperandStack().pushRef(0);
+            trace(MiniTraceEvent.ACONST_NULL, stackFrame, pc);
         }
     }
 
@@ -124,11 +327,11 @@ public class MiniExecutionEngine {
      */
     public static class IconstInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            // iconst_1
-            int constant = Integer.parseInt(instruction.substring(7));
-            stackFrame.getOperandStack().push(constant);
-            System.out.printf("   %4d (%s#%s): [iconst] 将常量 %s 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), constant);
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            // iconst_1、iconst_m1
+            int constant = operand;
+            stackFrame.getOperandStack().pushInt(constant);
+            trace(MiniTraceEvent.ICONST, stackFrame, pc, constant, 0, 0, null, null);
         }
     }
 
@@ -138,12 +341,14 @@ public class MiniExecutionEngine {
      */
     public static class AstoreInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
             // astore_1
-            int index = Integer.parseInt(instruction.substring(7));
-            Integer value = stackFrame.getOperandStack().pop();
-            stackFrame.getLocalVariableTable().put(index, value);
-            System.out.printf("   %4d (%s#%s): [astore] 将栈顶值 %s 存储到局部变量 %d%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), value, index);
+            int index = operand;
+            // 引用可能存放在基本类型槽位（堆地址）或引用槽位中，按槽位原样保存
+            stackFrame.getOperandStack().store(stackFrame.getLocalVariableTable(), index);
+            if (MiniTrace.isEnabled(MiniTraceEvent.ASTORE)) {
+                trace(MiniTraceEvent.ASTORE, stackFrame, pc, index, 0, 0, describe(stackFrame.getLocalVariableTable(), index), null);
+            }
         }
     }
 
@@ -153,12 +358,12 @@ public class MiniExecutionEngine {
      */
     public static class IstoreInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
             // istore_1
-            int index = Integer.parseInt(instruction.substring(7));
-            int value = stackFrame.getOperandStack().pop();
-            stackFrame.getLocalVariableTable().put(index, value);
-            System.out.printf("   %4d (%s#%s): [istore] 将栈顶值 %d 存储到局部变量 %d%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), value, index);
+            int index = operand;
+            int value = stackFrame.getOperandStack().popInt();
+            stackFrame.getLocalVariableTable().setInt(index, value);
+            trace(MiniTraceEvent.ISTORE, stackFrame, pc, value, index, 0, null, null);
         }
     }
 
@@ -168,12 +373,12 @@ public class MiniExecutionEngine {
      */
     public static class IloadInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
             // iload_1
-            int loadIndex = Integer.parseInt(instruction.substring(6));
-            Integer loadValue = stackFrame.getLocalVariableTable().get(loadIndex);
-            stackFrame.getOperandStack().push(loadValue);
-            System.out.printf("   %4d (%s#%s): [iload] 将局部变量 " + loadIndex + " 的值 " + loadValue + " 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+            int loadIndex = operand;
+            int loadValue = stackFrame.getLocalVariableTable().getInt(loadIndex);
+            stackFrame.getOperandStack().pushInt(loadValue);
+            trace(MiniTraceEvent.ILOAD, stackFrame, pc, loadIndex, loadValue, 0, null, null);
         }
     }
 
@@ -183,12 +388,13 @@ public class MiniExecutionEngine {
      */
     public static class AloadInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
             // aload_1
-            int loadIndex = Integer.parseInt(instruction.substring(6));
-            Integer loadValue = stackFrame.getLocalVariableTable().get(loadIndex);
-            stackFrame.getOperandStack().push(loadValue);
-            System.out.printf("   %4d (%s#%s): [aload] 将局部变量 " + loadIndex + " 的值 " + loadValue + " 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+            int loadIndex = operand;
+            stackFrame.getOperandStack().load(stackFrame.getLocalVariableTable(), loadIndex);
+            if (MiniTrace.isEnabled(MiniTraceEvent.ALOAD)) {
+                trace(MiniTraceEvent.ALOAD, stackFrame, pc, loadIndex, 0, 0, describe(stackFrame.getLocalVariableTable(), loadIndex), null);
+            }
         }
     }
 
@@ -198,14 +404,22 @@ public class MiniExecutionEngine {
      */
     public static class GetstaticInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            String[] field = instruction.split(" ")[1].split(":");
-            String fieldName = field[0];
-            String fieldType = field[1];
-
-            Integer value = (Integer) stackFrame.getClazz().getStaticVariables().get(fieldName);
-            stackFrame.getOperandStack().push(value);
-            System.out.printf("   %4d (%s#%s): [getstatic] 将静态变量 " + fieldName + " 的值 " + value + " 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException {
+            MiniDecodedCode.FieldOperand field = (MiniDecodedCode.FieldOperand) resolved;
+            // 字段第一次访问时链接到其所属类的槽位，之后只是一次数组读取
+            MiniClass.MiniMemberInfo staticField = field.resolve(stackFrame.getClazz());
+            MiniClass fieldClass = staticField.getClazz();
+            int slot = staticField.getSlot();
+
+            MiniOperandStack operandStack = stackFrame.getOperandStack();
+            switch (field.descriptor().charAt(0)) {
+                case 'L', '[' -> operandStack.pushRef(fieldClass.getStaticRef(slot));
+                case 'J', 'D' -> operandStack.pushLong(fieldClass.getStaticValue(slot));
+                default -> operandStack.pushInt((int) fieldClass.getStaticValue(slot));
+            }
+            if (MiniTrace.isEnabled(MiniTraceEvent.GETSTATIC)) {
+                trace(MiniTraceEvent.GETSTATIC, stackFrame, pc, 0, 0, 0, field.name(), describeStatic(field, fieldClass, slot));
+            }
         }
     }
 
@@ -215,55 +429,92 @@ public class MiniExecutionEngine {
      */
     public static class PutstaticInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            String[] field = instruction.split(" ")[1].split(":");
-            String fieldName = field[0];
-            String fieldType = field[1];
-            int value = stackFrame.getOperandStack().pop();
-            stackFrame.getClazz().getStaticVariables().put(fieldName, value);
-            System.out.printf("   %4d (%s#%s): [putstatic] 将栈顶值 %d 存储到静态变量 %s%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), value, fieldName);
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException {
+            MiniDecodedCode.FieldOperand field = (MiniDecodedCode.FieldOperand) resolved;
+            MiniClass.MiniMemberInfo staticField = field.resolve(stackFrame.getClazz());
+            MiniClass fieldClass = staticField.getClazz();
+            int slot = staticField.getSlot();
+
+            MiniOperandStack operandStack = stackFrame.getOperandStack();
+            switch (field.descriptor().charAt(0)) {
+                case 'L', '[' -> fieldClass.putStaticRef(slot, operandStack.popRef());
+                case 'J', 'D' -> fieldClass.putStaticValue(slot, operandStack.popLong());
+                default -> fieldClass.putStaticValue(slot, operandStack.popInt());
+            }
+            if (MiniTrace.isEnabled(MiniTraceEvent.PUTSTATIC)) {
+                trace(MiniTraceEvent.PUTSTATIC, stackFrame, pc, 0, 0, 0, describeStatic(field, fieldClass, slot), field.name());
+            }
+        }
+    }
+
+    /**
+     * getfield
+     * 读取对象字段的值压入栈，字段偏移在类准备阶段已经算好，这里只是一次定长读取
+     */
+    public static class GetfieldInstruction implements Instruction {
+        @Override
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException {
+            MiniDecodedCode.FieldOperand field = (MiniDecodedCode.FieldOperand) resolved;
+            MiniClass.MiniMemberInfo instanceField = field.resolve(stackFrame.getClazz());
+            MiniOperandStack operandStack = stackFrame.getOperandStack();
+
+            int objectRef = operandStack.popRef();
+            if (objectRef == 0) {
+                throw new NullPointerException("Cannot read field \"" + field.name() + "\" because object is null");
+            }
+            int address = objectRef + instanceField.getOffset();
+
+            MiniVirtualMachineMemory.MiniHeapArea heap = MiniVirtualMachineMemory.HEAP_AREA;
+            switch (field.descriptor().charAt(0)) {
+                case 'L', '[' -> operandStack.pushRef(heap.getInt(address));
+                case 'J', 'D' -> operandStack.pushLong(heap.getLong(address));
+                case 'C' -> operandStack.pushInt(heap.getShort(address) & 0xFFFF);
+                case 'S' -> operandStack.pushInt(heap.getShort(address));
+                case 'B', 'Z' -> operandStack.pushInt(heap.getByte(address));
+                default -> operandStack.pushInt(heap.getInt(address));
+            }
+            if (MiniTrace.isEnabled(MiniTraceEvent.GETFIELD)) {
+                trace(MiniTraceEvent.GETFIELD, stackFrame, pc, objectRef, 0, 0, field.name(), describeField(field, address));
+            }
         }
     }
 
     /**
      * putfield
-     * 给对象字段赋值。
+     * 给对象字段赋值，按字段偏移直接写入堆中
      */
     public static class PutfieldInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            String[] field = instruction.split(" ")[1].split(":");
-            String fieldName = field[0];
-            String fieldType = field[1];
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException {
+            MiniDecodedCode.FieldOperand field = (MiniDecodedCode.FieldOperand) resolved;
+            MiniClass.MiniMemberInfo instanceField = field.resolve(stackFrame.getClazz());
+            if (instanceField == null) {
+                trace(MiniTraceEvent.PUTFIELD_NOT_FOUND, stackFrame, pc, 0, 0, 0, field.name(), null);
+                return;
+            }
+            MiniOperandStack operandStack = stackFrame.getOperandStack();
+            MiniVirtualMachineMemory.MiniHeapArea heap = MiniVirtualMachineMemory.HEAP_AREA;
 
-            // 1. 弹出栈顶的字段值
-            int fieldValue = stackFrame.getOperandStack().pop();
+            // 1. 弹出栈顶的字段值（long、double 占两个槽位）
+            char type = field.descriptor().charAt(0);
+            long value = type == 'J' || type == 'D' ? operandStack.popLong() : operandStack.popInt();
             // 2. 弹出栈顶的对象引用
-            int objectRef = stackFrame.getOperandStack().pop();
-            // 3. 将字段值存储到对象的字段中 TODO: 这里应该要先读取对象大小，然后读取全部内容
-            String object = MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN.read(objectRef, 1024);
-            StringBuilder objectHeader = new StringBuilder(object);
-            // 先找到 fields= ，然后从 fields= 开始往后搜索 fieldName: 的位置，然后替换 : 后到 ; 中的值
-            int fieldsIndex = objectHeader.indexOf(";Fields=");
-            int fieldIndex = objectHeader.indexOf(fieldName + ":", fieldsIndex);
-            if (fieldIndex != -1) {
-                int startIndex = fieldIndex + fieldName.length() + 1;
-                int endIndex = objectHeader.indexOf(";", startIndex);
-
-                // 看是不是对象，使得话说明是引用地址，要去常量池里找
-                String newFieldValue;
-                if (fieldType.startsWith("L")) {
-                    newFieldValue = (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(stackFrame.getClazz()).getConstant(fieldValue);
-                } else {
-                    newFieldValue = String.valueOf(fieldValue);
-                }
-
-                objectHeader.replace(startIndex, endIndex, newFieldValue);
-                // 更新对象的字段值
-                MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN.write(objectRef, objectHeader.toString());
-                System.out.printf("   %4d (%s#%s): [putfield] 将栈顶值 %s 存储到对象 %d 的字段 %s 中%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), newFieldValue, objectRef, fieldName);
-            } else {
-                System.out.printf("   %4d (%s#%s): [putfield] 找不到字段 %s%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), fieldName);
+            int objectRef = operandStack.popRef();
+            if (objectRef == 0) {
+                throw new NullPointerException("Cannot assign field \"" + field.name() + "\" because object is null");
+            }
+            // 3. 按字段类型写入对象中对应的偏移
+            int address = objectRef + instanceField.getOffset();
+            switch (type) {
+                case 'J', 'D' -> heap.putLong(address, value);
+                case 'C', 'S' -> heap.putShort(address, (short) value);
+                case 'B', 'Z' -> heap.putByte(address, (byte) value);
+                // 引用类型的字段需要写屏障
+                case 'L', '[' -> heap.putReference(address, (int) value);
+                default -> heap.putInt(address, (int) value);
+            }
+            if (MiniTrace.isEnabled(MiniTraceEvent.PUTFIELD)) {
+                trace(MiniTraceEvent.PUTFIELD, stackFrame, pc, objectRef, 0, 0, describeField(field, address), field.name());
             }
         }
     }
@@ -275,72 +526,24 @@ public class MiniExecutionEngine {
     public static class NewInstruction implements Instruction {
 
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) throws IOException {
-            String className = instruction.split(" ")[1];
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException {
+            MiniDecodedCode.ClassOperand classOperand = (MiniDecodedCode.ClassOperand) resolved;
+            String className = classOperand.className();
 
             // 1. 加载类的元信息
-            MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(className);
-            // 2. 计算对象的大小并为其分配内存空间（内存规整-指针碰撞、内存不规整-空闲链表）
+            MiniClass clazz = classOperand.resolve();
+            // 2. 对象的大小在类准备阶段已经算好，为其分配内存空间（内存规整-指针碰撞）
             int objectSize = clazz.getInstanceSize();
-            // 3. 处理并发安全问题（CAS、TLAB）
-            // 5. 设置对象头的信息（hashCode、GC 分代年龄、锁状态标志等）
-            StringBuilder objectHeader = new StringBuilder()
-                    .append("Mark Word=")
-                    .append("lock:" + 0).append(";")
-                    .append("biased_lock:" + 0).append(";")
-                    .append("hash:" + 0).append(";")
-                    .append("age:0").append(";")
-                    .append("JavaThread:" + 0).append(";")
-                    .append("epoch:" + 0).append(";")
-                    .append("ptr_to_lock_record:" + 0).append(";")
-                    .append("ptr_to_heavyweight_monitor:" + 0).append(";")
-                    .append("Klass Pointer=" + clazz).append(";");
-
-            // 4. 初始化分配到的空间（属性的默认初始化）
-            objectHeader.append("Fields=");
-            for (MiniClass.MiniMemberInfo field : clazz.getFields()) {
-                // 跳过静态变量
-                if ((field.getAccessFlags() & 0x0008) != 0) continue;
-
-                objectHeader.append(field.getName()).append(":");
-
-                if (field.getDescriptor().equals("I")) {
-                    objectHeader.append("0");
-                } else if (field.getDescriptor().equals("Z")) {
-                    objectHeader.append("false");
-                } else if (field.getDescriptor().equals("C")) {
-                    objectHeader.append("0");
-                } else if (field.getDescriptor().equals("F")) {
-                    objectHeader.append("0.0");
-                } else if (field.getDescriptor().equals("D")) {
-                    objectHeader.append("0.0");
-                } else if (field.getDescriptor().equals("J")) {
-                    objectHeader.append("0");
-                } else if (field.getDescriptor().startsWith("L")) {
-                    objectHeader.append("null");
-                }
-
-                objectHeader.append(";");
-            }
-
-            // 看看比计算的 objectSize 小的话就插入空的字符串填充
-            if (objectHeader.length() < objectSize) {
-                int paddingSize = objectSize - objectHeader.length();
-                objectHeader.append(" ".repeat(Math.max(0, paddingSize)));
-            } else {
-                // TODO: 这里理论应该要在设置对象头的上方
-                objectSize = objectHeader.length();
-            }
+            // 3. 处理并发安全问题：优先在线程自己的 TLAB 中分配，不够时再以 CAS 在 EDEN 中分配
+            // 4. 初始化分配到的空间（属性的默认初始化，即全部清零）
+            // 5. 设置对象头的信息（标记字、类 id）
+            MiniTlab tlab = stackFrame.getStack() == null ? null : stackFrame.getStack().getTlab();
+            int objectRef = MiniObjectLayout.allocate(tlab, objectSize, clazz.getClassId(), 0);
+            MiniTrace.record(MiniTraceEvent.ALLOCATE, objectSize, objectRef, 0, 0, className, null, null, null);
 
-            int objectRef = MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN.allocate(objectSize);
+            stackFrame.getOperandStack().pushRef(objectRef);
 
-            MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN.write(objectRef, objectHeader.toString());
-
-            stackFrame.getOperandStack().push(objectRef);
-            // 局部变量表中存储对象引用
-            stackFrame.getLocalVariableTable().put(0, objectRef);
-
-            System.out.printf("   %4d (%s#%s): [new] 创建 %s 对象实例 %d%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), className, objectRef);
+            trace(MiniTraceEvent.NEW, stackFrame, pc, objectRef, 0, 0, className, null);
         }
     }
 
@@ -350,66 +553,40 @@ public class MiniExecutionEngine {
      */
     public static class IaddInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            int value1 = stackFrame.getOperandStack().pop();
-            int value2 = stackFrame.getOperandStack().pop();
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            int value1 = stackFrame.getOperandStack().popInt();
+            int value2 = stackFrame.getOperandStack().popInt();
             int result = value1 + value2;
-            stackFrame.getOperandStack().push(result);
-            System.out.printf("   %4d (%s#%s): [iadd] 将栈顶两个值 " + value1 + " 和 " + value2 + " 相加，结果 " + result + " 压入栈%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+            stackFrame.getOperandStack().pushInt(result);
+            trace(MiniTraceEvent.IADD, stackFrame, pc, value1, value2, result, null, null);
         }
     }
 
     public static class InvokeInstruction implements Instruction {
-        @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) throws IOException {
-            String instructionName = instruction.split(" ")[0];
-
-            String className = instruction.split(" ")[1].split("[.]")[0];
-            String methodName = instruction.split(" ")[1].split("[.]")[1];
-            String paramsAndReturnType = instruction.split(" ")[2];
-
-            MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(className);
-            MiniClass.MiniMemberInfo method = clazz.getMethod(methodName);
-
-            // 解析参数和返回值类型，eg: (II)I
-            // 解析括号内的参数类型
-            String params = paramsAndReturnType.substring(paramsAndReturnType.indexOf("(") + 1, paramsAndReturnType.indexOf(")"));
-            String returnType = paramsAndReturnType.substring(paramsAndReturnType.indexOf(")") + 1);
-            Map<Integer, Integer> localVariableTable = new HashMap<>();
-            for (int i = 0; i < params.length(); i++) {
-                char paramType = params.charAt(i);
-                if (paramType == 'I') {
-                    // int 类型
-                    int value = stackFrame.getOperandStack().pop();
-                    localVariableTable.put(i, value);
-                } else if (paramType == 'L') {
-                    // 截取到分号结束
-                    int endIndex = params.indexOf(";", i);
-                    String objectType = params.substring(i, endIndex + 1);
-                    i = endIndex;
-                } else {
-                    throw new IllegalArgumentException("不支持的参数类型: " + paramType);
-                }
-            }
+        private final String instructionName;
 
-            if ("invokespecial".equals(instructionName)) {
-                // TODO: 不知道这么做是不是对的
-                localVariableTable = stackFrame.getLocalVariableTable();
-            }
+        protected InvokeInstruction(String instructionName) {
+            this.instructionName = instructionName;
+        }
 
-            System.out.printf("   %4d (%s#%s): [%s] 调用实例初始化方法 %s.%s %s%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName(), instructionName, className, methodName, paramsAndReturnType);
+        @Override
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) throws IOException {
+            MiniDecodedCode.MethodOperand methodOperand = (MiniDecodedCode.MethodOperand) resolved;
 
-            MiniStackFrame callStackFrame = MethodCaller.call(clazz, method, localVariableTable);
+            MiniClass.MiniMemberInfo method = methodOperand.resolve();
+            MiniClass clazz = method.getClazz();
 
-            if (returnType.equals("I")) {
-                // 返回值类型为 int
-                Integer returnValue = callStackFrame.getOperandStack().pop();
-                stackFrame.getOperandStack().push(returnValue);
-            } else if (returnType.equals("V")) {
-                // 返回值类型为 void
-            } else {
-                throw new IllegalArgumentException("不支持的返回值类型: " + returnType);
+            // 参数占用的槽位数已在解码时算好，实例方法还要算上调用者对象 this
+            int argumentSlots = methodOperand.parameterSlots();
+            if (!"invokestatic".equals(instructionName)) {
+                argumentSlots++;
             }
+
+            trace(MiniTraceEvent.INVOKE, stackFrame, pc, 0, 0, 0, instructionName, methodOperand);
+
+            // 参数直接从当前操作数栈复制到被调用方法的局部变量表，压入新栈帧后由解释器循环接着执行，
+            // 返回值由 return 指令移动回当前操作数栈
+            MethodCaller.invoke(stackFrame, clazz, method, argumentSlots);
         }
     }
 
@@ -418,7 +595,9 @@ public class MiniExecutionEngine {
      * 调用实例初始化方法
      */
     public static class InvokespecialInstruction extends InvokeInstruction {
-
+        public InvokespecialInstruction() {
+            super("invokespecial");
+        }
     }
 
     /**
@@ -426,7 +605,9 @@ public class MiniExecutionEngine {
      * 调用静态方法
      */
     public static class InvokestaticInstruction extends InvokeInstruction {
-
+        public InvokestaticInstruction() {
+            super("invokestatic");
+        }
     }
 
     /**
@@ -434,7 +615,37 @@ public class MiniExecutionEngine {
      * 调用实例方法
      */
     public static class InvokevirtualInstruction extends InvokeInstruction {
+        public InvokevirtualInstruction() {
+            super("invokevirtual");
+        }
+    }
 
+    /**
+     * invokedynamic
+     * 动态调用方法，目前仅输出调用点信息
+     */
+    public static class InvokedynamicInstruction implements Instruction {
+        @Override
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            MiniDecodedCode.InvokeDynamicOperand callSite = (MiniDecodedCode.InvokeDynamicOperand) resolved;
+            // 尚未真正链接调用点：按描述符弹出参数，并压入一个空的返回值以保持操作数栈平衡，long、double 占两个槽位
+            MiniOperandStack operandStack = stackFrame.getOperandStack();
+            for (int i = callSite.parameterTypes().length - 1; i >= 0; i--) {
+                switch (callSite.parameterTypes()[i]) {
+                    case 'L' -> operandStack.popRef();
+                    case 'J', 'D' -> operandStack.popLong();
+                    default -> operandStack.popInt();
+                }
+            }
+            switch (callSite.returnType()) {
+                case 'V' -> {
+                }
+                case 'L', '[' -> operandStack.pushRef(0);
+                case 'J', 'D' -> operandStack.pushLong(0);
+                default -> operandStack.pushInt(0);
+            }
+            trace(MiniTraceEvent.INVOKEDYNAMIC, stackFrame, pc, 0, 0, 0, resolved, null);
+        }
     }
 
     /**
@@ -443,8 +654,9 @@ public class MiniExecutionEngine {
      */
     public static class IreturnInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            System.out.printf("   %4d (%s#%s): [ireturn] 执行结束%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            trace(MiniTraceEvent.IRETURN, stackFrame, pc);
+            MethodCaller.returnFrom(stackFrame, 1);
         }
     }
 
@@ -454,8 +666,9 @@ public class MiniExecutionEngine {
      */
     public static class ReturnInstruction implements Instruction {
         @Override
-        public void execute(MiniStackFrame stackFrame, int pc, String instruction) {
-            System.out.printf("   %4d (%s#%s): [return] 执行结束%n", pc, stackFrame.getClazz().getName(), stackFrame.getMethodName());
+        public void execute(MiniStackFrame stackFrame, int pc, int operand, Object resolved) {
+            trace(MiniTraceEvent.RETURN, stackFrame, pc);
+            MethodCaller.returnFrom(stackFrame, 0);
         }
     }
 }
\ No newline at end of file
@@ -1,24 +1,162 @@
 package mini;
 
+import mini.cl.MiniClass;
 import mini.cl.loader.MiniBootstrapClassLoader;
+import mini.cl.loader.MiniClassLoader;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.gc.MiniGenerationalCollector;
+import mini.management.MiniManagement;
+import mini.thread.MiniThread;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class MiniVirtualMachine {
+    /**
+     * 启动时读取、解析类文件的线程数，可通过 -Dmini.startup.parallelism 指定，默认为 CPU 核数
+     */
+    public static final int STARTUP_PARALLELISM = Integer.getInteger("mini.startup.parallelism", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 引导类加载器默认加载 java.lang 包下的类
+     */
+    private static final String[] BOOTSTRAP_CLASSES = {
+            "demo/java/lang/MiniObject",
+            "demo/java/lang/MiniSystem",
+            "demo/java/io/MiniPrintStream",
+    };
+
+    private static volatile StartupReport startupReport;
+
     public static void main(String[] args) throws IOException {
         MiniVirtualMachine.start(args);
+        // 开启跟踪（-Dmini.trace=...）时，退出前把记录的事件输出到控制台
+        MiniTrace.drain(System.out);
     }
 
     public static void start(String[] args) throws IOException {
-        // 引导类加载器默认加载 java.lang 包下的类
-        String[] classNames = {
-                "demo/java/lang/MiniObject",
-                "demo/java/lang/MiniSystem",
-                "demo/java/io/MiniPrintStream",
-        };
-        for (String className : classNames) {
-            MiniBootstrapClassLoader.loadClass(className);
+        // 启动虚拟机的线程是客户程序的主线程
+        MiniThread.bindMain();
+        // EDEN 耗尽时触发一次 Minor GC
+        MiniVirtualMachineMemory.HEAP_AREA.setExhaustionHandler(MiniGenerationalCollector.INSTANCE::onExhausted);
+        // 堆和垃圾回收的监控信息注册为 MBean
+        MiniManagement.register();
+
+        StartupReport report = loadBootstrapClasses(BOOTSTRAP_CLASSES);
+        startupReport = report;
+        if (MiniTrace.isEnabled(MiniTraceEvent.STARTUP)) {
+            MiniTrace.record(MiniTraceEvent.STARTUP, report.classes(), report.wallNanos() / 1000, 0, 0,
+                    millis(report.readNanos()), millis(report.parseNanos()), millis(report.linkNanos()), millis(report.initNanos()));
         }
         System.out.println("================================================== MiniJVM started ==================================================");
     }
+
+    /**
+     * 按流水线加载启动类：
+     * <ol>
+     *     <li>读取、解析：每个类一个任务，在线程池中并行执行，互不依赖；</li>
+     *     <li>链接、初始化：在当前线程上按顺序执行，父类先于子类，哪个类解析完就接着定义哪个类，与后面的类的解析重叠。
+     *     &lt;clinit&gt; 使用当前线程的栈，所以不能放到线程池中执行。</li>
+     * </ol>
+     * 已经加载过的类跳过
+     *
+     * @param classNames 类的全限定名（使用 / 分隔）
+     */
+    static StartupReport loadBootstrapClasses(String[] classNames) throws IOException {
+        long start = System.nanoTime();
+        long linkStart = MiniClassLoader.getLinkNanos();
+        long initStart = MiniClassLoader.getInitNanos();
+        LongAdder readNanos = new LongAdder();
+        LongAdder parseNanos = new LongAdder();
+
+        Map<String, CompletableFuture<MiniClass>> parsed = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, STARTUP_PARALLELISM), runnable -> {
+            Thread thread = new Thread(runnable, "Mini Startup");
+            thread.setDaemon(true);
+            return thread;
+        })) {
+            for (String className : classNames) {
+                if (MiniVirtualMachineMemory.METHOD_AREA.findLoadedClass(null, className) != null) continue;
+                parsed.put(className, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        long readStart = System.nanoTime();
+                        ByteBuffer classData = MiniBootstrapClassLoader.readClassData(className);
+                        long parseStart = System.nanoTime();
+                        readNanos.add(parseStart - readStart);
+                        try {
+                            return MiniClassLoader.parse(null, classData);
+                        } finally {
+                            parseNanos.add(System.nanoTime() - parseStart);
+                        }
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            Set<String> defining = new HashSet<>();
+            for (String className : parsed.keySet()) {
+                define(className, parsed, defining);
+            }
+        }
+
+        return new StartupReport(parsed.size(), readNanos.sum(), parseNanos.sum(),
+                MiniClassLoader.getLinkNanos() - linkStart, MiniClassLoader.getInitNanos() - initStart, System.nanoTime() - start);
+    }
+
+    /**
+     * 等类解析完后定义它，父类也在启动类中时先定义父类
+     */
+    private static void define(String className, Map<String, CompletableFuture<MiniClass>> parsed, Set<String> defining) throws IOException {
+        // 已经定义过，或者是父类链中的循环（交给类加载器报告 ClassCircularityError）
+        if (!defining.add(className)) return;
+
+        MiniClass clazz;
+        try {
+            clazz = parsed.get(className).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+        String superClassName = clazz.getSuperClassName();
+        if (superClassName != null) {
+            superClassName = superClassName.replace(".", "/");
+            if (parsed.containsKey(superClassName)) {
+                define(superClassName, parsed, defining);
+            }
+        }
+        MiniBootstrapClassLoader.defineClass(className, clazz);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+
+    /**
+     * 最近一次启动的各阶段耗时，还没有启动时为 null
+     */
+    public static StartupReport getStartupReport() {
+        return startupReport;
+    }
+
+    /**
+     * 启动各阶段的耗时（纳秒）：读取、解析为各个线程的累计时间；链接、初始化在启动线程上执行，
+     * 初始化中触发的其他类的加载也算在内；wallNanos 为启动类加载的总耗时
+     *
+     * @param classes 这次启动实际加载的类的个数
+     */
+    public record StartupReport(int classes, long readNanos, long parseNanos, long linkNanos, long initNanos, long wallNanos) {
+    }
 }
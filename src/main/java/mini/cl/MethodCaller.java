@@ -1,247 +1,164 @@
 package mini.cl;
 
 import mini.MiniExecutionEngine;
-import mini.data.area.MiniVirtualMachineMemory;
-
-import java.util.Arrays;
-import java.util.Map;
-
+import mini.data.area.MiniVirtualStack;
+import mini.data.structure.MiniOperandStack;
+import mini.thread.MiniSafepoint;
+import mini.thread.MiniThread;
+
+/**
+ * 方法调用
+ * <p>
+ * 解释器只有一个循环：每次取线程栈栈顶栈帧 pc 处的指令执行。
+ * invoke 指令只负责压入被调用方法的栈帧，return 指令只负责弹出当前栈帧，
+ * 两者都不会在宿主（真实 JVM）的调用栈上递归，因此客户程序的递归深度只受 {@link MiniVirtualStack} 容量限制。
+ * </p>
+ */
 public class MethodCaller {
-    public static MiniStackFrame call(MiniClass clazz, MiniClass.MiniMemberInfo method, Map<Integer, Integer> localVariableTable) {
-        MiniClass.MiniCodeAttribute codeAttribute = Arrays.stream(method.getAttributes())
-                .filter(a -> a instanceof MiniClass.MiniCodeAttribute)
-                .map(a -> (MiniClass.MiniCodeAttribute) a)
-                .findFirst().orElseThrow();
-
-        // 一个方法对应一个栈帧
-        MiniStackFrame stackFrame = new MiniStackFrame(clazz, method.getName(), localVariableTable);
-
-        // TODO: 这里需要区分是静态方法还是实例方法，如果是实例方法需要传入 this 对象到栈帧中
-
-        // 解析字节码指令
-        byte[] code = codeAttribute.getCode();
-        // 模拟 PC 寄存器，指向当前执行的字节码指令
-        int pc = 0;
-        /* https://www.cnblogs.com/longjee/p/8675771.html */
-        while (pc < code.length) {
-            int oldPc = pc;
-            byte opcode = code[pc++];
-
-            switch (opcode) {
-                // ========== 常量入栈指令 ==========
-                case 0x01: // aconst_null
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "aconst_null");
-                    break;
-                case 0x02: // iconst_m1
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "iconst_m1");
-                    break;
-                case 0x03: // iconst_0
-                case 0x04: // iconst_1
-                case 0x05: // iconst_2
-                case 0x06: // iconst_3
-                case 0x07: // iconst_4
-                case 0x08: // iconst_5
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "iconst_" + (opcode - 3));
-                    break;
-                case 0x4B: // astroe_0
-                case 0x4C: // astroe_1
-                case 0x4D: // astroe_2
-                case 0x4E: // astroe_3
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "astore_" + (opcode - 75));
-                    break;
-                case 0x10: // bipush
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "bipush" + " " + code[pc++]);
-                    break;
-                case 0x12: // ldc
-                    int index = code[pc++];
-                    Integer valueIndex = (Integer) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(index);
-
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "ldc" + " " + valueIndex);
-                    break;
-                // ========== 局部变量值转载到栈中指令 ==========
-                case 0x2A: // aload_0
-                case 0x2B: // aload_1
-                case 0x2C: // aload_2
-                case 0x2D: // aload_3
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "aload_" + (opcode - 42));
-                    break;
-                case 0x1A: // iload_0
-                case 0x1B: // iload_1
-                case 0x1C: // iload_2
-                case 0x1D: // iload_3
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "iload_" + (opcode - 26));
-                    break;
-                // ========== 将栈顶值保存到局部变量中指令 ==========
-                case 0x3B: // istore_0
-                case 0x3C: // istore_1
-                case 0x3D: // istore_2
-                case 0x3E: // istore_3
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "istore_" + (opcode - 59));
-                    break;
-                // ========== 通用（无类型）栈操作指令 ==========
-                case 0x00: // nop
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "nop");
-                    break;
-                case 0x59: // dup
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "dup");
-                    break;
-                // ========== 整数运算 ==========
-                case 0x60: // iadd
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "iadd");
-                    break;
-                case 0x64: // isub
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "isub");
-                    break;
-                case 0x68: // imul
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "imul");
-                    break;
-                case 0x6C: // idiv
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "idiv");
-                    break;
-                // ========== 对象操作指令 ==========
-                case (byte) 0xBB: // new
-                    // 读取常量池索引
-                    index = ((code[pc] & 0xFF) << 8) | (code[pc + 1] & 0xFF);
-                    pc += 2;
-                    Object value = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(index);
-
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, String.format("new %s", MethodCaller.getClassName(clazz, value)));
-                    break;
-                case (byte) 0xB2: // getstatic
-                case (byte) 0xB3: // putstatic
-                case (byte) 0xB4: // getfield
-                case (byte) 0xB5: // putfield
-                    // 读取常量池索引
-                    index = ((code[pc] & 0xFF) << 8) | (code[pc + 1] & 0xFF);
-                    pc += 2;
-                    value = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(index);
-                    String className = MethodCaller.getClassName(clazz, value);
-                    Object field = getRight(clazz, value);
-                    Object fieldName = getLeft(clazz, field);
-                    Object fieldType = getRight(clazz, field);
-
-                    String instructionName = switch (opcode) {
-                        case (byte) 0xB2 -> "getstatic";
-                        case (byte) 0xB3 -> "putstatic";
-                        case (byte) 0xB4 -> "getfield";
-                        case (byte) 0xB5 -> "putfield";
-                        default -> null;
-                    };
-
-                    // 看是不是当前类的静态变量
-                    if (clazz.getName().equals(className.replace("/", "."))) {
-                        MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, String.format("%s %s:%s", instructionName, fieldName, fieldType));
-                    } else {
-                        MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, String.format("%s %s.%s:%s", instructionName, className, fieldName, fieldType));
-                    }
-                    break;
-                // ========== 方法调用指令 ==========
-                case (byte) 0xB6: // invokevirtual
-                case (byte) 0xB7: // invokespecial
-                case (byte) 0xB8: // invokestatic
-                    index = ((code[pc] & 0xFF) << 8) | (code[pc + 1] & 0xFF);
-                    pc += 2;
-                    value = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(index);
-                    className = MethodCaller.getClassName(clazz, value);
-                    Object methodInfo = getRight(clazz, value);
-                    String methodName = (String) getLeft(clazz, methodInfo);
-                    String returnType = (String) getRight(clazz, methodInfo);
-
-                    // 看当前是不是 MiniObject，如果是的话就把 <clinit> 以及 <init> 方法剔除
-                    if ("demo.java.lang.MiniObject".equals(stackFrame.getClazz().getName())
-                            && ("<clinit>".equals(methodName) || "<init>".equals(methodName))) {
-                        break;
-                    }
-
-                    instructionName = switch (opcode) {
-                        case (byte) 0xB6 -> "invokevirtual";
-                        case (byte) 0xB7 -> "invokespecial";
-                        case (byte) 0xB8 -> "invokestatic";
-                        default -> null;
-                    };
-
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, String.format("%s %s.%s %s", instructionName, className, methodName, returnType));
-                    break;
-
-                case (byte) 0xBA: // invokedynamic
-                    index = ((code[pc] & 0xFF) << 8) | (code[pc + 1] & 0xFF);
-                    pc += 2;
-                    value = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(index);
-
-                    Object left = getLeft(clazz, value);
-                    Object right = getRight(clazz, value);
-
-                    Object leftSubLeft = null;
-                    Object leftSubRight = null;
-                    className = null;
-                    if (left instanceof String) {
-                        leftSubLeft = getLeft(clazz, left);
-                        leftSubRight = getRight(clazz, left);
-
-                        className = MethodCaller.getClassName(clazz, left);
-                    }
-
-                    Object rightSubLeft = getLeft(clazz, right);
-                    Object rightSubRight = getRight(clazz, right);
-
-                    System.out.printf("    %4d: invokedynamic %s:%s %s:%s\n", oldPc, className, leftSubRight, rightSubLeft, rightSubRight);
-
-                    break;
-                // ========== 方法返回指令 ==========
-                case (byte) 0xAC: // ireturn
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "ireturn");
-                    break;
-                case (byte) 0xB1: // return
-                    MiniExecutionEngine.INSTANCE.execute(stackFrame, oldPc, "return");
-                    break;
-                default:
-                    System.out.printf("Unknown instruction: 0x%02X\n", opcode);
+    /**
+     * 调用无参方法，如 &lt;clinit&gt;、main
+     */
+    public static MiniStackFrame call(MiniClass clazz, MiniClass.MiniMemberInfo method) {
+        return call(clazz, method, null, 0);
+    }
+
+    /**
+     * 由宿主发起调用，在当前线程（{@link MiniThread#current()}）的栈上执行到该方法返回为止
+     * <p>
+     * 返回的栈帧已经出栈，其内容（如返回值、局部变量）只在下一次调用前有效
+     * </p>
+     *
+     * @param arguments     调用方的操作数栈，栈顶的 argumentSlots 个槽位即为参数（实例方法包含 this）
+     * @param argumentSlots 参数占用的槽位数
+     */
+    public static MiniStackFrame call(MiniClass clazz, MiniClass.MiniMemberInfo method, MiniOperandStack arguments, int argumentSlots) {
+        MiniThread thread = MiniThread.current();
+        MiniVirtualStack virtualStack = thread.getStack();
+        int entryDepth = virtualStack.getDepth();
+
+        // 最外层的调用进入解释器，嵌套调用（如指令中触发的 <clinit>）已经处于 RUNNING
+        boolean entered = MiniSafepoint.enter(thread);
+        MiniStackFrame stackFrame;
+        try {
+            stackFrame = pushFrame(virtualStack, clazz, method, arguments, argumentSlots, true);
+            run(virtualStack, entryDepth);
+        } finally {
+            // 执行出错时把没有正常返回的栈帧一并丢弃
+            while (virtualStack.getDepth() > entryDepth) {
+                virtualStack.popFrame();
             }
+            if (entered) MiniSafepoint.leave(thread);
         }
 
         return stackFrame;
     }
 
-    private static String getClassName(MiniClass clazz, Object constant) {
-        Object classNameIndex = MethodCaller.getLeft(clazz, constant);
+    /**
+     * 由 invoke 指令发起调用：只压入被调用方法的栈帧，由解释器循环接着执行
+     */
+    public static void invoke(MiniStackFrame caller, MiniClass clazz, MiniClass.MiniMemberInfo method, int argumentSlots) {
+        pushFrame(caller.getStack(), clazz, method, caller.getOperandStack(), argumentSlots, false);
+    }
 
-        if (classNameIndex == null) return null;
-        if (classNameIndex instanceof String) return (String) classNameIndex;
-        if (!(classNameIndex instanceof Integer)) return null;
+    /**
+     * 由 return 指令发起返回：弹出当前栈帧，返回值（如果有）移动到调用方的操作数栈，调用方从自己保存的 pc 继续执行
+     * <p>
+     * 方法返回处是安全点轮询点：此时栈帧中的引用都在槽位中，可以停下来让垃圾回收扫描。
+     * 以后加入跳转指令时，向回跳转（目标 pc 小于当前 pc）的地方也要调用 {@link MiniSafepoint#poll()}，否则没有方法调用的循环会让安全点一直等下去
+     * </p>
+     *
+     * @param returnSlots 返回值占用的槽位数
+     */
+    public static void returnFrom(MiniStackFrame stackFrame, int returnSlots) {
+        MiniSafepoint.poll();
+        MiniVirtualStack virtualStack = stackFrame.getStack();
+        if (virtualStack == null) return;
+
+        virtualStack.popFrame();
+        if (!stackFrame.isEntry() && returnSlots > 0) {
+            stackFrame.getOperandStack().moveTo(virtualStack.peekFrame().getOperandStack(), returnSlots);
+        }
+    }
 
-        String className = (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant((Integer) classNameIndex);
+    /**
+     * 压入入口栈帧但不执行，之后由 {@link #resume(MiniThread, int)} 分时间片执行，用于 {@link mini.thread.MiniScheduler} 调度的线程
+     */
+    public static void enter(MiniVirtualStack virtualStack, MiniClass clazz, MiniClass.MiniMemberInfo method) {
+        pushFrame(virtualStack, clazz, method, null, 0, true);
+    }
 
-        // 这里模拟下，强行把 java/lang/ 替换为 demo/java/lang/Mini
+    /**
+     * 在线程自己的栈上继续执行，最多执行 budget 条指令，或者线程请求让出（如 {@link MiniThread#park()}）时提前停下；
+     * 栈帧和 pc 都保存在线程栈中，下次从停下的位置接着执行
+     *
+     * @return 线程栈是否已经执行完（回退到空栈）
+     */
+    public static boolean resume(MiniThread thread, int budget) {
+        MiniVirtualStack virtualStack = thread.getStack();
+        MiniExecutionEngine engine = MiniExecutionEngine.INSTANCE;
+        // 时间片之间线程处于 SAFE，安全点不需要等待排队中的线程
+        boolean entered = MiniSafepoint.enter(thread);
+        try {
+            while (virtualStack.getDepth() > 0) {
+                if (budget-- == 0 || thread.isYieldRequested()) return false;
+                step(engine, virtualStack);
+            }
+            return true;
+        } catch (Throwable e) {
+            // 执行出错时线程结束，丢弃所有栈帧
+            while (virtualStack.getDepth() > 0) {
+                virtualStack.popFrame();
+            }
+            throw e;
+        } finally {
+            if (entered) MiniSafepoint.leave(thread);
+        }
+    }
 
-        return className.replace("java/lang/", "demo/java/lang/Mini")
-                .replace("java/io/", "demo/java/io/Mini");
+    /**
+     * 解释器循环，直到线程栈回退到 entryDepth
+     */
+    static void run(MiniVirtualStack virtualStack, int entryDepth) {
+        MiniExecutionEngine engine = MiniExecutionEngine.INSTANCE;
+        while (virtualStack.getDepth() > entryDepth) {
+            step(engine, virtualStack);
+        }
     }
 
-    private static Object getLeft(MiniClass clazz, Object constant) {
-        if (constant instanceof String str) {
-            if (str.contains(":")) {
-                String[] parts = str.split(":");
-                return MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(Integer.parseInt(parts[0]));
-            } else {
-                throw new IllegalArgumentException("constant must be String: " + str);
-            }
-        } else if (constant instanceof Integer) {
-            return MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant((Integer) constant);
-        } else {
-            throw new IllegalArgumentException("constant must be String");
+    /**
+     * 执行栈顶栈帧 pc 处的一条指令
+     */
+    private static void step(MiniExecutionEngine engine, MiniVirtualStack virtualStack) {
+        MiniStackFrame stackFrame = virtualStack.peekFrame();
+        MiniDecodedCode decodedCode = stackFrame.getDecodedCode();
+
+        int index = stackFrame.getPc();
+        if (index >= decodedCode.getLength()) {
+            // 没有以 return 结尾的方法体，按 return 处理
+            returnFrom(stackFrame, 0);
+            return;
         }
+
+        // 先移动 pc，执行 invoke 时保存的就是返回地址
+        stackFrame.setPc(index + 1);
+        int offset = index * MiniDecodedCode.STRIDE;
+        int[] code = decodedCode.getCode();
+        engine.execute(stackFrame, decodedCode.getPcs()[index], code[offset], code[offset + 1], decodedCode.getOperands()[index]);
     }
 
-    private static Object getRight(MiniClass clazz, Object constant) {
-        if (constant instanceof String str) {
-            if (str.contains(":")) {
-                String[] parts = str.split(":");
-                return MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(Integer.parseInt(parts[1]));
-            } else {
-                throw new IllegalArgumentException("constant must be String: " + str);
-            }
-        } else {
-            throw new IllegalArgumentException("constant must be String");
+    private static MiniStackFrame pushFrame(MiniVirtualStack virtualStack, MiniClass clazz, MiniClass.MiniMemberInfo method,
+                                            MiniOperandStack arguments, int argumentSlots, boolean entry) {
+        MiniClass.MiniCodeAttribute codeAttribute = method.getCodeAttribute();
+
+        // 一个方法对应一个栈帧，从线程栈中直接切出，不再单独分配
+        MiniStackFrame stackFrame = virtualStack.pushFrame(clazz, method.getName(), codeAttribute.getMaxLocals(), codeAttribute.getMaxStack());
+        // 首次执行时解码字节码，之后直接复用解码结果
+        stackFrame.enter(codeAttribute.getDecodedCode(), entry);
+
+        // 参数（实例方法的 this 在 0 号槽位）按顺序放入局部变量表
+        if (argumentSlots > 0) {
+            arguments.popArguments(stackFrame.getLocalVariableTable(), argumentSlots);
         }
+        return stackFrame;
     }
 }
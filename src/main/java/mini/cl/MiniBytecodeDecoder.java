@@ -0,0 +1,291 @@
+package mini.cl;
+
+import mini.data.area.MiniConstantPool;
+import mini.data.area.MiniVirtualMachineMemory;
+
+import java.util.Arrays;
+
+/**
+ * 字节码解码器
+ * <p>
+ * 将方法的原始字节码一次性翻译为 {@link MiniDecodedCode}：
+ * 1. 带编号的短指令（iconst_3、iload_1 等）规整为 操作码 + 整型操作数；
+ * 2. 常量池中的符号引用（字段、方法、类）提前解析为操作数对象，执行时不再拼接/解析文本。
+ * </p>
+ * 参考：https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-6.html
+ */
+public final class MiniBytecodeDecoder {
+    private MiniBytecodeDecoder() {
+    }
+
+    /**
+     * 各操作码后紧跟的操作数字节数，-1 表示变长（tableswitch、lookupswitch、wide）
+     */
+    private static final byte[] OPERAND_LENGTHS = new byte[256];
+
+    static {
+        OPERAND_LENGTHS[0x10] = 1; // bipush
+        OPERAND_LENGTHS[0x11] = 2; // sipush
+        OPERAND_LENGTHS[0x12] = 1; // ldc
+        OPERAND_LENGTHS[0x13] = 2; // ldc_w
+        OPERAND_LENGTHS[0x14] = 2; // ldc2_w
+        for (int opcode = 0x15; opcode <= 0x19; opcode++) OPERAND_LENGTHS[opcode] = 1; // iload ~ aload
+        for (int opcode = 0x36; opcode <= 0x3A; opcode++) OPERAND_LENGTHS[opcode] = 1; // istore ~ astore
+        OPERAND_LENGTHS[0x84] = 2; // iinc
+        for (int opcode = 0x99; opcode <= 0xA8; opcode++) OPERAND_LENGTHS[opcode] = 2; // if<cond> ~ jsr
+        OPERAND_LENGTHS[0xA9] = 1; // ret
+        OPERAND_LENGTHS[0xAA] = -1; // tableswitch
+        OPERAND_LENGTHS[0xAB] = -1; // lookupswitch
+        for (int opcode = 0xB2; opcode <= 0xB8; opcode++) OPERAND_LENGTHS[opcode] = 2; // 字段访问、方法调用
+        OPERAND_LENGTHS[0xB9] = 4; // invokeinterface
+        OPERAND_LENGTHS[0xBA] = 4; // invokedynamic
+        OPERAND_LENGTHS[0xBB] = 2; // new
+        OPERAND_LENGTHS[0xBC] = 1; // newarray
+        OPERAND_LENGTHS[0xBD] = 2; // anewarray
+        OPERAND_LENGTHS[0xC0] = 2; // checkcast
+        OPERAND_LENGTHS[0xC1] = 2; // instanceof
+        OPERAND_LENGTHS[0xC4] = -1; // wide
+        OPERAND_LENGTHS[0xC5] = 3; // multianewarray
+        OPERAND_LENGTHS[0xC6] = 2; // ifnull
+        OPERAND_LENGTHS[0xC7] = 2; // ifnonnull
+        OPERAND_LENGTHS[0xC8] = 4; // goto_w
+        OPERAND_LENGTHS[0xC9] = 4; // jsr_w
+    }
+
+    public static MiniDecodedCode decode(MiniClass clazz, byte[] code) {
+        MiniConstantPool constantPool = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz);
+
+        // 指令条数不会超过字节数，先按最大值申请，最后再裁剪
+        int[] decoded = new int[code.length * MiniDecodedCode.STRIDE];
+        Object[] operands = new Object[code.length];
+        int[] pcs = new int[code.length];
+        int length = 0;
+
+        /* https://www.cnblogs.com/longjee/p/8675771.html */
+        int pc = 0;
+        while (pc < code.length) {
+            int oldPc = pc;
+            int opcode = code[pc++] & 0xFF;
+            int operand = 0;
+            Object resolved = null;
+
+            switch (opcode) {
+                // ========== 常量入栈指令 ==========
+                case 0x02: // iconst_m1
+                    operand = -1;
+                    break;
+                case 0x03: // iconst_0
+                case 0x04: // iconst_1
+                case 0x05: // iconst_2
+                case 0x06: // iconst_3
+                case 0x07: // iconst_4
+                case 0x08: // iconst_5
+                    operand = opcode - 0x03;
+                    break;
+                case 0x10: // bipush
+                    operand = code[pc++];
+                    break;
+                case 0x12: // ldc
+                case 0x13: // ldc_w
+                    int index;
+                    if (opcode == 0x12) {
+                        index = code[pc++] & 0xFF;
+                    } else {
+                        index = readUnsignedShort(code, pc);
+                        pc += 2;
+                    }
+                    // 统一为 ldc：int、float 直接取其 32 位值；字符串只记下内容，执行时再到字符串常量池中取对象，
+                    // 对象在堆中的地址会随垃圾回收变化，不能缓存在解码结果中
+                    opcode = 0x12;
+                    if (constantPool.getTag(index) == MiniConstantPool.CONSTANT_String) {
+                        resolved = constantPool.getString(index);
+                    } else {
+                        operand = constantPool.getInt(index);
+                    }
+                    break;
+                case 0x14: // ldc2_w
+                    index = readUnsignedShort(code, pc);
+                    pc += 2;
+                    resolved = constantPool.getTag(index) == MiniConstantPool.CONSTANT_Long
+                            ? (Object) constantPool.getLong(index)
+                            : (Object) constantPool.getDouble(index);
+                    break;
+                // ========== 局部变量值转载到栈中指令 ==========
+                case 0x1A: // iload_0
+                case 0x1B: // iload_1
+                case 0x1C: // iload_2
+                case 0x1D: // iload_3
+                    operand = opcode - 0x1A;
+                    break;
+                case 0x2A: // aload_0
+                case 0x2B: // aload_1
+                case 0x2C: // aload_2
+                case 0x2D: // aload_3
+                    operand = opcode - 0x2A;
+                    break;
+                // ========== 将栈顶值保存到局部变量中指令 ==========
+                case 0x3B: // istore_0
+                case 0x3C: // istore_1
+                case 0x3D: // istore_2
+                case 0x3E: // istore_3
+                    operand = opcode - 0x3B;
+                    break;
+                case 0x4B: // astore_0
+                case 0x4C: // astore_1
+                case 0x4D: // astore_2
+                case 0x4E: // astore_3
+                    operand = opcode - 0x4B;
+                    break;
+                // ========== 对象操作指令 ==========
+                case 0xBB: // new
+                    index = readUnsignedShort(code, pc);
+                    pc += 2;
+                    resolved = constantPool.getResolved(index);
+                    if (resolved == null) {
+                        resolved = new MiniDecodedCode.ClassOperand(mapClassName(constantPool.getClassName(index)));
+                        resolved = constantPool.setResolved(index, resolved);
+                    }
+                    break;
+                // ========== 字段访问指令 ==========
+                case 0xB2: // getstatic
+                case 0xB3: // putstatic
+                case 0xB4: // getfield
+                case 0xB5: // putfield
+                    index = readUnsignedShort(code, pc);
+                    pc += 2;
+                    resolved = constantPool.getResolved(index);
+                    if (resolved == null) {
+                        MiniConstantPool.MemberRef fieldRef = constantPool.getMemberRef(index);
+                        MiniConstantPool.NameAndType nameAndType = constantPool.getNameAndType(fieldRef.nameAndTypeIndex());
+                        String className = mapClassName(constantPool.getClassName(fieldRef.classIndex()));
+
+                        // 看是不是当前类的字段
+                        boolean local = clazz.getName().equals(className.replace("/", "."));
+                        resolved = new MiniDecodedCode.FieldOperand(className, constantPool.getUtf8(nameAndType.nameIndex()),
+                                constantPool.getUtf8(nameAndType.descriptorIndex()), local);
+                        resolved = constantPool.setResolved(index, resolved);
+                    }
+                    break;
+                // ========== 方法调用指令 ==========
+                case 0xB6: // invokevirtual
+                case 0xB7: // invokespecial
+                case 0xB8: // invokestatic
+                    index = readUnsignedShort(code, pc);
+                    pc += 2;
+                    MiniConstantPool.MemberRef methodRef = constantPool.getMemberRef(index);
+                    MiniConstantPool.NameAndType nameAndType = constantPool.getNameAndType(methodRef.nameAndTypeIndex());
+                    String methodName = constantPool.getUtf8(nameAndType.nameIndex());
+
+                    // 看当前是不是 MiniObject，如果是的话就把 <clinit> 以及 <init> 方法剔除
+                    if ("demo.java.lang.MiniObject".equals(clazz.getName())
+                            && ("<clinit>".equals(methodName) || "<init>".equals(methodName))) {
+                        opcode = 0x00;
+                        break;
+                    }
+
+                    resolved = constantPool.getResolved(index);
+                    if (resolved == null) {
+                        resolved = MiniDecodedCode.MethodOperand.of(mapClassName(constantPool.getClassName(methodRef.classIndex())),
+                                methodName, constantPool.getUtf8(nameAndType.descriptorIndex()));
+                        resolved = constantPool.setResolved(index, resolved);
+                    }
+                    break;
+                case 0xBA: // invokedynamic
+                    index = readUnsignedShort(code, pc);
+                    pc += 4;
+                    resolved = constantPool.getResolved(index);
+                    if (resolved == null) {
+                        MiniConstantPool.DynamicRef dynamicRef = constantPool.getDynamicRef(index);
+                        nameAndType = constantPool.getNameAndType(dynamicRef.nameAndTypeIndex());
+                        String descriptor = constantPool.getUtf8(nameAndType.descriptorIndex());
+                        resolved = new MiniDecodedCode.InvokeDynamicOperand(dynamicRef.bootstrapMethodIndex(),
+                                constantPool.getUtf8(nameAndType.nameIndex()), descriptor,
+                                parseParameterTypes(descriptor), descriptor.charAt(descriptor.indexOf(')') + 1));
+                        resolved = constantPool.setResolved(index, resolved);
+                    }
+                    break;
+                default:
+                    // 其余指令没有需要提前解析的操作数，按规范跳过其操作数字节
+                    pc += operandLength(code, opcode, pc);
+            }
+
+            pcs[length] = oldPc;
+            decoded[length * MiniDecodedCode.STRIDE] = opcode;
+            decoded[length * MiniDecodedCode.STRIDE + 1] = operand;
+            operands[length] = resolved;
+            length++;
+        }
+
+        return new MiniDecodedCode(
+                Arrays.copyOf(decoded, length * MiniDecodedCode.STRIDE),
+                Arrays.copyOf(operands, length),
+                Arrays.copyOf(pcs, length),
+                length);
+    }
+
+    /**
+     * 解析方法描述符中的参数类型，eg: (ILjava/lang/String;[I)V -> [I, L, L]
+     */
+    public static char[] parseParameterTypes(String descriptor) {
+        char[] types = new char[descriptor.length()];
+        int count = 0;
+        int i = descriptor.indexOf('(') + 1;
+        while (descriptor.charAt(i) != ')') {
+            char type = descriptor.charAt(i);
+            if (type == '[') {
+                // 数组跳过所有维度及其元素类型，按引用处理
+                while (descriptor.charAt(i) == '[') i++;
+                if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+                type = 'L';
+            } else if (type == 'L') {
+                // 截取到分号结束
+                i = descriptor.indexOf(';', i);
+            }
+            types[count++] = type;
+            i++;
+        }
+        return Arrays.copyOf(types, count);
+    }
+
+    private static int operandLength(byte[] code, int opcode, int pc) {
+        int length = OPERAND_LENGTHS[opcode];
+        if (length >= 0) return length;
+
+        if (opcode == 0xC4) {
+            // wide iinc 多 4 个字节，其余多 2 个字节
+            return (code[pc] & 0xFF) == 0x84 ? 5 : 3;
+        }
+
+        // tableswitch、lookupswitch 的操作数需按 4 字节对齐
+        int padding = (4 - (pc % 4)) % 4;
+        int start = pc + padding;
+        if (opcode == 0xAA) {
+            int low = readInt(code, start + 4);
+            int high = readInt(code, start + 8);
+            return padding + 12 + (high - low + 1) * 4;
+        }
+        int pairs = readInt(code, start + 4);
+        return padding + 8 + pairs * 8;
+    }
+
+    private static int readUnsignedShort(byte[] code, int pc) {
+        return ((code[pc] & 0xFF) << 8) | (code[pc + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] code, int pc) {
+        return ((code[pc] & 0xFF) << 24) | ((code[pc + 1] & 0xFF) << 16) | ((code[pc + 2] & 0xFF) << 8) | (code[pc + 3] & 0xFF);
+    }
+
+    /**
+     * 这里模拟下，强行把 java/lang/ 替换为 demo/java/lang/Mini
+     */
+    static String mapClassName(String className) {
+        if (className.startsWith("java/lang/")) {
+            return "demo/java/lang/Mini" + className.substring("java/lang/".length());
+        }
+        if (className.startsWith("java/io/")) {
+            return "demo/java/io/Mini" + className.substring("java/io/".length());
+        }
+        return className;
+    }
+}
@@ -5,14 +5,18 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import mini.cl.loader.MiniClassLoader;
 import mini.data.area.MiniConstantPool;
+import mini.data.area.MiniObjectLayout;
 import mini.data.area.MiniVirtualMachineMemory;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ClassFile {
@@ -36,13 +40,48 @@ import java.util.Map;
  * 参考：https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-4.html
  */
 public class MiniClass {
+    private static final VarHandle STATIC_VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle STATIC_REFS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * 类文件的内容，可以是映射到内存的文件，解析时直接从中读取，不复制；
+     * 常量池、属性只记录其中的偏移或视图，用到时才解码
+     */
     @Getter
-    private final DataInputStream input;
+    private final ByteBuffer input;
+    /**
+     * 类文件在 input 中的起始位置，以及常量池、访问标志、当前类和父类索引之后的位置（0 表示还没读取）
+     */
+    private final int start;
+    private int headerEnd;
     @Getter
     private MiniClassLoader classLoader;
 
+    /**
+     * 静态变量，下标在准备阶段分配：
+     * 基本类型统一放在 staticValues 中（float、double 保存其位模式），引用类型放在 staticRefs 中（对象地址）。
+     * 多个线程通过 {@link #getStaticValue(int)} 等方法读写，long、double 不会被拆成两半，写入的引用对其他线程可见。
+     */
+    @Getter
+    private long[] staticValues;
     @Getter
-    private final Map<String, Object> staticVariables = new HashMap<>();
+    private int[] staticRefs;
+
+    /**
+     * 实例布局，准备阶段计算：
+     * classId 写入对象头；instanceSize 为对象实际分配的大小（含对象头，按 8 字节对齐）；
+     * referenceOffsets 为所有引用类型字段（包括继承的）的偏移，供垃圾回收遍历
+     */
+    @Getter
+    private int classId;
+    @Getter
+    private int instanceSize;
+    @Getter
+    private int[] referenceOffsets;
+    /**
+     * 最后一个实例字段结束的位置（未对齐），子类的字段紧接着从这里开始排列
+     */
+    private int fieldsEnd;
 
     private int magic; // 魔数，固定值0xCAFEBABE
     private int minorVersion; // 次版本号
@@ -56,22 +95,63 @@ public class MiniClass {
     @Getter
     private MiniMemberInfo[] methods; // 方法数量
 
-    public MiniClass(DataInputStream input) {
-        this.input = input;
+    private String name;
+    private MiniClass superClazz;
+    private volatile boolean superClassResolved;
+    /**
+     * 方法、字段索引，key 为 名称 + 描述符，链接时建立；
+     * 在当前类找不到而在父类中找到的结果也会缓存进来
+     */
+    private Map<String, MiniMemberInfo> methodIndex;
+    private Map<String, MiniMemberInfo> fieldIndex;
+
+    public MiniClass(ByteBuffer input) {
+        this(input, null);
     }
 
-    public MiniClass(DataInputStream input, MiniClassLoader classLoader) {
-        this.input = input;
+    /**
+     * @param input       从当前位置开始的类文件内容，解析时使用它的一个副本，不会移动调用方的位置
+     * @param classLoader 定义类的加载器，引导类加载器为 null
+     */
+    public MiniClass(ByteBuffer input, MiniClassLoader classLoader) {
+        this.input = input.duplicate();
+        this.start = this.input.position();
         this.classLoader = classLoader;
     }
 
     public String getName() {
-        String name = (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getConstant((Integer) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getConstant(thisClass));
-        return name.replace("/", "."); // 替换斜杠为点
+        if (name == null) {
+            name = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getClassName(thisClass)
+                    .replace("/", "."); // 替换斜杠为点
+        }
+        return name;
     }
 
+    /**
+     * 父类，第一次调用时加载并缓存
+     */
     public MiniClass getSuperClass() throws IOException {
-        String superClassName = (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getConstant((Integer) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getConstant(superClass));
+        if (!superClassResolved) {
+            superClazz = loadSuperClass();
+            superClassResolved = true;
+        }
+        return superClazz;
+    }
+
+    private MiniClass loadSuperClass() throws IOException {
+        String superClassName = getSuperClassName();
+        if (superClassName == null) {
+            return null;
+        }
+
+        return MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(superClassName);
+    }
+
+    /**
+     * 父类的全限定名，不加载父类，java.lang、java.io 下的类替换为 demo 中对应的 Mini 类；没有父类时返回 null
+     */
+    public String getSuperClassName() {
+        String superClassName = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getClassName(superClass);
         superClassName = superClassName
                 .replace("java/lang/", "demo/java/lang/Mini")
                 .replace("java/io/", "demo/java/io/Mini")
@@ -80,14 +160,13 @@ public class MiniClass {
         if (this.getName().equals(superClassName)) {
             return null;
         }
-
-        return MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(superClassName);
+        return superClassName;
     }
 
     public MiniClass[] getInterfaces() {
         MiniClass[] interfaceClasses = new MiniClass[interfaces.length];
         for (int i = 0; i < interfaces.length; i++) {
-            String interfaceName = (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getConstant(interfaces[i]);
+            String interfaceName = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this).getClassName(interfaces[i]);
             // TODO: 基于 MiniBootstrapClassLoader 通过类名获取类对象
             interfaceClasses[i] = null;
         }
@@ -98,23 +177,41 @@ public class MiniClass {
      * 在加载阶段提前读取父类信息
      */
     public MiniClass _loading_loadSuperClass() throws IOException {
-        this.readAndCheckMagic();
-        this.readAndCheckVersion();
+        this.readHeader();
 
-        // 读取常量池
-        MiniVirtualMachineMemory.METHOD_AREA.putConstantPool(this, MiniConstantPool.read(input));
+        MiniTrace.record(MiniTraceEvent.LOAD, this.getName());
 
-        // 读取访问标志
-        this.accessFlags = input.readUnsignedShort();
+        return this;
+    }
 
-        // 读取当前类的索引
-        this.thisClass = input.readUnsignedShort();
-        // 读取父类的索引
-        this.superClass = input.readUnsignedShort();
+    /**
+     * 读取魔数、版本号、常量池、访问标志、当前类和父类的索引，只读取一次，之后直接跳到它们之后
+     */
+    private void readHeader() throws IOException {
+        if (headerEnd != 0) {
+            input.position(headerEnd);
+            return;
+        }
 
-        input.reset();
+        try {
+            input.position(start);
+            this.readAndCheckMagic();
+            this.readAndCheckVersion();
 
-        return this;
+            // 读取常量池
+            MiniVirtualMachineMemory.METHOD_AREA.putConstantPool(this, MiniConstantPool.read(input));
+
+            // 读取访问标志
+            this.accessFlags = readUnsignedShort();
+
+            // 读取当前类的索引
+            this.thisClass = readUnsignedShort();
+            // 读取父类的索引
+            this.superClass = readUnsignedShort();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated class file", e);
+        }
+        headerEnd = input.position();
     }
 
     /**
@@ -125,99 +222,135 @@ public class MiniClass {
      * https://javaguide.cn/java/jvm/class-loading-process.html#%E9%AA%8C%E8%AF%81
      */
     public MiniClass _linking_verify() throws IOException {
-        System.out.println("Verify");
-
-        this.readAndCheckMagic();
-        this.readAndCheckVersion();
-
-        // 读取常量池
-        MiniVirtualMachineMemory.METHOD_AREA.putConstantPool(this, MiniConstantPool.read(input));
-
-        // 读取访问标志
-        this.accessFlags = input.readUnsignedShort();
-
-        // 读取当前类的索引
-        this.thisClass = input.readUnsignedShort();
-        // 读取父类的索引
-        this.superClass = input.readUnsignedShort();
-
-        // 读取接口
-        this.readInterfaces();
-        // 读取字段
-        this.readFields();
-        // 读取方法
-        this.readMethods();
-        // 读取属性
-        this.readAttributes();
+        MiniTrace.record(MiniTraceEvent.VERIFY, null);
+
+        // 加载阶段已经读取过常量池时不再重复读取
+        this.readHeader();
+
+        try {
+            // 读取接口
+            this.readInterfaces();
+            // 读取字段
+            this.readFields();
+            // 读取方法
+            this.readMethods();
+            // 读取属性
+            this.readAttributes();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated class file", e);
+        }
+        // 建立方法、字段索引
+        this.methodIndex = buildMemberIndex(methods);
+        this.fieldIndex = buildMemberIndex(fields);
 
         // 确认是否还有数据
-        if (input.available() > 0) {
+        if (input.hasRemaining()) {
             throw new IOException("Extra data found in class file");
         }
 
-        // 关闭输入流
-        input.close();
-
         return this;
     }
 
-    public MiniClass _linking_prepare() {
-        System.out.println("Prepare: " + this.getName());
+    public MiniClass _linking_prepare() throws IOException {
+        MiniTrace.record(MiniTraceEvent.PREPARE, this.getName());
+
+        // 计算实例字段的偏移及对象大小
+        this.prepareInstanceLayout();
 
+        // 为每个静态变量分配槽位，数组创建后即为零值（0、0.0、false、null）
+        int valueCount = 0;
+        int refCount = 0;
         for (MiniMemberInfo field : fields) {
             // 识别是否是静态变量
             int accessFlags = field.getAccessFlags();
-            if ((accessFlags & 0x0008) != 0) {
-                String descriptor = field.getDescriptor();
-                if (descriptor.equals("I")) {
-                    System.out.println("    " + field.getName() + " = 0");
-                    this.staticVariables.put(field.getName(), 0);
-                } else if (descriptor.startsWith("L")) {
-                    String className = descriptor.substring(1, descriptor.length() - 1);
-                    System.out.println("    " + field.getName() + " = " + className);
-                } else {
-                    System.err.println("Warning: Unrecognized field descriptor: " + descriptor);
+            if ((accessFlags & 0x0008) == 0) continue;
+
+            String descriptor = field.getDescriptor();
+            char type = descriptor.charAt(0);
+            field.setSlot(type == 'L' || type == '[' ? refCount++ : valueCount++);
+            MiniTrace.record(MiniTraceEvent.PREPARE_STATIC, field.getSlot(), 0, 0, 0, field.getName(), descriptor, null, null);
+        }
+        this.staticValues = new long[valueCount];
+        this.staticRefs = new int[refCount];
+        return this;
+    }
+
+    /**
+     * 父类的字段排在前面，当前类的字段按 8、4、2、1 字节分组依次排列，分组之间不需要额外填充
+     */
+    private void prepareInstanceLayout() throws IOException {
+        MiniClass superClass = getSuperClass();
+        int offset = superClass == null ? MiniObjectLayout.HEADER_SIZE : superClass.fieldsEnd;
+        int[] superReferenceOffsets = superClass == null ? new int[0] : superClass.referenceOffsets;
+
+        int[] ownReferenceOffsets = new int[fields.length];
+        int referenceCount = 0;
+        for (int size = 8; size >= 1; size >>= 1) {
+            offset = MiniObjectLayout.align(offset, size);
+            for (MiniMemberInfo field : fields) {
+                // 跳过静态变量
+                if ((field.getAccessFlags() & 0x0008) != 0) continue;
+
+                char type = field.getDescriptor().charAt(0);
+                if (MiniObjectLayout.fieldSize(type) != size) continue;
+
+                field.setOffset(offset);
+                if (type == 'L' || type == '[') {
+                    ownReferenceOffsets[referenceCount++] = offset;
                 }
+                offset += size;
             }
         }
-        return this;
+
+        this.fieldsEnd = offset;
+        this.instanceSize = MiniObjectLayout.align(offset, MiniObjectLayout.ALIGNMENT);
+        this.referenceOffsets = new int[superReferenceOffsets.length + referenceCount];
+        System.arraycopy(superReferenceOffsets, 0, referenceOffsets, 0, superReferenceOffsets.length);
+        System.arraycopy(ownReferenceOffsets, 0, referenceOffsets, superReferenceOffsets.length, referenceCount);
+        this.classId = MiniVirtualMachineMemory.METHOD_AREA.registerClass(this);
     }
 
     public MiniClass _linking_resolve() {
-        System.out.println("Resolve: " + this.getName());
+        MiniTrace.record(MiniTraceEvent.RESOLVE, this.getName());
         return this;
     }
 
     private void readAndCheckMagic() throws IOException {
-        magic = input.readInt();
+        magic = input.getInt();
         if (magic != 0xCAFEBABE) {
             throw new IOException("Magic number incorrect! Expect 0xCAFEBABE but was " + Integer.toHexString(magic));
         }
     }
 
-    private void readAndCheckVersion() throws IOException {
-        minorVersion = input.readUnsignedShort();
-        majorVersion = input.readUnsignedShort();
+    private void readAndCheckVersion() {
+        minorVersion = readUnsignedShort();
+        majorVersion = readUnsignedShort();
+    }
+
+    private int readUnsignedShort() {
+        return Short.toUnsignedInt(input.getShort());
     }
 
-    private void readInterfaces() throws IOException {
-        interfaces = new int[input.readUnsignedShort()];
+    private void readInterfaces() {
+        interfaces = new int[readUnsignedShort()];
         for (int i = 0; i < interfaces.length; i++) {
-            interfaces[i] = input.readUnsignedShort();
+            interfaces[i] = readUnsignedShort();
         }
     }
 
-    private void readFields() throws IOException {
+    private void readFields() {
         fields = MiniMemberInfo.read(this, input);
     }
 
-    private void readMethods() throws IOException {
+    private void readMethods() {
         methods = MiniMemberInfo.read(this, input);
 
+        MiniConstantPool constantPool = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(this);
         for (MiniMemberInfo method : methods) {
             for (int i = 0; i < method.attributesCount; i++) {
                 MiniAttributeInfo attribute = method.getAttributes()[i];
-                if ("Code".equals(attribute.getAttributeName())) {
+                // 直接比较属性名的字节，其他属性的名称不需要解码
+                if (constantPool.isUtf8(attribute.getAttributeNameIndex(), "Code")) {
                     MiniCodeAttribute codeAttribute = MiniCodeAttribute.read(attribute);
                     method.getAttributes()[i] = codeAttribute;
                 }
@@ -225,43 +358,100 @@ public class MiniClass {
         }
     }
 
-    private void readAttributes() throws IOException {
-        int attributesCount = input.readUnsignedShort();
+    /**
+     * 类的属性（SourceFile、InnerClasses 等）暂时用不到，直接跳过
+     */
+    private void readAttributes() {
+        int attributesCount = readUnsignedShort();
         for (int i = 0; i < attributesCount; i++) {
-            int attributeNameIndex = input.readUnsignedShort();
-            int attributeLength = input.readInt();
-            byte[] attributeInfo = new byte[attributeLength];
-            input.readFully(attributeInfo);
+            readUnsignedShort();
+            int attributeLength = input.getInt();
+            input.position(input.position() + attributeLength);
+        }
+    }
+
+    private static Map<String, MiniMemberInfo> buildMemberIndex(MiniMemberInfo[] members) {
+        // 查找父类成员后会写回索引，多个线程可能同时写入
+        Map<String, MiniMemberInfo> index = new ConcurrentHashMap<>(members.length * 2);
+        for (MiniMemberInfo member : members) {
+            index.putIfAbsent(memberKey(member.getName(), member.getDescriptor()), member);
         }
+        return index;
     }
 
+    private static String memberKey(String name, String descriptor) {
+        return (name + descriptor).intern();
+    }
+
+    /**
+     * 按名称和描述符查找方法，当前类中没有时沿父类链查找，找到后缓存到当前类的索引中；
+     * &lt;init&gt;、&lt;clinit&gt; 不会被继承，只在当前类中查找
+     */
+    public MiniMemberInfo getMethod(String name, String descriptor) throws IOException {
+        String key = memberKey(name, descriptor);
+        MiniMemberInfo method = methodIndex.get(key);
+        if (method == null && name.charAt(0) != '<') {
+            MiniClass superClass = getSuperClass();
+            method = superClass == null ? null : superClass.getMethod(name, descriptor);
+            if (method != null) methodIndex.put(key, method);
+        }
+        return method;
+    }
+
+    /**
+     * 只按名称在当前类中查找第一个同名方法，用于 main 等入口方法，不区分重载
+     */
     public MiniMemberInfo getMethod(String name) {
-        return Arrays.stream(this.methods)
-                .filter(m -> m.getName().equals(name))
-                .findFirst().orElse(null);
+        for (MiniMemberInfo method : methods) {
+            if (method.getName().equals(name)) return method;
+        }
+        return null;
     }
 
-    public int getInstanceSize() {
-        // 计算实例大小
-        int size = 0;
+    /**
+     * 只按名称在当前类中查找字段
+     */
+    public MiniMemberInfo getField(String name) {
         for (MiniMemberInfo field : fields) {
-            // 判断是否是静态变量，是的话跳过
-            if ((field.getAccessFlags() & 0x0008) != 0) continue;
+            if (field.getName().equals(name)) return field;
+        }
+        return null;
+    }
 
-            String descriptor = field.getDescriptor();
-            if (descriptor.equals("I")) {
-                size += 4; // int 占用 4 字节
-            } else if (descriptor.startsWith("L")) {
-                size += 8; // 对象引用占用 8 字节
-            } else if (descriptor.equals("Z")) {
-                size += 1; // boolean 占用 1 字节
-            } else if (descriptor.equals("C")) {
-                size += 2; // char 占用 2 字节
-            } else {
-                System.err.println("Warning: Unrecognized field descriptor: " + descriptor);
-            }
+    /**
+     * 按名称和描述符查找字段，当前类中没有时沿父类链查找，找到后缓存到当前类的索引中
+     */
+    public MiniMemberInfo getField(String name, String descriptor) throws IOException {
+        String key = memberKey(name, descriptor);
+        MiniMemberInfo field = fieldIndex.get(key);
+        if (field == null) {
+            MiniClass superClass = getSuperClass();
+            field = superClass == null ? null : superClass.getField(name, descriptor);
+            if (field != null) fieldIndex.put(key, field);
         }
-        return size;
+        return field;
+    }
+
+    /**
+     * 读取基本类型的静态变量（getstatic），与其他线程的写入之间是 acquire/release 语义
+     */
+    public long getStaticValue(int slot) {
+        return (long) STATIC_VALUES.getAcquire(staticValues, slot);
+    }
+
+    public void putStaticValue(int slot, long value) {
+        STATIC_VALUES.setRelease(staticValues, slot, value);
+    }
+
+    /**
+     * 读取引用类型的静态变量，其他线程在写入引用前对该对象的初始化都可见
+     */
+    public int getStaticRef(int slot) {
+        return (int) STATIC_REFS.getAcquire(staticRefs, slot);
+    }
+
+    public void putStaticRef(int slot, int address) {
+        STATIC_REFS.setRelease(staticRefs, slot, address);
     }
 
     @Data
@@ -273,39 +463,77 @@ public class MiniClass {
         private int descriptorIndex;
         private int attributesCount;
         private MiniAttributeInfo[] attributes;
+        /**
+         * 方法的 Code 属性，第一次查找后缓存
+         */
+        private MiniCodeAttribute codeAttribute;
+        /**
+         * 名称、描述符，第一次读取后缓存
+         */
+        private String name;
+        private String descriptor;
+        /**
+         * 静态变量在 staticValues 或 staticRefs 中的下标，准备阶段分配
+         */
+        private int slot = -1;
+        /**
+         * 实例字段在对象中的偏移（从对象地址算起，含对象头），准备阶段分配
+         */
+        private int offset = -1;
 
         public MiniMemberInfo(MiniClass clazz) {
             this.clazz = clazz;
         }
 
+        public MiniCodeAttribute getCodeAttribute() {
+            if (codeAttribute == null) {
+                for (MiniAttributeInfo attribute : attributes) {
+                    if (attribute instanceof MiniCodeAttribute code) {
+                        codeAttribute = code;
+                        break;
+                    }
+                }
+            }
+            return codeAttribute;
+        }
+
         public String getName() {
-            return (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(this.nameIndex);
+            if (name == null) {
+                name = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getUtf8(this.nameIndex).intern();
+            }
+            return name;
         }
 
         public String getDescriptor() {
-            return (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(this.descriptorIndex);
+            if (descriptor == null) {
+                descriptor = MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getUtf8(this.descriptorIndex).intern();
+            }
+            return descriptor;
         }
 
-        public static MiniMemberInfo[] read(MiniClass clazz, DataInputStream input) throws IOException {
-            int membersCount = input.readUnsignedShort();
+        /**
+         * 从 input 的当前位置读取字段表或方法表，属性内容只保留类文件的视图，不复制
+         */
+        public static MiniMemberInfo[] read(MiniClass clazz, ByteBuffer input) {
+            int membersCount = Short.toUnsignedInt(input.getShort());
             MiniMemberInfo[] members = new MiniMemberInfo[membersCount];
             for (int i = 0; i < membersCount; i++) {
                 // 读取字段的访问标志
-                int accessFlags = input.readUnsignedShort();
+                int accessFlags = Short.toUnsignedInt(input.getShort());
                 // 读取字段的名称索引
-                int nameIndex = input.readUnsignedShort();
+                int nameIndex = Short.toUnsignedInt(input.getShort());
                 // 读取字段的描述符索引
-                int descriptorIndex = input.readUnsignedShort();
+                int descriptorIndex = Short.toUnsignedInt(input.getShort());
                 // 读取字段的属性数量
-                int attributesCount = input.readUnsignedShort();
+                int attributesCount = Short.toUnsignedInt(input.getShort());
 
                 // 读取字段的属性
                 MiniAttributeInfo[] attributes = new MiniAttributeInfo[attributesCount];
                 for (int j = 0; j < attributesCount; j++) {
-                    int attributeNameIndex = input.readUnsignedShort();
-                    int attributeLength = input.readInt();
-                    byte[] info = new byte[attributeLength];
-                    input.readFully(info);
+                    int attributeNameIndex = Short.toUnsignedInt(input.getShort());
+                    int attributeLength = input.getInt();
+                    ByteBuffer info = input.slice(input.position(), attributeLength);
+                    input.position(input.position() + attributeLength);
 
                     MiniAttributeInfo attribute = new MiniAttributeInfo(clazz);
                     attribute.setAttributeNameIndex(attributeNameIndex);
@@ -339,39 +567,72 @@ public class MiniClass {
 
         private int attributeNameIndex;
         private int attributeLength;
-        private byte[] info;
+        /**
+         * 属性内容，是类文件的一个视图（slice），只用绝对位置读取
+         */
+        private ByteBuffer info;
 
         public MiniAttributeInfo(MiniClass clazz) {
             this.clazz = clazz;
         }
 
         public String getAttributeName() {
-            return (String) MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getConstant(this.attributeNameIndex);
+            return MiniVirtualMachineMemory.METHOD_AREA.getConstantPool(clazz).getUtf8(this.attributeNameIndex);
         }
     }
 
     @Data
     @EqualsAndHashCode(callSuper = true)
     public static class MiniCodeAttribute extends MiniAttributeInfo {
+        /**
+         * max_stack、max_locals、code_length 之后即为字节码
+         */
+        private static final int CODE_OFFSET = 8;
+
         private int maxStack;
         private int maxLocals;
         private int codeLength;
-        private byte[] code;
+        /**
+         * 字节码，第一次解码时才从属性内容中复制出来
+         */
+        private volatile byte[] code;
+        /**
+         * 预解码后的方法体，方法第一次执行时生成并缓存；多个线程同时解码时结果相同，用 volatile 保证发布完整
+         */
+        private volatile MiniDecodedCode decodedCode;
 
         public MiniCodeAttribute(MiniClass clazz) {
             super(clazz);
         }
 
-        public static MiniCodeAttribute read(MiniAttributeInfo attribute) throws IOException {
-            // 使用属性内容的字节数组单独解析Code属性
-            DataInputStream codeInput = new DataInputStream(new ByteArrayInputStream(attribute.getInfo()));
-            int maxStack = codeInput.readUnsignedShort();
-            int maxLocals = codeInput.readUnsignedShort();
-            int codeLength = codeInput.readInt();
-            byte[] code = new byte[codeLength];
-            codeInput.readFully(code);
+        public MiniDecodedCode getDecodedCode() {
+            MiniDecodedCode decoded = decodedCode;
+            if (decoded == null) {
+                decodedCode = decoded = MiniBytecodeDecoder.decode(getClazz(), getCode());
+            }
+            return decoded;
+        }
+
+        public byte[] getCode() {
+            byte[] bytes = code;
+            if (bytes == null) {
+                bytes = new byte[codeLength];
+                getInfo().get(CODE_OFFSET, bytes);
+                code = bytes;
+            }
+            return bytes;
+        }
+
+        public static MiniCodeAttribute read(MiniAttributeInfo attribute) {
+            // 只读取定长的头部，字节码用到时再复制
+            ByteBuffer info = attribute.getInfo();
+            int maxStack = Short.toUnsignedInt(info.getShort(0));
+            int maxLocals = Short.toUnsignedInt(info.getShort(2));
+            int codeLength = info.getInt(4);
+            if (codeLength < 0 || CODE_OFFSET + codeLength > info.limit()) {
+                throw new IllegalArgumentException("Invalid code_length: " + codeLength);
+            }
             // 注意：这里还需要处理异常表和附加属性（这里简化示例）
-            codeInput.close();
 
             MiniCodeAttribute codeAttribute = new MiniCodeAttribute(attribute.getClazz());
             codeAttribute.setAttributeNameIndex(attribute.getAttributeNameIndex());
@@ -381,7 +642,6 @@ public class MiniClass {
             codeAttribute.setMaxStack(maxStack);
             codeAttribute.setMaxLocals(maxLocals);
             codeAttribute.setCodeLength(codeLength);
-            codeAttribute.setCode(code);
 
             return codeAttribute;
         }
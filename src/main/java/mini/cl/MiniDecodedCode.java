@@ -0,0 +1,265 @@
+package mini.cl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import mini.data.area.MiniVirtualMachineMemory;
+
+import java.io.IOException;
+
+/**
+ * 预解码后的方法体
+ * <p>
+ * 方法第一次执行时由 {@link MiniBytecodeDecoder} 将 Code 属性中的原始字节码翻译成紧凑的内部形式，
+ * 之后每次调用都直接执行这份结果，不再逐字节解析、拼接指令文本或反复查询常量池。
+ * </p>
+ * <ul>
+ *     <li>code：每条指令占两个 int，依次为 [操作码, 整型操作数]，如 iload_1 会被规整为 iload + 1</li>
+ *     <li>operands：与指令一一对应的已解析操作数对象（字段、方法、类名等），没有则为 null</li>
+ *     <li>pcs：每条指令在原始字节码中的偏移，用于日志输出及跳转地址换算</li>
+ * </ul>
+ */
+@Getter
+@AllArgsConstructor
+public class MiniDecodedCode {
+    /**
+     * 每条指令在 code 数组中占用的宽度
+     */
+    public static final int STRIDE = 2;
+
+    private final int[] code;
+    private final Object[] operands;
+    private final int[] pcs;
+    /**
+     * 指令条数
+     */
+    private final int length;
+
+    public int getOpcode(int index) {
+        return code[index * STRIDE];
+    }
+
+    public int getOperand(int index) {
+        return code[index * STRIDE + 1];
+    }
+
+    /**
+     * new 等指令引用的类，同样每个常量池项只有一个，类第一次用到时加载一次
+     */
+    public static final class ClassOperand {
+        private final String className;
+        /**
+         * 多个线程可能同时解析，得到的是同一个类，volatile 保证读到的是完整的结果
+         */
+        private volatile MiniClass clazz;
+
+        /**
+         * @param className 类的全限定名（使用 / 分隔）
+         */
+        public ClassOperand(String className) {
+            this.className = className;
+        }
+
+        public String className() {
+            return className;
+        }
+
+        public MiniClass resolve() throws IOException {
+            MiniClass resolved = clazz;
+            if (resolved == null) {
+                clazz = resolved = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(className);
+            }
+            return resolved;
+        }
+
+        @Override
+        public String toString() {
+            return className;
+        }
+    }
+
+    /**
+     * 字段访问指令（getstatic/putstatic/getfield/putfield）的操作数
+     * <p>
+     * 同一个常量池项只会创建一个操作数对象（缓存在常量池的解析缓存中），字段所属的类第一次用到时链接一次，之后直接复用。
+     * </p>
+     */
+    public static final class FieldOperand {
+        private final String className;
+        private final String name;
+        private final String descriptor;
+        private final boolean local;
+        /**
+         * 链接后的字段所属类及字段，多个线程同时链接时结果相同
+         */
+        private volatile MiniClass fieldClass;
+        private volatile MiniClass.MiniMemberInfo field;
+
+        /**
+         * @param className 字段所属类的全限定名（使用 / 分隔）
+         * @param local     字段是否属于当前类
+         */
+        public FieldOperand(String className, String name, String descriptor, boolean local) {
+            this.className = className;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.local = local;
+        }
+
+        public String className() {
+            return className;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String descriptor() {
+            return descriptor;
+        }
+
+        public boolean local() {
+            return local;
+        }
+
+        /**
+         * 字段属于当前类时直接使用当前类，否则通过类加载器找到字段所属的类，只在第一次调用时查找
+         */
+        public MiniClass resolveClass(MiniClass currentClass) throws IOException {
+            if (local) return currentClass;
+            MiniClass resolved = fieldClass;
+            if (resolved == null) {
+                fieldClass = resolved = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(className);
+            }
+            return resolved;
+        }
+
+        /**
+         * 找到字段（包括从父类继承的字段），只在第一次调用时查找
+         */
+        public MiniClass.MiniMemberInfo resolve(MiniClass currentClass) throws IOException {
+            MiniClass.MiniMemberInfo resolved = field;
+            if (resolved == null) {
+                MiniClass clazz = resolveClass(currentClass);
+                resolved = clazz.getField(name, descriptor);
+                // java/ 下的类被替换成了 demo/java/Mini*，引用类型字段的描述符可能对不上，退化为只按名称查找
+                if (resolved == null && (descriptor.charAt(0) == 'L' || descriptor.charAt(0) == '[')) {
+                    resolved = clazz.getField(name);
+                }
+                field = resolved;
+            }
+            return resolved;
+        }
+
+        @Override
+        public String toString() {
+            return local ? name + ":" + descriptor : className + "." + name + ":" + descriptor;
+        }
+    }
+
+    /**
+     * 方法调用指令（invokevirtual/invokespecial/invokestatic）的操作数
+     * <p>
+     * 与 {@link FieldOperand} 一样每个常量池项只有一个，被调用的方法第一次调用时链接一次。
+     * </p>
+     */
+    public static final class MethodOperand {
+        private final String className;
+        private final String name;
+        private final String descriptor;
+        private final char[] parameterTypes;
+        private final int parameterSlots;
+        private final char returnType;
+        /**
+         * 链接后的方法，多个线程同时链接时结果相同
+         */
+        private volatile MiniClass.MiniMemberInfo method;
+
+        /**
+         * @param parameterTypes 预先拆好的参数类型，引用类型和数组统一记为 L
+         * @param parameterSlots 参数占用的局部变量槽位数（不含 this），long、double 占两个
+         * @param returnType     返回值类型的首字符，如 I、V、L
+         */
+        public MethodOperand(String className, String name, String descriptor,
+                             char[] parameterTypes, int parameterSlots, char returnType) {
+            this.className = className;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.parameterTypes = parameterTypes;
+            this.parameterSlots = parameterSlots;
+            this.returnType = returnType;
+        }
+
+        public static MethodOperand of(String className, String name, String descriptor) {
+            char[] parameterTypes = MiniBytecodeDecoder.parseParameterTypes(descriptor);
+            int parameterSlots = 0;
+            for (char parameterType : parameterTypes) {
+                parameterSlots += slotsOf(parameterType);
+            }
+            return new MethodOperand(className, name, descriptor, parameterTypes, parameterSlots,
+                    descriptor.charAt(descriptor.indexOf(')') + 1));
+        }
+
+        public String className() {
+            return className;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String descriptor() {
+            return descriptor;
+        }
+
+        public char[] parameterTypes() {
+            return parameterTypes;
+        }
+
+        public int parameterSlots() {
+            return parameterSlots;
+        }
+
+        public char returnType() {
+            return returnType;
+        }
+
+        /**
+         * 找到被调用的方法，只在第一次调用时加载类并查找
+         */
+        public MiniClass.MiniMemberInfo resolve() throws IOException {
+            MiniClass.MiniMemberInfo resolved = method;
+            if (resolved == null) {
+                MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass(className);
+                method = resolved = clazz.getMethod(name, descriptor);
+            }
+            return resolved;
+        }
+
+        @Override
+        public String toString() {
+            return className + "." + name + " " + descriptor;
+        }
+    }
+
+    /**
+     * 某个类型的值在局部变量表/操作数栈中占用的槽位数
+     */
+    public static int slotsOf(char type) {
+        return switch (type) {
+            case 'J', 'D' -> 2;
+            case 'V' -> 0;
+            default -> 1;
+        };
+    }
+
+    /**
+     * invokedynamic 指令的操作数
+     */
+    public record InvokeDynamicOperand(int bootstrapMethodIndex, String name, String descriptor,
+                                       char[] parameterTypes, char returnType) {
+        @Override
+        public String toString() {
+            return "#" + bootstrapMethodIndex + ":" + name + ":" + descriptor;
+        }
+    }
+}
@@ -1,26 +1,103 @@
 package mini.cl;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import mini.data.structure.MiniStack;
-
-import java.util.Map;
+import lombok.Setter;
+import mini.data.area.MiniVirtualStack;
+import mini.data.structure.MiniLocalVariableTable;
+import mini.data.structure.MiniOperandStack;
 
 /**
  * 栈帧
+ * <p>
+ * 运行时的栈帧由线程栈（{@link mini.data.area.MiniVirtualStack}）统一创建并按调用深度复用，
+ * 局部变量表和操作数栈都只是线程栈中一段连续区域的视图：
+ * [base, base + maxLocals) 为局部变量表，紧接着的 maxStack 个槽位为操作数栈。
+ * </p>
+ * <p>
+ * 栈帧自己保存下一条要执行的指令（pc），调用其他方法时当前栈帧原地挂起，pc 即为返回地址，
+ * 被调用方法返回后解释器直接从这里继续执行。
+ * </p>
  */
 @Getter
-@AllArgsConstructor
 public class MiniStackFrame {
-    private final MiniClass clazz;
-    private final String methodName;
+    private MiniClass clazz;
+    private String methodName;
+
+    /**
+     * 局部变量表，容量为 Code 属性中的 max_locals
+     */
+    private final MiniLocalVariableTable localVariableTable;
+    /**
+     * 操作数栈，容量为 Code 属性中的 max_stack
+     */
+    private final MiniOperandStack operandStack;
+    /**
+     * 栈帧在线程栈中的起始位置，出栈时线程栈的栈顶指针回退到这里
+     */
+    private int base;
+
+    /**
+     * 栈帧所属的线程栈，独立创建的栈帧（如测试中）为 null
+     */
+    private final MiniVirtualStack stack;
+    /**
+     * 正在执行的方法体
+     */
+    private MiniDecodedCode decodedCode;
+    /**
+     * 下一条要执行的指令在 decodedCode 中的序号，调用其他方法时即为返回地址
+     */
+    @Setter
+    private int pc;
+    /**
+     * 是否为宿主直接发起调用的入口栈帧（如 &lt;clinit&gt;、main），其返回值留在自己的操作数栈中
+     */
+    private boolean entry;
+
+    public MiniStackFrame(MiniVirtualStack stack) {
+        this(stack, null, null, new MiniLocalVariableTable(0), new MiniOperandStack(0));
+    }
+
+    public MiniStackFrame(MiniClass clazz, String methodName, MiniLocalVariableTable localVariableTable, MiniOperandStack operandStack) {
+        this(null, clazz, methodName, localVariableTable, operandStack);
+    }
+
+    private MiniStackFrame(MiniVirtualStack stack, MiniClass clazz, String methodName, MiniLocalVariableTable localVariableTable, MiniOperandStack operandStack) {
+        this.stack = stack;
+        this.clazz = clazz;
+        this.methodName = methodName;
+        this.localVariableTable = localVariableTable;
+        this.operandStack = operandStack;
+    }
+
+    /**
+     * 复用栈帧：将局部变量表、操作数栈重新指向线程栈中从 base 开始的区域
+     */
+    public void reset(MiniClass clazz, String methodName, int[] slots, boolean[] refs, int base, int maxLocals, int maxStack) {
+        this.clazz = clazz;
+        this.methodName = methodName;
+        this.base = base;
+        this.localVariableTable.reset(slots, refs, base, maxLocals);
+        this.operandStack.reset(slots, refs, base + maxLocals, maxStack);
+        this.decodedCode = null;
+        this.pc = 0;
+        this.entry = false;
+    }
 
     /**
-     * 局部变量表
+     * 线程栈扩容后，局部变量表、操作数栈改为指向新的数组
      */
-    private final Map<Integer, Integer> localVariableTable;
+    public void rebind(int[] slots, boolean[] refs) {
+        this.localVariableTable.rebind(slots, refs);
+        this.operandStack.rebind(slots, refs);
+    }
+
     /**
-     * 操作数栈
+     * 准备执行方法体：pc 指向第一条指令
      */
-    private final MiniStack<Integer> operandStack = new MiniStack<>();
+    public void enter(MiniDecodedCode decodedCode, boolean entry) {
+        this.decodedCode = decodedCode;
+        this.pc = 0;
+        this.entry = entry;
+    }
 }
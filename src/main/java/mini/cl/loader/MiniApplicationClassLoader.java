@@ -1,6 +1,5 @@
 package mini.cl.loader;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.system.SystemUtil;
 import mini.cl.MiniClass;
 import mini.data.area.MiniVirtualMachineMemory;
@@ -25,20 +24,8 @@ public final class MiniApplicationClassLoader extends MiniClassLoader {
         className = className.replace(".", "/")
                 .replace("\\", "/");
 
-        /* TODO
-            JVM 在判定两个 class 是否相同时，不仅要判断两个类名是否相同，而且要判断是否由同一个类加载器实例加载的。
-            只有两者同时满足的情况下，JVM 才认为这两个 class 是相同的。
-         */
-        if (MiniVirtualMachineMemory.METHOD_AREA.CLASS_CACHE.containsKey(className)) {
-            return MiniVirtualMachineMemory.METHOD_AREA.CLASS_CACHE.get(className);
-        }
-
         String fileName = className + ".class";
-        byte[] classData = FileUtil.readBytes(SystemUtil.getUserInfo().getCurrentDir() + "\\src\\main\\java\\" + fileName);
-        clazz = super.defineClass(classData);
-
-        MiniVirtualMachineMemory.METHOD_AREA.CLASS_CACHE.put(className, clazz);
-
-        return clazz;
+        String path = SystemUtil.getUserInfo().getCurrentDir() + "\\src\\main\\java\\" + fileName;
+        return define(this, className, () -> parse(this, mapClassFile(path)));
     }
 }
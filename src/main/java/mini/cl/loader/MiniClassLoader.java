@@ -1,14 +1,18 @@
 package mini.cl.loader;
 
+import cn.hutool.core.io.FileUtil;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import mini.cl.MethodCaller;
 import mini.cl.MiniClass;
+import mini.data.area.MiniVirtualMachineMemory;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
 
 @Getter
 @AllArgsConstructor
@@ -17,44 +21,111 @@ public abstract class MiniClassLoader {
 
     public abstract MiniClass loadClass(String className) throws IOException;
 
-    public MiniClass defineClass(byte[] classData) throws IOException {
-        // 第一阶段：加载 Loading
-        MiniClass clazz = _load(classData);
+    /**
+     * 由当前加载器定义类，同一个类名只定义一次
+     *
+     * @param className 类的全限定名（使用 / 分隔）
+     */
+    public MiniClass defineClass(String className, byte[] classData) throws IOException {
+        return define(this, className, () -> parse(this, ByteBuffer.wrap(classData)));
+    }
 
-        // 第二阶段：链接 Linking
-        // 1. 验证 Verify
-        clazz._linking_verify();
-        // 2. 准备 Prepare
-        clazz._linking_prepare();
-        // 3. 解析 Resolve
-        clazz._linking_resolve();
+    /**
+     * 读取并解析类，只在真正定义类时调用
+     */
+    @FunctionalInterface
+    interface ClassParser {
+        MiniClass parse() throws IOException;
+    }
 
-        // 第三阶段：初始化 Initialization
-        _initialization(clazz);
+    /**
+     * 链接、初始化累计耗时（纳秒），初始化中触发的其他类的加载也计算在内
+     */
+    private static final LongAdder LINK_NANOS = new LongAdder();
+    private static final LongAdder INIT_NANOS = new LongAdder();
 
-        return clazz;
+    /**
+     * 定义类：已经定义过时直接返回；多个线程同时请求同一个类时，只有一个线程执行加载、链接、初始化，其它线程等待它的结果
+     *
+     * @param loader 定义类的加载器，引导类加载器为 null
+     */
+    static MiniClass define(MiniClassLoader loader, String className, ClassParser parser) throws IOException {
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.findLoadedClass(loader, className);
+        if (clazz != null) return clazz;
+
+        return MiniVirtualMachineMemory.METHOD_AREA.defineClass(loader, className, created -> {
+            // 第一阶段：加载 Loading
+            MiniClass loaded = parser.parse();
+            // 如果存在父类就先加载父类
+            loaded.getSuperClass();
+            // 父类已经加载，之后（如 <clinit> 中）对这个类的请求直接得到它
+            created.accept(loaded);
+
+            // 第二阶段：链接 Linking
+            long start = System.nanoTime();
+            // 1. 验证 Verify
+            loaded._linking_verify();
+            // 2. 准备 Prepare
+            loaded._linking_prepare();
+            // 3. 解析 Resolve
+            loaded._linking_resolve();
+            long linked = System.nanoTime();
+            LINK_NANOS.add(linked - start);
+
+            // 第三阶段：初始化 Initialization
+            _initialization(loaded);
+            INIT_NANOS.add(System.nanoTime() - linked);
+
+            return loaded;
+        });
     }
 
     /**
+     * 加载阶段中不依赖其他类的部分，可以在任意线程上提前执行：
      * 1. 通过全类名获取定义此类的二进制字节流。
      * 2. 将字节流所代表的静态存储结构转换为方法区的运行时数据结构。
      * 3. 在内存中生成一个代表该类的 Class 对象，作为方法区这些数据的访问入口。
+     * <p>
+     * 直接在 classData 上解析，不复制；父类在定义时（{@link #define}）才加载
+     * </p>
+     *
+     * @param loader 定义类的加载器，引导类加载器为 null
      */
-    private static MiniClass _load(byte[] classData) throws IOException {
-        DataInputStream input = new DataInputStream(new ByteArrayInputStream(classData));
-        MiniClass clazz = new MiniClass(input);
-
-        // 检查是否存在父类，如果存在就先加载父类
+    public static MiniClass parse(MiniClassLoader loader, ByteBuffer classData) throws IOException {
+        MiniClass clazz = new MiniClass(classData, loader);
+        // 读取常量池、当前类和父类的索引
         clazz._loading_loadSuperClass();
-        clazz.getSuperClass();
-
         return clazz;
     }
 
-    private static void _initialization(MiniClass clazz) {
+    /**
+     * 在内存段（如堆外内存中的类文件）上直接解析
+     */
+    public static MiniClass parse(MiniClassLoader loader, MemorySegment classData) throws IOException {
+        return parse(loader, classData.asByteBuffer());
+    }
+
+    /**
+     * 把类文件只读映射到内存，解析时直接读取映射的内容，不复制到 byte[]
+     */
+    public static ByteBuffer mapClassFile(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(FileUtil.file(path).toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public static long getLinkNanos() {
+        return LINK_NANOS.sum();
+    }
+
+    public static long getInitNanos() {
+        return INIT_NANOS.sum();
+    }
+
+    private static void _initialization(MiniClass clazz) throws IOException {
         // 先执行 <clinit> 方法
-        MiniClass.MiniMemberInfo clinit = clazz.getMethod("<clinit>");
+        MiniClass.MiniMemberInfo clinit = clazz.getMethod("<clinit>", "()V");
         if (clinit == null) return;
-        MethodCaller.call(clazz, clinit, new HashMap<>());
+        MethodCaller.call(clazz, clinit);
     }
 }
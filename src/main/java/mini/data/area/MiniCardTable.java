@@ -0,0 +1,95 @@
+package mini.data.area;
+
+import java.util.Arrays;
+
+/**
+ * 老年代的卡表（Card Table），记录老年代 → 新生代的引用
+ * <p>
+ * 老年代按 {@link #CARD_SIZE} 字节划分为卡页，每页对应一个字节。向老年代对象的引用字段写入时，写屏障把字段所在的卡页标记为脏；
+ * Minor GC 只扫描脏卡页中的引用字段，不用扫描整个老年代。
+ * </p>
+ * <p>
+ * 另外为每个卡页记录覆盖其起始位置的对象地址（相当于 HotSpot 的 Block Offset Table），扫描脏卡页时从这个对象开始逐个遍历。
+ * 老年代只通过指针碰撞分配，分配时调用 {@link #recordObject(int, int)} 即可维护。
+ * </p>
+ */
+public class MiniCardTable {
+    public static final int CARD_SHIFT = 9;
+    public static final int CARD_SIZE = 1 << CARD_SHIFT;
+
+    private static final byte CLEAN = 0;
+    private static final byte DIRTY = 1;
+
+    private final MiniVirtualMachineMemory.MiniHeap space;
+    private final byte[] cards;
+    private final int[] blockStarts;
+
+    public MiniCardTable(MiniVirtualMachineMemory.MiniHeap space) {
+        this.space = space;
+        int count = (space.getReserved() + CARD_SIZE - 1) >>> CARD_SHIFT;
+        this.cards = new byte[count];
+        this.blockStarts = new int[count];
+    }
+
+    /**
+     * 写屏障：地址位于老年代时把所在卡页标记为脏
+     */
+    public void dirty(int address) {
+        if (space.contains(address)) {
+            cards[cardOf(address)] = DIRTY;
+        }
+    }
+
+    public boolean isDirty(int card) {
+        return cards[card] == DIRTY;
+    }
+
+    /**
+     * 取出并清除脏标记
+     *
+     * @return 清除前是否为脏
+     */
+    public boolean clearCard(int card) {
+        if (cards[card] == CLEAN) return false;
+        cards[card] = CLEAN;
+        return true;
+    }
+
+    /**
+     * 记录老年代中新分配的对象 [address, address + size)：起始位置落在其中的卡页都由这个对象覆盖
+     */
+    public void recordObject(int address, int size) {
+        int offset = address - space.getBase();
+        int last = (offset + size - 1) >>> CARD_SHIFT;
+        for (int card = (offset + CARD_SIZE - 1) >>> CARD_SHIFT; card <= last; card++) {
+            blockStarts[card] = address;
+        }
+    }
+
+    /**
+     * 覆盖卡页起始位置的对象地址，从它开始可以遍历该卡页中的所有对象
+     */
+    public int blockStart(int card) {
+        return blockStarts[card];
+    }
+
+    /**
+     * 整理老年代之后重新记录，先全部清空
+     */
+    public void clear() {
+        Arrays.fill(cards, CLEAN);
+        Arrays.fill(blockStarts, 0);
+    }
+
+    public int cardOf(int address) {
+        return (address - space.getBase()) >>> CARD_SHIFT;
+    }
+
+    public int cardStart(int card) {
+        return space.getBase() + (card << CARD_SHIFT);
+    }
+
+    public int getCardCount() {
+        return cards.length;
+    }
+}
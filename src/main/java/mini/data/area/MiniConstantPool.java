@@ -1,69 +1,298 @@
 package mini.data.area;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * JDK 1.7 及以下在【方法区】中存储类的常量池
  * JDK 1.8 及以上在【本地内存】->【元空间】中存储类的常量池
  * 常量池
  * https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-4.html#jvms-4.4
+ * <p>
+ * 每一项按 tag 分开存放：
+ * 1. int、float 以及 Class、String 等只有一个索引的项存放在 ints 中，long、double 存放在 longs 中；
+ * 2. Fieldref、NameAndType 等符号引用存放在 entries 中，符号引用是只保存索引的小 record；
+ *    Utf8 不在读取时解码：ints 中保存它在类文件中的偏移，第一次读取时才解码并缓存到 entries 中，大部分 Utf8（行号表、源文件名等属性的名称）永远不会被解码；
+ * 3. resolved 为每一项的解析缓存，符号引用第一次被使用时解析为具体的类、字段、方法并保存在这里，之后直接复用；
+ *    多个线程可能同时解析同一项，先写入的结果生效，其他线程改用这个结果。
+ * </p>
  */
 public class MiniConstantPool {
-    private final Object[] constantPool;
+    public static final byte CONSTANT_Utf8 = 1;
+    public static final byte CONSTANT_Integer = 3;
+    public static final byte CONSTANT_Float = 4;
+    public static final byte CONSTANT_Long = 5;
+    public static final byte CONSTANT_Double = 6;
+    public static final byte CONSTANT_Class = 7;
+    public static final byte CONSTANT_String = 8;
+    public static final byte CONSTANT_Fieldref = 9;
+    public static final byte CONSTANT_Methodref = 10;
+    public static final byte CONSTANT_InterfaceMethodref = 11;
+    public static final byte CONSTANT_NameAndType = 12;
+    public static final byte CONSTANT_MethodHandle = 15;
+    public static final byte CONSTANT_MethodType = 16;
+    public static final byte CONSTANT_Dynamic = 17;
+    public static final byte CONSTANT_InvokeDynamic = 18;
+    public static final byte CONSTANT_Module = 19;
+    public static final byte CONSTANT_Package = 20;
 
-    public MiniConstantPool(Object[] constantPool) {
-        this.constantPool = constantPool;
+    private static final VarHandle RESOLVED = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final byte[] tags;
+    private final int[] ints;
+    private final long[] longs;
+    private final Object[] entries;
+    private final Object[] resolved;
+    /**
+     * 类文件的内容（可能是映射到内存的文件），Utf8 按偏移从这里解码；只使用绝对位置读取，多个线程可以同时读
+     */
+    private final ByteBuffer classData;
+
+    public MiniConstantPool(int constantPoolCount) {
+        this(constantPoolCount, null);
+    }
+
+    private MiniConstantPool(int constantPoolCount, ByteBuffer classData) {
+        this.classData = classData;
+        this.tags = new byte[constantPoolCount];
+        this.ints = new int[constantPoolCount];
+        this.longs = new long[constantPoolCount];
+        this.entries = new Object[constantPoolCount];
+        this.resolved = new Object[constantPoolCount];
     }
 
-    public static MiniConstantPool read(DataInputStream input) throws IOException {
-        int constantPoolCount = input.readUnsignedShort();
-        MiniConstantPool miniConstantPool = new MiniConstantPool(new Object[constantPoolCount]);
+    /**
+     * 从 input 的当前位置读取常量池，读取后 input 的位置移到常量池之后；
+     * 常量池保留对 input 内容的引用，Utf8 只记录偏移
+     */
+    public static MiniConstantPool read(ByteBuffer input) throws IOException {
+        int constantPoolCount = Short.toUnsignedInt(input.getShort());
+        MiniConstantPool pool = new MiniConstantPool(constantPoolCount, input);
 
         for (int i = 1; i < constantPoolCount; i++) {
-            int tag = input.readUnsignedByte();
+            int tag = Byte.toUnsignedInt(input.get());
+            pool.tags[i] = (byte) tag;
             switch (tag) {
-                case 9: // CONSTANT_Fieldref
-                case 10: // CONSTANT_Methodref
-                case 12: // CONSTANT_NameAndType
-                case 18: // CONSTANT_InvokeDynamic
-                    miniConstantPool.constantPool[i] = input.readUnsignedShort() + ":" + input.readUnsignedShort();
+                case CONSTANT_Fieldref:
+                case CONSTANT_Methodref:
+                case CONSTANT_InterfaceMethodref:
+                    pool.entries[i] = new MemberRef(readUnsignedShort(input), readUnsignedShort(input));
+                    break;
+                case CONSTANT_NameAndType:
+                    pool.entries[i] = new NameAndType(readUnsignedShort(input), readUnsignedShort(input));
+                    break;
+                case CONSTANT_Dynamic:
+                case CONSTANT_InvokeDynamic:
+                    pool.entries[i] = new DynamicRef(readUnsignedShort(input), readUnsignedShort(input));
+                    break;
+                case CONSTANT_MethodHandle:
+                    pool.entries[i] = new MethodHandleRef(Byte.toUnsignedInt(input.get()), readUnsignedShort(input));
                     break;
-                case 7: // CONSTANT_Class
-                case 8: // CONSTANT_String
-                    miniConstantPool.constantPool[i] = input.readUnsignedShort();
+                case CONSTANT_Class:
+                case CONSTANT_String:
+                case CONSTANT_MethodType:
+                case CONSTANT_Module:
+                case CONSTANT_Package:
+                    pool.ints[i] = readUnsignedShort(input);
                     break;
-                case 1: // CONSTANT_Utf8
-                    miniConstantPool.constantPool[i] = input.readUTF();
+                case CONSTANT_Utf8:
+                    // 只记录长度所在的偏移，跳过内容
+                    pool.ints[i] = input.position();
+                    input.position(input.position() + 2 + readUnsignedShort(input));
                     break;
-                case 15: // CONSTANT_MethodHandle
-                    miniConstantPool.constantPool[i] = input.readUnsignedByte() + ":" + input.readUnsignedShort();
+                case CONSTANT_Integer:
+                case CONSTANT_Float:
+                    pool.ints[i] = input.getInt();
                     break;
-                case 3: // CONSTANT_Integer
-                    miniConstantPool.constantPool[i] = input.readInt();
+                case CONSTANT_Long:
+                case CONSTANT_Double:
+                    pool.longs[i] = input.getLong();
+                    // long、double 占用两项，下一项不可用
+                    i++;
                     break;
                 default:
                     throw new IOException("Invalid constant pool tag: " + tag);
             }
         }
 
-        return miniConstantPool;
+        return pool;
+    }
+
+    private static int readUnsignedShort(ByteBuffer input) {
+        return Short.toUnsignedInt(input.getShort());
+    }
+
+    public int size() {
+        return tags.length;
+    }
+
+    public byte getTag(int index) {
+        return tags[index];
+    }
+
+    public int getInt(int index) {
+        return ints[index];
+    }
+
+    public float getFloat(int index) {
+        return Float.intBitsToFloat(ints[index]);
+    }
+
+    public long getLong(int index) {
+        return longs[index];
+    }
+
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(longs[index]);
+    }
+
+    /**
+     * Utf8 项的内容，第一次读取时解码
+     */
+    public String getUtf8(int index) {
+        Object entry = entries[index];
+        if (entry == null) {
+            // String 的字段都是 final 的，多个线程同时解码时各自写入内容相同的完整对象，不需要同步
+            entries[index] = entry = decodeUtf8(ints[index]);
+        }
+        return (String) entry;
+    }
+
+    /**
+     * Utf8 项的内容是否等于 value（只含 ASCII 字符），直接比较字节，不解码，用于按名称查找属性
+     */
+    public boolean isUtf8(int index, String value) {
+        Object entry = entries[index];
+        if (entry != null) return value.equals(entry);
+
+        int offset = ints[index];
+        int length = Short.toUnsignedInt(classData.getShort(offset));
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (classData.get(offset + 2 + i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 解码 offset 处的 Utf8：全部是 ASCII 时直接按 Latin-1 构造字符串，否则按 class 文件使用的 modified UTF-8 解码
+     */
+    private String decodeUtf8(int offset) {
+        int length = Short.toUnsignedInt(classData.getShort(offset));
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = classData.get(offset + 2 + i) > 0;
+        }
+
+        if (ascii) {
+            if (classData.hasArray()) {
+                return new String(classData.array(), classData.arrayOffset() + offset + 2, length, StandardCharsets.ISO_8859_1);
+            }
+            byte[] bytes = new byte[length];
+            classData.get(offset + 2, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        // 连同两个字节的长度一起交给 readUTF
+        byte[] bytes = new byte[length + 2];
+        classData.get(offset, bytes);
+        try {
+            return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed CONSTANT_Utf8 at offset " + offset, e);
+        }
+    }
+
+    /**
+     * CONSTANT_Class 项的类名（使用 / 分隔）
+     */
+    public String getClassName(int index) {
+        return getUtf8(ints[index]);
+    }
+
+    /**
+     * CONSTANT_String 项的字符串值
+     */
+    public String getString(int index) {
+        return getUtf8(ints[index]);
+    }
+
+    public MemberRef getMemberRef(int index) {
+        return (MemberRef) entries[index];
     }
 
+    public NameAndType getNameAndType(int index) {
+        return (NameAndType) entries[index];
+    }
+
+    public DynamicRef getDynamicRef(int index) {
+        return (DynamicRef) entries[index];
+    }
+
+    /**
+     * 按 tag 返回装箱后的常量，主要用于调试输出：Class、String 等返回其索引，符号引用返回 record
+     */
     public Object getConstant(int index) {
-        return constantPool[index];
+        return switch (tags[index]) {
+            case CONSTANT_Integer -> ints[index];
+            case CONSTANT_Float -> getFloat(index);
+            case CONSTANT_Long -> longs[index];
+            case CONSTANT_Double -> getDouble(index);
+            case CONSTANT_Class, CONSTANT_String, CONSTANT_MethodType, CONSTANT_Module, CONSTANT_Package -> ints[index];
+            case CONSTANT_Utf8 -> getUtf8(index);
+            default -> entries[index];
+        };
     }
 
-    public void setConstant(int index, Object value) {
-        constantPool[index] = value;
+    /**
+     * 解析缓存，没有解析过时为 null
+     */
+    public Object getResolved(int index) {
+        return RESOLVED.getAcquire(resolved, index);
+    }
+
+    /**
+     * 写入解析结果，已经被其他线程写入时保留原来的结果
+     *
+     * @return 最终生效的解析结果
+     */
+    public Object setResolved(int index, Object value) {
+        Object witness = RESOLVED.compareAndExchangeRelease(resolved, index, null, value);
+        return witness == null ? value : witness;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < constantPool.length; i++) {
-            sb.append("constant pool #").append(i).append(": ").append(constantPool[i]).append("\n");
+        for (int i = 1; i < tags.length; i++) {
+            if (tags[i] == 0) continue;
+            sb.append("constant pool #").append(i).append(": ").append(getConstant(i)).append("\n");
         }
         return sb.toString();
     }
+
+    /**
+     * CONSTANT_Fieldref、CONSTANT_Methodref、CONSTANT_InterfaceMethodref
+     */
+    public record MemberRef(int classIndex, int nameAndTypeIndex) {
+    }
+
+    public record NameAndType(int nameIndex, int descriptorIndex) {
+    }
+
+    /**
+     * CONSTANT_Dynamic、CONSTANT_InvokeDynamic
+     *
+     * @param bootstrapMethodIndex BootstrapMethods 属性中引导方法的下标
+     */
+    public record DynamicRef(int bootstrapMethodIndex, int nameAndTypeIndex) {
+    }
+
+    public record MethodHandleRef(int referenceKind, int referenceIndex) {
+    }
 }
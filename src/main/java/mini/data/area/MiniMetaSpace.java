@@ -2,18 +2,130 @@ package mini.data.area;
 
 import mini.cl.MiniClass;
 import mini.cl.loader.MiniApplicationClassLoader;
+import mini.cl.loader.MiniClassLoader;
 import mini.cl.loader.MiniExtensionClassLoader;
+import mini.thread.MiniSafepoint;
+import mini.thread.MiniThread;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
 
 /**
  * 元空间
  * 这里模拟了 JDK 1.8 及以上在【本地内存】中的【元空间】
+ * <p>
+ * 所有线程共享，其中的表都可以被多个线程同时读写：类缓存、常量池、字符串常量池使用 ConcurrentHashMap，
+ * 类缓存中同一个类只有一个线程定义，其它线程等待它的结果；类表只在分配类 id 时加锁，读取时不加锁。
+ * </p>
  */
 public class MiniMetaSpace {
-    public final Map<String, MiniClass> CLASS_CACHE = new HashMap<>();
-    private final Map<MiniClass, MiniConstantPool> CONSTANT_POOLS = new HashMap<>();
+    /**
+     * 类缓存，key 为 (定义类的加载器, 类名)：JVM 判定两个类是否相同时，不仅要类名相同，还要由同一个类加载器实例定义。
+     * value 为正在定义或已经定义好的类，同一个类只定义一次
+     */
+    private final Map<ClassKey, LoadingClass> CLASS_CACHE = new ConcurrentHashMap<>();
+    private final Map<MiniClass, MiniConstantPool> CONSTANT_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * @param loader    定义类的加载器，引导类加载器为 null
+     * @param className 类的全限定名（使用 / 分隔）
+     */
+    private record ClassKey(MiniClassLoader loader, String className) {
+    }
+
+    /**
+     * 定义一个类：加载、链接、初始化
+     */
+    @FunctionalInterface
+    public interface ClassDefiner {
+        /**
+         * @param created 类对象创建后（初始化之前）调用，此后定义过程中对这个类的重入请求（如 &lt;clinit&gt; 中引用自己）直接得到它
+         */
+        MiniClass define(Consumer<MiniClass> created) throws IOException;
+    }
+
+    /**
+     * 正在定义或已经定义好的类，定义类的线程完成后，同时请求这个类的其它线程得到同一个结果
+     */
+    private static final class LoadingClass extends CompletableFuture<MiniClass> {
+        private final Thread owner = Thread.currentThread();
+        private volatile MiniClass created;
+    }
+
+    /**
+     * 已经由 loader 定义好的类，没有时返回 null，不会等待正在定义的类
+     */
+    public MiniClass findLoadedClass(MiniClassLoader loader, String className) {
+        LoadingClass loading = CLASS_CACHE.get(new ClassKey(loader, className));
+        return loading != null && loading.isDone() && !loading.isCompletedExceptionally() ? loading.join() : null;
+    }
+
+    /**
+     * 由 loader 定义类，同一个 (loader, className) 只定义一次：
+     * 第一个请求的线程执行 definer，同时请求的其它线程等待它的结果；加载不同的类互不影响，可以并行
+     * <p>
+     * 定义失败时移除这一项，之后的请求重新定义
+     * </p>
+     *
+     * @param loader 定义类的加载器，引导类加载器为 null
+     */
+    public MiniClass defineClass(MiniClassLoader loader, String className, ClassDefiner definer) throws IOException {
+        ClassKey key = new ClassKey(loader, className);
+        LoadingClass loading = CLASS_CACHE.get(key);
+        if (loading == null) {
+            LoadingClass created = new LoadingClass();
+            loading = CLASS_CACHE.putIfAbsent(key, created);
+            if (loading == null) {
+                return define(key, created, definer);
+            }
+        }
+        return await(loading, className);
+    }
+
+    private MiniClass define(ClassKey key, LoadingClass loading, ClassDefiner definer) throws IOException {
+        try {
+            MiniClass clazz = definer.define(created -> loading.created = created);
+            loading.complete(clazz);
+            return clazz;
+        } catch (Throwable e) {
+            CLASS_CACHE.remove(key, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static MiniClass await(LoadingClass loading, String className) throws IOException {
+        if (!loading.isDone() && loading.owner == Thread.currentThread()) {
+            // 定义过程中的重入：类对象已经创建时直接使用（与 JVM 初始化过程中的递归请求相同），否则是循环继承
+            MiniClass created = loading.created;
+            if (created != null) return created;
+            throw new ClassCircularityError(className);
+        }
+
+        // 等待期间不会修改栈和堆，安全点不需要等它，否则定义类的线程触发垃圾回收时会互相等待
+        MiniThread thread = MiniThread.current();
+        boolean left = MiniSafepoint.leave(thread);
+        try {
+            return loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + className, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ex) throw ex;
+            if (cause instanceof RuntimeException ex) throw ex;
+            if (cause instanceof Error ex) throw ex;
+            throw new IOException(cause);
+        } finally {
+            if (left) MiniSafepoint.enter(thread);
+        }
+    }
 
     public MiniConstantPool getConstantPool(MiniClass clazz) {
         return CONSTANT_POOLS.get(clazz);
@@ -23,6 +135,70 @@ public class MiniMetaSpace {
         CONSTANT_POOLS.put(clazz, pool);
     }
 
+    /**
+     * 类表，下标即类 id，对象头中保存类 id，通过它找到对象所属的类
+     */
+    private volatile MiniClass[] classTable = new MiniClass[64];
+    private volatile int nextClassId = MiniObjectLayout.FIRST_CLASS_ID;
+
+    /**
+     * 字符串常量池：字符串内容 -> 堆中 char 数组的地址，同样内容的 ldc 得到同一个对象
+     */
+    private final Map<String, Integer> STRING_TABLE = new ConcurrentHashMap<>();
+
+    /**
+     * 为类分配 id，准备阶段调用
+     */
+    public synchronized int registerClass(MiniClass clazz) {
+        int classId = nextClassId;
+        MiniClass[] table = classTable;
+        if (classId == table.length) {
+            table = Arrays.copyOf(table, classId * 2);
+        }
+        table[classId] = clazz;
+        // 先写入类再发布新的数组和 id，不加锁的读取方看到 id 时一定能看到对应的类
+        classTable = table;
+        nextClassId = classId + 1;
+        return classId;
+    }
+
+    public MiniClass getClass(int classId) {
+        MiniClass[] table = classTable;
+        return classId < table.length ? table[classId] : null;
+    }
+
+    /**
+     * 遍历所有已分配 id 的类，垃圾回收时从它们的静态变量中查找根对象
+     */
+    public void forEachClass(Consumer<MiniClass> action) {
+        int end = nextClassId;
+        MiniClass[] table = classTable;
+        for (int classId = MiniObjectLayout.FIRST_CLASS_ID; classId < end; classId++) {
+            action.accept(table[classId]);
+        }
+    }
+
+    /**
+     * 垃圾回收移动对象后，更新字符串常量池中的地址
+     */
+    public void updateStringReferences(IntUnaryOperator forward) {
+        STRING_TABLE.replaceAll((value, address) -> forward.applyAsInt(address));
+    }
+
+    /**
+     * 字符串常量对应的堆对象，第一次用到时在堆中创建
+     */
+    public int internString(String value) {
+        Integer address = STRING_TABLE.get(value);
+        if (address == null) {
+            // 分配可能触发垃圾回收，而回收会更新这张表，所以不能放在 computeIfAbsent 中；两个线程同时创建时以先放入的为准
+            int created = MiniObjectLayout.newCharArray(value);
+            address = STRING_TABLE.putIfAbsent(value, created);
+            if (address == null) address = created;
+        }
+        return address;
+    }
+
     public final MiniExtensionClassLoader EXT_CLASS_LOADER = new MiniExtensionClassLoader();
     public final MiniApplicationClassLoader APP_CLASS_LOADER = new MiniApplicationClassLoader();
 }
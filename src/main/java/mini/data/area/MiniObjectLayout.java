@@ -0,0 +1,198 @@
+package mini.data.area;
+
+import mini.cl.MiniClass;
+
+/**
+ * 对象在堆中的二进制布局
+ * <pre>
+ *   0        8          12        16
+ *   | 标记字 | 类 id    | 长度     | 字段 ...（按 8、4、2、1 字节分组排列） | 对齐填充 |
+ * </pre>
+ * <ul>
+ *     <li>标记字（Mark Word）：锁状态、GC 分代年龄等，新对象为无锁状态 {@link #MARK_UNLOCKED}</li>
+ *     <li>类 id：相当于 Klass Pointer，在元空间的类表中找到对象所属的类</li>
+ *     <li>长度：数组的元素个数，填充对象为其总字节数，普通对象为 0</li>
+ * </ul>
+ * 字段偏移在类准备阶段由 {@link MiniClass} 一次算好（包括从父类继承的字段），对象大小按 8 字节对齐。
+ * 引用类型的字段保存对象地址，占 4 字节。
+ */
+public final class MiniObjectLayout {
+    public static final int MARK_OFFSET = 0;
+    public static final int CLASS_ID_OFFSET = 8;
+    public static final int LENGTH_OFFSET = 12;
+    public static final int HEADER_SIZE = 16;
+    public static final int ALIGNMENT = 8;
+    public static final int REFERENCE_SIZE = 4;
+
+    /**
+     * 标记字的格式与 HotSpot 类似：最低两位为锁状态，01 为无锁；第 3 ~ 6 位为 GC 分代年龄（最大 15）；
+     * 对象被垃圾回收复制后，原对象的锁状态位置为 11，高 32 位保存新地址（转发指针）
+     */
+    public static final long MARK_UNLOCKED = 1L;
+    public static final long MARK_LOCK_MASK = 3L;
+    public static final long MARK_FORWARDED = 3L;
+    public static final int MARK_AGE_SHIFT = 3;
+    public static final int MARK_AGE_MASK = 0xF;
+    public static final int MAX_AGE = MARK_AGE_MASK;
+
+    /**
+     * 预留的类 id：0 表示无效，1 为填充对象，2 为 char 数组（字符串常量使用），普通类从 {@link #FIRST_CLASS_ID} 开始分配
+     */
+    public static final int FILLER_CLASS_ID = 1;
+    public static final int CHAR_ARRAY_CLASS_ID = 2;
+    public static final int FIRST_CLASS_ID = 16;
+
+    private static final int[] NO_REFERENCES = new int[0];
+
+    private MiniObjectLayout() {
+    }
+
+    public static int align(int size, int alignment) {
+        return (size + alignment - 1) & -alignment;
+    }
+
+    /**
+     * 某个类型的字段占用的字节数，eg: J -> 8、I -> 4、Ljava/lang/String; -> 4、Z -> 1
+     */
+    public static int fieldSize(char type) {
+        return switch (type) {
+            case 'J', 'D' -> 8;
+            case 'S', 'C' -> 2;
+            case 'B', 'Z' -> 1;
+            // I、F 以及引用类型
+            default -> 4;
+        };
+    }
+
+    /**
+     * 在 EDEN 中分配一个对象：内存清零后写入对象头
+     *
+     * @param tlab   当前线程的 TLAB，为 null 时直接在 EDEN 中分配
+     * @param length 数组的元素个数，普通对象为 0
+     * @return 对象地址
+     */
+    public static int allocate(MiniTlab tlab, int size, int classId, int length) {
+        return allocate(MiniVirtualMachineMemory.HEAP_AREA, tlab, size, classId, length);
+    }
+
+    /**
+     * 在指定堆的 EDEN 中分配一个对象：内存清零后写入对象头
+     */
+    public static int allocate(MiniVirtualMachineMemory.MiniHeapArea heap, MiniTlab tlab, int size, int classId, int length) {
+        int address = heap.allocate(tlab, size);
+        return initialize(heap.YOUNG_GEN.EDEN, address, size, classId, length);
+    }
+
+    /**
+     * 把 space 中已经分配的 [address, address + size) 初始化为一个对象：内存清零后写入对象头
+     *
+     * @return 对象地址
+     */
+    public static int initialize(MiniVirtualMachineMemory.MiniHeap space, int address, int size, int classId, int length) {
+        space.clear(address, size);
+        space.putLong(address + MARK_OFFSET, MARK_UNLOCKED);
+        space.putInt(address + CLASS_ID_OFFSET, classId);
+        space.putInt(address + LENGTH_OFFSET, length);
+        return address;
+    }
+
+    /**
+     * 将 [address, address + size) 写成一个填充对象，size 不小于对象头大小
+     */
+    public static void fill(MiniVirtualMachineMemory.MiniHeap heap, int address, int size) {
+        heap.putLong(address + MARK_OFFSET, MARK_UNLOCKED);
+        heap.putInt(address + CLASS_ID_OFFSET, FILLER_CLASS_ID);
+        heap.putInt(address + LENGTH_OFFSET, size);
+    }
+
+    public static int getAge(long mark) {
+        return (int) (mark >>> MARK_AGE_SHIFT) & MARK_AGE_MASK;
+    }
+
+    public static long withAge(long mark, int age) {
+        return (mark & ~((long) MARK_AGE_MASK << MARK_AGE_SHIFT)) | ((long) Math.min(age, MAX_AGE) << MARK_AGE_SHIFT);
+    }
+
+    public static boolean isForwarded(long mark) {
+        return (mark & MARK_LOCK_MASK) == MARK_FORWARDED;
+    }
+
+    public static long forwardingMark(int address) {
+        return ((long) address << 32) | MARK_FORWARDED;
+    }
+
+    public static int getForwardee(long mark) {
+        return (int) (mark >>> 32);
+    }
+
+    public static int getClassId(int address) {
+        return getClassId(MiniVirtualMachineMemory.HEAP_AREA, address);
+    }
+
+    public static int getClassId(MiniVirtualMachineMemory.MiniHeapArea heap, int address) {
+        return heap.getInt(address + CLASS_ID_OFFSET);
+    }
+
+    public static int getLength(int address) {
+        return MiniVirtualMachineMemory.HEAP_AREA.getInt(address + LENGTH_OFFSET);
+    }
+
+    /**
+     * 对象实际占用的字节数（含对象头和对齐填充）
+     */
+    public static int sizeOf(int address) {
+        return sizeOf(MiniVirtualMachineMemory.HEAP_AREA, address);
+    }
+
+    public static int sizeOf(MiniVirtualMachineMemory.MiniHeapArea heap, int address) {
+        int classId = getClassId(heap, address);
+        return switch (classId) {
+            case CHAR_ARRAY_CLASS_ID -> align(HEADER_SIZE + heap.getInt(address + LENGTH_OFFSET) * 2, ALIGNMENT);
+            case FILLER_CLASS_ID -> heap.getInt(address + LENGTH_OFFSET);
+            default -> MiniVirtualMachineMemory.METHOD_AREA.getClass(classId).getInstanceSize();
+        };
+    }
+
+    /**
+     * 对象中所有引用类型字段的偏移，char 数组和填充对象没有引用
+     */
+    public static int[] referenceOffsetsOf(int classId) {
+        if (classId < FIRST_CLASS_ID) return NO_REFERENCES;
+        return MiniVirtualMachineMemory.METHOD_AREA.getClass(classId).getReferenceOffsets();
+    }
+
+    /**
+     * 在 EDEN 中创建 char 数组并写入字符串的内容（UTF-16）
+     */
+    public static int newCharArray(String value) {
+        MiniVirtualMachineMemory.MiniHeap heap = MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN;
+        int address = allocate(null, align(HEADER_SIZE + value.length() * 2, ALIGNMENT), CHAR_ARRAY_CLASS_ID, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            heap.putShort(address + HEADER_SIZE + i * 2, (short) value.charAt(i));
+        }
+        return address;
+    }
+
+    /**
+     * 读取 char 数组的内容
+     */
+    public static String readString(int address) {
+        int length = getLength(address);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) MiniVirtualMachineMemory.HEAP_AREA.getShort(address + HEADER_SIZE + i * 2);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 仅用于日志输出：null、"字符串内容" 或 类名@地址
+     */
+    public static String describe(int address) {
+        if (address == 0) return "null";
+        int classId = getClassId(address);
+        if (classId == CHAR_ARRAY_CLASS_ID) return "\"" + readString(address) + "\"";
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.getClass(classId);
+        return (clazz == null ? "#" + classId : clazz.getName()) + "@0x" + Integer.toHexString(address);
+    }
+}
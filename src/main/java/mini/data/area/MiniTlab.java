@@ -0,0 +1,142 @@
+package mini.data.area;
+
+/**
+ * 线程本地分配缓冲区（Thread Local Allocation Buffer）
+ * <p>
+ * 每个线程从 EDEN 中一次性切出一块内存，之后在这块内存里分配对象只需要移动自己的 top 指针，不需要任何同步；
+ * 剩余空间不够时由 {@link MiniVirtualMachineMemory.MiniHeapArea#allocate(MiniTlab, int)} 决定是重新申请（refill）还是直接在 EDEN 中分配。
+ * </p>
+ * <p>
+ * 末尾预留一个对象头大小的空间，退休（retire）时剩余部分总能写成一个填充对象，保证 EDEN 可以按对象逐个遍历。
+ * </p>
+ */
+public class MiniTlab {
+    /**
+     * 默认大小（字节），可通过 -Dmini.tlab.size 指定，相当于 -XX:TLABSize
+     */
+    public static final int DEFAULT_SIZE = Integer.getInteger("mini.tlab.size", 16 * 1024);
+    /**
+     * 剩余空间不超过 desiredSize / REFILL_WASTE_FRACTION 时才丢弃当前缓冲区重新申请，相当于 -XX:TLABRefillWasteFraction
+     */
+    public static final int REFILL_WASTE_FRACTION = 64;
+
+    private final int desiredSize;
+
+    private int start;
+    private int top;
+    /**
+     * 可分配的上限，其后还有 {@link MiniObjectLayout#HEADER_SIZE} 字节的预留空间
+     */
+    private int end;
+
+    /**
+     * 统计信息：申请次数、退休时浪费的字节数、在缓冲区中分配的字节数、缓冲区放不下而直接在 EDEN 中分配的次数
+     */
+    private long refills;
+    private long wastedBytes;
+    private long allocatedBytes;
+    private long slowAllocations;
+    /**
+     * 当前缓冲区中分配的对象个数，换缓冲区时汇总到 EDEN
+     */
+    private int objects;
+
+    public MiniTlab() {
+        this(DEFAULT_SIZE);
+    }
+
+    public MiniTlab(int desiredSize) {
+        this.desiredSize = MiniObjectLayout.align(desiredSize, MiniObjectLayout.ALIGNMENT);
+    }
+
+    /**
+     * 快速路径：在缓冲区中分配
+     *
+     * @return 对象地址，空间不够时返回 0
+     */
+    public int allocate(int size) {
+        int address = top;
+        if (size > end - address) return 0;
+        top = address + size;
+        allocatedBytes += size;
+        objects++;
+        return address;
+    }
+
+    /**
+     * 换上新申请的一块内存 [start, start + size)
+     */
+    void fill(int start, int size) {
+        this.start = start;
+        this.top = start;
+        this.end = start + size - MiniObjectLayout.HEADER_SIZE;
+        this.refills++;
+    }
+
+    /**
+     * 退休：剩余空间写成填充对象，之后缓冲区为空
+     *
+     * @return 浪费的字节数
+     */
+    int retire(MiniVirtualMachineMemory.MiniHeap eden) {
+        if (start == 0) return 0;
+
+        int waste = end + MiniObjectLayout.HEADER_SIZE - top;
+        MiniObjectLayout.fill(eden, top, waste);
+        wastedBytes += waste;
+        start = top = end = 0;
+        return waste;
+    }
+
+    /**
+     * 垃圾回收清空 EDEN 后直接丢弃当前缓冲区，不需要填充
+     */
+    public void discard(MiniVirtualMachineMemory.MiniHeap eden) {
+        eden.recordObjects(takeObjects());
+        start = top = end = 0;
+    }
+
+    /**
+     * 取出当前缓冲区中分配的对象个数并清零
+     */
+    int takeObjects() {
+        int count = objects;
+        objects = 0;
+        return count;
+    }
+
+    void recordSlowAllocation() {
+        slowAllocations++;
+    }
+
+    /**
+     * 剩余空间不超过该值时才值得丢弃
+     */
+    int getRefillWasteLimit() {
+        return desiredSize / REFILL_WASTE_FRACTION;
+    }
+
+    public int getDesiredSize() {
+        return desiredSize;
+    }
+
+    public int getFree() {
+        return end - top;
+    }
+
+    public long getRefills() {
+        return refills;
+    }
+
+    public long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getSlowAllocations() {
+        return slowAllocations;
+    }
+}
@@ -1,23 +1,31 @@
 package mini.data.area;
 
-import cn.hutool.core.thread.ThreadUtil;
-import cn.hutool.core.util.RandomUtil;
 import mini.cl.MiniStackFrame;
 import mini.data.structure.MiniStack;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 模拟内存区域
  */
 public class MiniVirtualMachineMemory {
-    /**
-     * 程序计数器
-     */
-    private static int pc;
     /**
      * 虚拟机栈（线程私有）
-     * - 一个方法对应一个栈帧
+     * - 一个方法对应一个栈帧，程序计数器保存在栈帧中，因此也是线程私有的
+     * - 这里是主线程的栈，其他线程的栈由 {@link mini.thread.MiniThread} 创建
      */
-    public final static MiniStack<MiniStackFrame> VIRTUAL_STACK = new MiniStack<>();
+    public final static MiniVirtualStack VIRTUAL_STACK = new MiniVirtualStack();
     /**
      * 本地方法栈
      * @deprecated 这个是 C 或 C++ 类的本地方法才用到的
@@ -35,71 +43,611 @@ public class MiniVirtualMachineMemory {
      */
     public final static MiniHeapArea HEAP_AREA = new MiniHeapArea();
 
-    public static class MiniHeapArea {
-        public final YoungGen YOUNG_GEN = new YoungGen();
-        public final MiniHeap OLD_GEN = new MiniHeap(10 * 1024 * 1024);
+    /**
+     * 堆区
+     * <p>
+     * 各个空间在同一个地址空间中首尾相接，地址从 {@link #HEAP_BASE} 开始，0 留作 null：
+     * <pre>
+     *   | EDEN | SURVIVOR_0 | SURVIVOR_1 | OLD_GEN |
+     *   ^ HEAP_BASE
+     * </pre>
+     * 引用即对象的地址，按地址范围就能找到对象所在的空间。
+     * </p>
+     * <p>
+     * 各空间的最大大小通过 -Dmini.heap.eden、-Dmini.heap.survivor、-Dmini.heap.old 指定（如 64m、1g），初始大小通过
+     * -Dmini.heap.eden.initial 等指定，默认与最大大小相同。地址空间按最大大小预留，实际占用的内存只有当前大小，
+     * 垃圾回收之后可以在两者之间调整（见 {@link MiniHeap#resize(int)}）。
+     * 指定 -Dmini.heap.offheap=true 时各空间改用堆外内存（{@link Arena} 分配的 {@link MemorySegment}），不再占用宿主的 Java 堆，
+     * 宿主的垃圾回收也不会扫描它们。地址是 32 位的 int，所有空间加起来不能超过 2 GB。
+     * </p>
+     */
+    public static class MiniHeapArea implements AutoCloseable {
+        public static final int HEAP_BASE = 0x10000;
+        public static final int SPACE_SIZE = 10 * 1024 * 1024;
+
+        public final YoungGen YOUNG_GEN;
+        public final MiniHeap OLD_GEN;
+        /**
+         * 老年代的卡表，记录老年代 → 新生代的引用
+         */
+        public final MiniCardTable CARD_TABLE;
+        private final boolean offHeap;
+
+        /**
+         * EDEN 空间耗尽时的处理（如触发一次垃圾回收），没有设置时直接抛出 {@link OutOfMemoryError}
+         */
+        private volatile ExhaustionHandler exhaustionHandler;
+
+        /**
+         * 所有线程的 TLAB 汇总：申请次数、浪费的字节数，以及不经过 TLAB 直接在 EDEN 中分配的次数
+         */
+        private final LongAdder tlabRefills = new LongAdder();
+        private final LongAdder tlabWastedBytes = new LongAdder();
+        private final LongAdder sharedAllocations = new LongAdder();
+
+        /**
+         * 按系统属性创建
+         */
+        public MiniHeapArea() {
+            this(sizeProperty("mini.heap.eden.initial", sizeProperty("mini.heap.eden", SPACE_SIZE)), sizeProperty("mini.heap.eden", SPACE_SIZE),
+                    sizeProperty("mini.heap.survivor.initial", sizeProperty("mini.heap.survivor", SPACE_SIZE)), sizeProperty("mini.heap.survivor", SPACE_SIZE),
+                    sizeProperty("mini.heap.old.initial", sizeProperty("mini.heap.old", SPACE_SIZE)), sizeProperty("mini.heap.old", SPACE_SIZE),
+                    Boolean.getBoolean("mini.heap.offheap"));
+        }
+
+        /**
+         * @param spaceSize 每个空间的大小（字节）
+         */
+        public MiniHeapArea(int spaceSize) {
+            this(spaceSize, spaceSize, spaceSize, false);
+        }
+
+        /**
+         * @param offHeap 是否使用堆外内存
+         */
+        public MiniHeapArea(int edenSize, int survivorSize, int oldSize, boolean offHeap) {
+            this(edenSize, edenSize, survivorSize, survivorSize, oldSize, oldSize, offHeap);
+        }
+
+        /**
+         * 各空间分别指定初始大小和最大大小
+         */
+        public MiniHeapArea(int edenInitial, int edenMax, int survivorInitial, int survivorMax, int oldInitial, int oldMax, boolean offHeap) {
+            long end = (long) HEAP_BASE + edenMax + 2L * survivorMax + oldMax;
+            if (end > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Heap too large: eden %d, survivor %d, old %d", edenMax, survivorMax, oldMax));
+            }
+
+            this.offHeap = offHeap;
+            int base = HEAP_BASE;
+            this.YOUNG_GEN = new YoungGen(
+                    new MiniHeap(base, edenInitial, edenMax, offHeap),
+                    new MiniHeap(base += edenMax, survivorInitial, survivorMax, offHeap),
+                    new MiniHeap(base += survivorMax, survivorInitial, survivorMax, offHeap));
+            this.OLD_GEN = new MiniHeap(base + survivorMax, oldInitial, oldMax, offHeap);
+            this.CARD_TABLE = new MiniCardTable(OLD_GEN);
+        }
+
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+
+        /**
+         * 释放堆外内存，之后不能再访问任何空间
+         */
+        @Override
+        public void close() {
+            YOUNG_GEN.EDEN.close();
+            YOUNG_GEN.SURVIVOR_0.close();
+            YOUNG_GEN.SURVIVOR_1.close();
+            OLD_GEN.close();
+        }
+
+        /**
+         * 读取表示大小的系统属性，支持 k、m、g 后缀，eg: 512k、64m、1g
+         */
+        static int sizeProperty(String key, int defaultValue) {
+            String value = System.getProperty(key);
+            if (value == null || value.isBlank()) return defaultValue;
+
+            value = value.trim().toLowerCase(Locale.ROOT);
+            long unit = switch (value.charAt(value.length() - 1)) {
+                case 'k' -> 1024L;
+                case 'm' -> 1024L * 1024;
+                case 'g' -> 1024L * 1024 * 1024;
+                default -> 1L;
+            };
+            long size = Long.parseLong(unit == 1 ? value : value.substring(0, value.length() - 1)) * unit;
+            if (size <= 0 || size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid size for " + key + ": " + value);
+            }
+            return MiniObjectLayout.align((int) size, MiniObjectLayout.ALIGNMENT);
+        }
+
+        /**
+         * 在 EDEN 中分配对象：先在线程的 TLAB 中分配，不够时再走慢速路径
+         *
+         * @param tlab 当前线程的 TLAB，为 null 时直接在 EDEN 中分配
+         * @return 对象地址
+         * @throws OutOfMemoryError EDEN 耗尽且处理后仍然分配失败
+         */
+        public int allocate(MiniTlab tlab, int size) {
+            if (tlab != null) {
+                int address = tlab.allocate(size);
+                if (address != 0) return address;
+            }
+            return allocateSlow(tlab, size);
+        }
+
+        private int allocateSlow(MiniTlab tlab, int size) {
+            for (int attempt = 0; ; attempt++) {
+                int address = tryAllocateSlow(tlab, size);
+                if (address != 0) return address;
+
+                ExhaustionHandler handler = exhaustionHandler;
+                if (attempt > 0 || handler == null || !handler.onExhausted(YOUNG_GEN.EDEN, size)) {
+                    throw new OutOfMemoryError(String.format("Java heap space: requested %d bytes, eden used %d of %d",
+                            size, YOUNG_GEN.EDEN.getUsed(), YOUNG_GEN.EDEN.getCapacity()));
+                }
+            }
+        }
+
+        private int tryAllocateSlow(MiniTlab tlab, int size) {
+            if (tlab != null) {
+                // 剩余空间很少并且对象能放进一个新的 TLAB 时，丢弃当前 TLAB 重新申请；否则保留它，这一个对象直接在 EDEN 中分配
+                int chunkSize = tlab.getDesiredSize();
+                if (tlab.getFree() <= tlab.getRefillWasteLimit() && size + MiniObjectLayout.HEADER_SIZE <= chunkSize) {
+                    int chunk = YOUNG_GEN.EDEN.allocate(chunkSize);
+                    if (chunk != 0) {
+                        YOUNG_GEN.EDEN.recordObjects(tlab.takeObjects());
+                        int waste = tlab.retire(YOUNG_GEN.EDEN);
+                        tlab.fill(chunk, chunkSize);
+                        tlabRefills.increment();
+                        YOUNG_GEN.EDEN.sampleAllocationRate();
+                        tlabWastedBytes.add(waste);
+                        MiniTrace.record(MiniTraceEvent.TLAB_REFILL, chunk, chunk + chunkSize, waste, 0, null, null, null, null);
+                        return tlab.allocate(size);
+                    }
+                } else {
+                    tlab.recordSlowAllocation();
+                }
+            }
+            sharedAllocations.increment();
+            YOUNG_GEN.EDEN.recordObjects(1);
+            return YOUNG_GEN.EDEN.allocate(size);
+        }
+
+        /**
+         * 线程结束时退休它的 TLAB：剩余空间写成填充对象，分配的对象个数汇总到 EDEN
+         */
+        public void retireTlab(MiniTlab tlab) {
+            YOUNG_GEN.EDEN.recordObjects(tlab.takeObjects());
+            tlabWastedBytes.add(tlab.retire(YOUNG_GEN.EDEN));
+        }
+
+        public void setExhaustionHandler(ExhaustionHandler exhaustionHandler) {
+            this.exhaustionHandler = exhaustionHandler;
+        }
+
+        public long getTlabRefills() {
+            return tlabRefills.sum();
+        }
+
+        public long getTlabWastedBytes() {
+            return tlabWastedBytes.sum();
+        }
+
+        public long getSharedAllocations() {
+            return sharedAllocations.sum();
+        }
+
+        /**
+         * 找到地址所在的空间
+         */
+        public MiniHeap spaceOf(int address) {
+            if (YOUNG_GEN.EDEN.contains(address)) return YOUNG_GEN.EDEN;
+            if (YOUNG_GEN.SURVIVOR_0.contains(address)) return YOUNG_GEN.SURVIVOR_0;
+            if (YOUNG_GEN.SURVIVOR_1.contains(address)) return YOUNG_GEN.SURVIVOR_1;
+            if (OLD_GEN.contains(address)) return OLD_GEN;
+            throw new IllegalArgumentException("Invalid heap address: 0x" + Integer.toHexString(address));
+        }
+
+        public int getInt(int address) {
+            return spaceOf(address).getInt(address);
+        }
+
+        public void putInt(int address, int value) {
+            spaceOf(address).putInt(address, value);
+        }
+
+        /**
+         * 向对象的引用字段写入，之后执行写屏障：字段位于老年代时标记所在的卡页
+         */
+        public void putReference(int address, int value) {
+            putInt(address, value);
+            CARD_TABLE.dirty(address);
+        }
+
+        public long getLong(int address) {
+            return spaceOf(address).getLong(address);
+        }
+
+        public void putLong(int address, long value) {
+            spaceOf(address).putLong(address, value);
+        }
+
+        public long getLongVolatile(int address) {
+            return spaceOf(address).getLongVolatile(address);
+        }
+
+        public boolean compareAndSetLong(int address, long expected, long value) {
+            return spaceOf(address).compareAndSetLong(address, expected, value);
+        }
+
+        public short getShort(int address) {
+            return spaceOf(address).getShort(address);
+        }
+
+        public void putShort(int address, short value) {
+            spaceOf(address).putShort(address, value);
+        }
+
+        public byte getByte(int address) {
+            return spaceOf(address).getByte(address);
+        }
+
+        public void putByte(int address, byte value) {
+            spaceOf(address).putByte(address, value);
+        }
+
+        /**
+         * 复制 [from, from + size) 到 [to, to + size)，两段可以位于不同的空间
+         */
+        public void copy(int from, int to, int size) {
+            MiniHeap source = spaceOf(from);
+            source.copyTo(from, spaceOf(to), to, size);
+        }
+    }
+
+    /**
+     * 空间耗尽时的回调
+     */
+    @FunctionalInterface
+    public interface ExhaustionHandler {
+        /**
+         * @param space 耗尽的空间
+         * @param size  分配失败的大小
+         * @return 是否释放出了空间，为 true 时重试一次分配
+         */
+        boolean onExhausted(MiniHeap space, int size);
     }
 
+    /**
+     * 新生代：SURVIVOR_0、SURVIVOR_1 轮流作为 From（保存上一次回收后存活的对象）和 To（本次回收的复制目标）
+     */
     public static class YoungGen {
-        public final MiniHeap EDEN = new MiniHeap(10 * 1024 * 1024);
-        public final MiniHeap SURVIVOR_0 = new MiniHeap(10 * 1024 * 1024);
-        public final MiniHeap SURVIVOR_1 = new MiniHeap(10 * 1024 * 1024);
+        public final MiniHeap EDEN;
+        public final MiniHeap SURVIVOR_0;
+        public final MiniHeap SURVIVOR_1;
+        private boolean survivorsSwapped;
+
+        YoungGen(MiniHeap eden, MiniHeap survivor0, MiniHeap survivor1) {
+            this.EDEN = eden;
+            this.SURVIVOR_0 = survivor0;
+            this.SURVIVOR_1 = survivor1;
+        }
+
+        public MiniHeap getFrom() {
+            return survivorsSwapped ? SURVIVOR_1 : SURVIVOR_0;
+        }
+
+        public MiniHeap getTo() {
+            return survivorsSwapped ? SURVIVOR_0 : SURVIVOR_1;
+        }
+
+        /**
+         * 回收结束后交换 From 和 To
+         */
+        public void swapSurvivors() {
+            survivorsSwapped = !survivorsSwapped;
+        }
+
+        /**
+         * 新生代中已使用的字节数（To 在回收之外总是空的）
+         */
+        public int getUsed() {
+            return EDEN.getUsed() + getFrom().getUsed();
+        }
     }
 
+    /**
+     * 堆中的一块连续空间
+     * <p>
+     * 对外使用的都是绝对地址（base + 偏移），int、long 等按小端字节序直接读写，不经过字符串转换。
+     * 底层是一个 {@link MemorySegment}：可以包装 Java 堆上的 byte[]，也可以是堆外内存，读写方式完全相同。
+     * 分配采用指针碰撞，多个线程通过 CAS 竞争移动 top 指针，不加锁。
+     * </p>
+     */
     public static class MiniHeap {
-        private int MOCK_POINTER = RandomUtil.randomInt(100000, 999999);
-        private boolean cas = false;
-        private int offset = 0;
-        private final byte[] data;
+        private static final VarHandle TOP;
+        private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+        private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+        private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+        /**
+         * 原子操作要求 8 字节对齐，坐标为 (MemorySegment, long 偏移)
+         */
+        private static final VarHandle ATOMIC_LONG;
+        /**
+         * 分配速率的衰减时间常数：1 秒
+         */
+        private static final long RATE_DECAY_NANOS = 1_000_000_000L;
 
-        public MiniHeap(int size) {
-            this.data = new byte[size];
+        static {
+            try {
+                TOP = MethodHandles.lookup().findVarHandle(MiniHeap.class, "top", int.class);
+                VarHandle handle = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN).varHandle();
+                if (handle.coordinateTypes().size() == 1) {
+                    // JDK 21 的 varHandle() 只有 MemorySegment 一个坐标，先按偏移切片
+                    MethodHandle slice = MethodHandles.lookup().findVirtual(MemorySegment.class, "asSlice",
+                            MethodType.methodType(MemorySegment.class, long.class));
+                    handle = MethodHandles.collectCoordinates(handle, 0, slice);
+                }
+                ATOMIC_LONG = handle;
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
         }
 
+        private final int base;
         /**
-         * 申请内存
-         * @return 内存地址
+         * 预留的地址空间大小，即最大大小
          */
-        public int allocate(int size) {
-            if (cas == false) {
-                cas = true;
-                try {
-                    // 耗时操作
-                    return MOCK_POINTER + offset;
-                } finally {
-                    cas = false;
-                }
-            } else {
-                ThreadUtil.sleep(100);
-                return allocate(size);
+        private final int reserved;
+        private final boolean offHeap;
+        /**
+         * 当前大小，以及对应的内存，只在垃圾回收期间（所有线程都停下时）调整
+         */
+        private volatile int capacity;
+        private MemorySegment segment;
+        /**
+         * 堆外内存的分配器，使用 Java 堆时为 null；调整大小时换一个新的，旧的随之释放
+         */
+        private Arena arena;
+        /**
+         * 下一个可分配位置相对 base 的偏移
+         */
+        private volatile int top;
+        /**
+         * 统计信息：回收时释放的字节数（已分配字节数 = 释放的 + 当前已使用的），以及分配的对象个数
+         */
+        private long releasedBytes;
+        private final LongAdder allocatedObjects = new LongAdder();
+        /**
+         * 分配速率（字节/秒）的指数衰减平均，以及上一次采样时的时间和累计分配字节数；只在 TLAB 重新申请和垃圾回收时采样，读取不改变状态
+         */
+        private volatile double allocationRate;
+        private long rateSampleNanos = System.nanoTime();
+        private long rateSampleBytes;
+
+        public MiniHeap(int base, int size) {
+            this(base, size, size, false);
+        }
+
+        /**
+         * @param offHeap 是否使用堆外内存
+         */
+        public MiniHeap(int base, int initialSize, int reservedSize, boolean offHeap) {
+            if (initialSize < 0 || initialSize > reservedSize) {
+                throw new IllegalArgumentException(String.format("Invalid space size: initial %d, max %d", initialSize, reservedSize));
             }
+            this.base = base;
+            this.reserved = reservedSize;
+            this.offHeap = offHeap;
+            commit(initialSize);
         }
 
-        public void write(int offset, String value) {
-            offset = offset - MOCK_POINTER;
+        /**
+         * 分配 size 字节的内存：Java 堆上使用 long[]（byte[] 只保证 1 字节对齐，无法对标记字做原子操作），
+         * 堆外内存需要在多个线程间共享，使用 {@link Arena#ofShared()}
+         */
+        private void commit(int size) {
+            if (offHeap) {
+                arena = Arena.ofShared();
+                segment = arena.allocate(Math.max(size, 1), MiniObjectLayout.ALIGNMENT).asSlice(0, size);
+            } else {
+                segment = MemorySegment.ofArray(new long[(size + 7) >>> 3]).asSlice(0, size);
+            }
+            capacity = size;
+        }
 
-            for (int i = 0; i < value.length(); i++) {
-                data[offset + i] = (byte) value.charAt(i);
+        /**
+         * 调整当前大小，已分配的内容原样保留；只能在垃圾回收期间调用
+         *
+         * @param size 新的大小，不能小于已使用的部分，也不能超过预留的大小
+         */
+        public void resize(int size) {
+            size = Math.min(MiniObjectLayout.align(size, MiniObjectLayout.ALIGNMENT), reserved);
+            if (size < top) {
+                throw new IllegalArgumentException(String.format("Cannot shrink below used bytes: %d < %d", size, top));
             }
+            if (size == capacity) return;
+
+            MemorySegment oldSegment = segment;
+            Arena oldArena = arena;
+            commit(size);
+            MemorySegment.copy(oldSegment, 0, segment, 0, top);
+            if (oldArena != null) oldArena.close();
         }
 
-        public String read(int offset, int size) {
-            offset = offset - MOCK_POINTER;
+        public void close() {
+            if (arena != null) arena.close();
+        }
 
-            StringBuilder sb = new StringBuilder();
-            for (int i = offset; i < offset + size; i++) {
-                sb.append((char) data[i]);
+        /**
+         * 申请内存（指针碰撞）
+         *
+         * @return 内存地址，空间不够时返回 0，由调用方决定是否触发垃圾回收
+         */
+        public int allocate(int size) {
+            while (true) {
+                int current = top;
+                if (size > capacity - current) return 0;
+                if (TOP.weakCompareAndSet(this, current, current + size)) {
+                    return base + current;
+                }
             }
-            return sb.toString();
         }
 
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            for (byte datum : data) {
-                sb.append((char) datum);
+        /**
+         * 地址是否位于本空间预留的地址范围内
+         */
+        public boolean contains(int address) {
+            return address >= base && address - base < reserved;
+        }
+
+        /**
+         * 整块清空：只退回分配指针，内容在下一次分配时再清零
+         */
+        public void reset() {
+            releasedBytes += top;
+            top = 0;
+        }
+
+        /**
+         * 整理（compact）之后把分配指针移到最后一个存活对象之后
+         */
+        public void setUsed(int used) {
+            if (used < 0 || used > capacity) {
+                throw new IllegalArgumentException("Used bytes out of range: " + used);
             }
-            return sb.toString();
+            releasedBytes += top - used;
+            top = used;
+        }
+
+        public int getBase() {
+            return base;
+        }
+
+        /**
+         * 当前大小（字节）
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * 最大大小（字节）
+         */
+        public int getReserved() {
+            return reserved;
+        }
+
+        /**
+         * 已分配的字节数
+         */
+        public int getUsed() {
+            return top;
+        }
+
+        /**
+         * 累计分配的字节数，EDEN 中按整块 TLAB 计算
+         */
+        public long getAllocatedBytes() {
+            return releasedBytes + top;
+        }
+
+        /**
+         * 累计分配的对象个数：EDEN 由 TLAB 退休时汇总（不含正在使用的 TLAB 中的对象），Survivor 和老年代由垃圾回收复制对象时汇总
+         */
+        public long getAllocatedObjects() {
+            return allocatedObjects.sum();
+        }
+
+        public void recordObjects(long count) {
+            allocatedObjects.add(count);
+        }
+
+        /**
+         * 分配速率（字节/秒），越早的分配权重越小：每过 {@link #RATE_DECAY_NANOS} 权重衰减为原来的 1/e
+         */
+        public double getAllocationRate() {
+            return allocationRate;
+        }
+
+        /**
+         * 用上一次采样以来的平均速率更新分配速率，间隔越长新样本的权重越大
+         */
+        public synchronized void sampleAllocationRate() {
+            long now = System.nanoTime();
+            long allocated = getAllocatedBytes();
+            long elapsed = now - rateSampleNanos;
+            if (elapsed <= 0) return;
+            double rate = (allocated - rateSampleBytes) * 1e9 / elapsed;
+            double weight = -Math.expm1(-(double) elapsed / RATE_DECAY_NANOS);
+            allocationRate += (rate - allocationRate) * weight;
+            rateSampleNanos = now;
+            rateSampleBytes = allocated;
+        }
+
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+
+        public int getInt(int address) {
+            return segment.get(INT, address - base);
+        }
+
+        public void putInt(int address, int value) {
+            segment.set(INT, address - base, value);
+        }
+
+        public long getLong(int address) {
+            return segment.get(LONG, address - base);
+        }
+
+        public void putLong(int address, long value) {
+            segment.set(LONG, address - base, value);
+        }
+
+        /**
+         * 以下两个方法要求地址 8 字节对齐，用于并行回收时多个线程争抢同一个对象的标记字
+         */
+        public long getLongVolatile(int address) {
+            return (long) ATOMIC_LONG.getVolatile(segment, (long) (address - base));
+        }
+
+        public boolean compareAndSetLong(int address, long expected, long value) {
+            return ATOMIC_LONG.compareAndSet(segment, (long) (address - base), expected, value);
+        }
+
+        public short getShort(int address) {
+            return segment.get(SHORT, address - base);
+        }
+
+        public void putShort(int address, short value) {
+            segment.set(SHORT, address - base, value);
+        }
+
+        public byte getByte(int address) {
+            return segment.get(ValueLayout.JAVA_BYTE, address - base);
+        }
+
+        public void putByte(int address, byte value) {
+            segment.set(ValueLayout.JAVA_BYTE, address - base, value);
+        }
+
+        /**
+         * 将 [address, address + size) 清零
+         */
+        public void clear(int address, int size) {
+            segment.asSlice(address - base, size).fill((byte) 0);
+        }
+
+        /**
+         * 整块复制到 target 的 to 处
+         */
+        public void copyTo(int from, MiniHeap target, int to, int size) {
+            MemorySegment.copy(segment, from - base, target.segment, to - target.base, size);
         }
     }
 }
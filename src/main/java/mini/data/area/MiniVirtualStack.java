@@ -0,0 +1,179 @@
+package mini.data.area;
+
+import mini.cl.MiniClass;
+import mini.cl.MiniStackFrame;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 虚拟机栈（线程私有）
+ * <p>
+ * 每个线程预先申请一整块连续的槽位区域，调用方法时像 HotSpot 解释器那样移动栈顶指针切出一个栈帧，
+ * 方法返回时再把栈顶指针退回去：
+ * <pre>
+ *   | 栈帧 0: 局部变量表 | 操作数栈 | 栈帧 1: 局部变量表 | 操作数栈 | ... | 空闲 |
+ *                                                                    ^ top
+ * </pre>
+ * 栈帧对象按调用深度缓存复用，只有第一次到达某个深度时才会创建，之后的调用不再产生任何垃圾。
+ * 栈顶指针本身就是精确的栈使用量，超过容量时抛出 {@link StackOverflowError}。
+ * </p>
+ * <p>
+ * 槽位区域可以从较小的初始大小开始，不够时按倍数扩容到最大容量，扩容后已有的栈帧改为指向新的数组。
+ * 大量轻量线程（见 {@link mini.thread.MiniScheduler}）大多只用到很浅的栈，这样每个线程只占用很少的内存。
+ * </p>
+ */
+public class MiniVirtualStack {
+    /**
+     * 默认的栈容量（槽位数），相当于 -Xss
+     */
+    public static final int DEFAULT_SIZE = 64 * 1024;
+
+    private int[] slots;
+    private boolean[] refs;
+    /**
+     * 最大容量（槽位数），slots 最多扩容到这么大
+     */
+    private final int maxSize;
+    /**
+     * 线程本地分配缓冲区，和线程栈一样属于当前线程
+     */
+    private final MiniTlab tlab;
+    private MiniStackFrame[] frames = new MiniStackFrame[16];
+    /**
+     * 当前调用深度（栈帧数）
+     */
+    private int depth;
+    /**
+     * 栈顶指针，指向下一个可用的槽位
+     */
+    private int top;
+    /**
+     * 历史最大栈使用量（槽位数）
+     */
+    private int maxTop;
+
+    public MiniVirtualStack() {
+        this(DEFAULT_SIZE);
+    }
+
+    public MiniVirtualStack(int size) {
+        this(size, size, MiniTlab.DEFAULT_SIZE);
+    }
+
+    /**
+     * @param initialSize 初始的槽位数
+     * @param maxSize     最大容量（槽位数）
+     * @param tlabSize    TLAB 的大小（字节）
+     */
+    public MiniVirtualStack(int initialSize, int maxSize, int tlabSize) {
+        this.slots = new int[initialSize];
+        this.refs = new boolean[initialSize];
+        this.maxSize = maxSize;
+        this.tlab = new MiniTlab(tlabSize);
+    }
+
+    /**
+     * 入栈：从栈顶切出 maxLocals + maxStack 个槽位作为新栈帧
+     */
+    public MiniStackFrame pushFrame(MiniClass clazz, String methodName, int maxLocals, int maxStack) {
+        int base = top;
+        int end = base + maxLocals + maxStack;
+        if (end > slots.length) {
+            grow(end);
+        }
+
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        MiniStackFrame frame = frames[depth];
+        if (frame == null) {
+            frame = new MiniStackFrame(this);
+            frames[depth] = frame;
+        }
+
+        // 清理上一个栈帧遗留在局部变量表中的引用
+        Arrays.fill(refs, base, base + maxLocals, false);
+        frame.reset(clazz, methodName, slots, refs, base, maxLocals, maxStack);
+
+        depth++;
+        top = end;
+        maxTop = Math.max(maxTop, top);
+        return frame;
+    }
+
+    /**
+     * 扩容到至少 minSize 个槽位，超过最大容量时抛出 {@link StackOverflowError}
+     */
+    private void grow(int minSize) {
+        if (minSize > maxSize) {
+            throw new StackOverflowError(String.format("depth: %d, used: %d, capacity: %d", depth, top, maxSize));
+        }
+        int size = (int) Math.min(Math.max((long) slots.length * 2, minSize), maxSize);
+        slots = Arrays.copyOf(slots, size);
+        refs = Arrays.copyOf(refs, size);
+        for (int i = 0; i < depth; i++) {
+            frames[i].rebind(slots, refs);
+        }
+    }
+
+    /**
+     * 出栈：栈顶指针退回到栈帧的起始位置
+     */
+    public void popFrame() {
+        if (depth == 0) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        top = frames[--depth].getBase();
+    }
+
+    public MiniStackFrame peekFrame() {
+        if (depth == 0) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        return frames[depth - 1];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 当前已使用的槽位数
+     */
+    public int getUsedSlots() {
+        return top;
+    }
+
+    public int getMaxUsedSlots() {
+        return maxTop;
+    }
+
+    /**
+     * 最大容量（槽位数）
+     */
+    public int getCapacity() {
+        return maxSize;
+    }
+
+    /**
+     * 当前已分配的槽位数，不超过 {@link #getCapacity()}
+     */
+    public int getCommittedSlots() {
+        return slots.length;
+    }
+
+    public MiniTlab getTlab() {
+        return tlab;
+    }
+
+    /**
+     * 垃圾回收移动对象后，更新所有栈帧（局部变量表及操作数栈中已使用的部分）中的引用
+     */
+    public void updateReferences(IntUnaryOperator forward) {
+        for (int i = 0; i < depth; i++) {
+            frames[i].getLocalVariableTable().updateReferences(forward);
+            frames[i].getOperandStack().updateReferences(forward);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package mini.data.structure;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 局部变量表
+ * <p>
+ * 按槽位（slot）编号的扁平数组，容量取自 Code 属性中的 max_locals：
+ * - slots：保存 int、float 等基本类型的值（不装箱），以及引用类型的值，即对象在堆中的地址（0 表示 null）
+ * - refs：与 slots 一一对应，标记该槽位保存的是否为引用
+ * long 和 double 占用两个连续的槽位，高 32 位在前（index），低 32 位在后（index + 1）。
+ * </p>
+ * <p>
+ * 与 {@link MiniOperandStack} 一样，运行时它只是线程栈中 [base, base + maxLocals) 这一段区域的视图。
+ * </p>
+ * https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-2.html#jvms-2.6.1
+ */
+public class MiniLocalVariableTable {
+    int[] slots;
+    boolean[] refs;
+    /**
+     * 0 号槽位在 slots 中的下标
+     */
+    int base;
+    private int maxLocals;
+
+    public MiniLocalVariableTable(int maxLocals) {
+        reset(new int[maxLocals], new boolean[maxLocals], 0, maxLocals);
+    }
+
+    /**
+     * 将局部变量表指向 slots/refs 中 [base, base + maxLocals) 这一段区域
+     */
+    public void reset(int[] slots, boolean[] refs, int base, int maxLocals) {
+        this.slots = slots;
+        this.refs = refs;
+        this.base = base;
+        this.maxLocals = maxLocals;
+    }
+
+    /**
+     * 线程栈扩容后改为指向新的数组，位置和内容不变
+     */
+    public void rebind(int[] slots, boolean[] refs) {
+        this.slots = slots;
+        this.refs = refs;
+    }
+
+    public int getInt(int index) {
+        return slots[base + index];
+    }
+
+    public void setInt(int index, int value) {
+        slots[base + index] = value;
+        refs[base + index] = false;
+    }
+
+    public float getFloat(int index) {
+        return Float.intBitsToFloat(getInt(index));
+    }
+
+    public void setFloat(int index, float value) {
+        setInt(index, Float.floatToRawIntBits(value));
+    }
+
+    public long getLong(int index) {
+        return ((long) getInt(index) << 32) | (getInt(index + 1) & 0xFFFFFFFFL);
+    }
+
+    public void setLong(int index, long value) {
+        setInt(index, (int) (value >>> 32));
+        setInt(index + 1, (int) value);
+    }
+
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    public void setDouble(int index, double value) {
+        setLong(index, Double.doubleToRawLongBits(value));
+    }
+
+    public int getRef(int index) {
+        return slots[base + index];
+    }
+
+    public void setRef(int index, int address) {
+        slots[base + index] = address;
+        refs[base + index] = true;
+    }
+
+    /**
+     * 槽位保存的是否为引用
+     */
+    public boolean isRef(int index) {
+        return refs[base + index];
+    }
+
+    public int size() {
+        return maxLocals;
+    }
+
+    /**
+     * 垃圾回收移动对象后，更新局部变量表中所有非 null 的引用
+     */
+    public void updateReferences(IntUnaryOperator forward) {
+        for (int i = base; i < base + maxLocals; i++) {
+            if (refs[i] && slots[i] != 0) {
+                slots[i] = forward.applyAsInt(slots[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package mini.data.structure;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 操作数栈
+ * <p>
+ * 基于预先分配的数组实现，容量取自 Code 属性中的 max_stack，压栈、出栈都不会再分配对象：
+ * - slots：保存 int 等基本类型的值（不装箱），以及引用类型的值，即对象在堆中的地址（0 表示 null）
+ * - refs：与 slots 一一对应，标记该槽位保存的是否为引用，垃圾回收时据此从栈中找出根对象
+ * long 和 double 与局部变量表一样占用两个槽位，高 32 位在下、低 32 位在上。
+ * </p>
+ * <p>
+ * 运行时的操作数栈并不单独持有数组，而是线程栈（{@link mini.data.area.MiniVirtualStack}）中
+ * [base, base + maxStack) 这一段区域的视图，栈帧复用时通过 {@link #reset(int[], boolean[], int, int)} 重新指向。
+ * </p>
+ */
+public class MiniOperandStack {
+    private int[] slots;
+    private boolean[] refs;
+    /**
+     * 栈底在 slots 中的下标
+     */
+    private int base;
+    /**
+     * 栈容量的上界（不含）
+     */
+    private int limit;
+    /**
+     * 栈顶指针，指向下一个可用的槽位
+     */
+    private int top;
+
+    public MiniOperandStack(int maxStack) {
+        reset(new int[maxStack], new boolean[maxStack], 0, maxStack);
+    }
+
+    /**
+     * 将操作数栈指向 slots/refs 中 [base, base + maxStack) 这一段区域，并清空栈
+     */
+    public void reset(int[] slots, boolean[] refs, int base, int maxStack) {
+        this.slots = slots;
+        this.refs = refs;
+        this.base = base;
+        this.limit = base + maxStack;
+        this.top = base;
+    }
+
+    /**
+     * 线程栈扩容后改为指向新的数组，位置和栈中的内容不变
+     */
+    public void rebind(int[] slots, boolean[] refs) {
+        this.slots = slots;
+        this.refs = refs;
+    }
+
+    public void pushInt(int value) {
+        checkOverflow();
+        slots[top] = value;
+        refs[top] = false;
+        top++;
+    }
+
+    public int popInt() {
+        checkUnderflow();
+        return slots[--top];
+    }
+
+    public int peekInt() {
+        checkUnderflow();
+        return slots[top - 1];
+    }
+
+    public void pushFloat(float value) {
+        pushInt(Float.floatToRawIntBits(value));
+    }
+
+    public float popFloat() {
+        return Float.intBitsToFloat(popInt());
+    }
+
+    public void pushLong(long value) {
+        pushInt((int) (value >>> 32));
+        pushInt((int) value);
+    }
+
+    public long popLong() {
+        int low = popInt();
+        int high = popInt();
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    public void pushDouble(double value) {
+        pushLong(Double.doubleToRawLongBits(value));
+    }
+
+    public double popDouble() {
+        return Double.longBitsToDouble(popLong());
+    }
+
+    /**
+     * @param address 对象在堆中的地址，0 表示 null
+     */
+    public void pushRef(int address) {
+        checkOverflow();
+        slots[top] = address;
+        refs[top] = true;
+        top++;
+    }
+
+    public int popRef() {
+        checkUnderflow();
+        return slots[--top];
+    }
+
+    public int peekRef() {
+        checkUnderflow();
+        return slots[top - 1];
+    }
+
+    /**
+     * 复制栈顶槽位（基本类型与引用一并复制）
+     */
+    public void dup() {
+        checkUnderflow();
+        checkOverflow();
+        slots[top] = slots[top - 1];
+        refs[top] = refs[top - 1];
+        top++;
+    }
+
+    /**
+     * 将局部变量表中的槽位原样压入栈（不区分基本类型还是引用），用于 aload 等指令
+     */
+    public void load(MiniLocalVariableTable locals, int index) {
+        checkOverflow();
+        int slot = locals.base + index;
+        slots[top] = locals.slots[slot];
+        refs[top] = locals.refs[slot];
+        top++;
+    }
+
+    /**
+     * 将栈顶槽位原样弹出到局部变量表中，用于 astore 等指令
+     */
+    public void store(MiniLocalVariableTable locals, int index) {
+        checkUnderflow();
+        top--;
+        int slot = locals.base + index;
+        locals.slots[slot] = slots[top];
+        locals.refs[slot] = refs[top];
+    }
+
+    /**
+     * 方法调用时传递参数：将栈顶 count 个槽位按原顺序直接复制到被调用方法局部变量表的 0 ~ count-1 号槽位，并弹出
+     */
+    public void popArguments(MiniLocalVariableTable locals, int count) {
+        if (top - base < count) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        top -= count;
+        System.arraycopy(slots, top, locals.slots, locals.base, count);
+        System.arraycopy(refs, top, locals.refs, locals.base, count);
+    }
+
+    /**
+     * 方法返回时传递返回值：将栈顶 count 个槽位按原顺序移动到调用方的操作数栈
+     */
+    public void moveTo(MiniOperandStack target, int count) {
+        if (top - base < count) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        if (target.top + count > target.limit) {
+            throw new IllegalStateException("Operand stack overflow, max stack: " + (target.limit - target.base));
+        }
+        top -= count;
+        System.arraycopy(slots, top, target.slots, target.top, count);
+        System.arraycopy(refs, top, target.refs, target.top, count);
+        target.top += count;
+    }
+
+    public int size() {
+        return top - base;
+    }
+
+    /**
+     * 垃圾回收移动对象后，更新栈中所有非 null 的引用
+     */
+    public void updateReferences(IntUnaryOperator forward) {
+        for (int i = base; i < top; i++) {
+            if (refs[i] && slots[i] != 0) {
+                slots[i] = forward.applyAsInt(slots[i]);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return top == base;
+    }
+
+    public void clear() {
+        top = base;
+    }
+
+    private void checkOverflow() {
+        if (top == limit) {
+            throw new IllegalStateException("Operand stack overflow, max stack: " + (limit - base));
+        }
+    }
+
+    private void checkUnderflow() {
+        if (top == base) {
+            throw new IllegalStateException("Stack is empty");
+        }
+    }
+}
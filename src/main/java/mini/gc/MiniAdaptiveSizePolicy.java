@@ -0,0 +1,131 @@
+package mini.gc;
+
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
+
+/**
+ * 自适应调整新生代大小（类似 Parallel GC 的 UseAdaptiveSizePolicy）
+ * <p>
+ * 每次 Minor GC 之后按停顿时间、吞吐量两个目标调整 EDEN 的大小：
+ * <ol>
+ *     <li>平均停顿超过 -Dmini.gc.maxPauseMillis（相当于 -XX:MaxGCPauseMillis）时缩小 EDEN，每次回收的存活对象随之减少；</li>
+ *     <li>否则如果回收时间占比超过 1 / (1 + -Dmini.gc.timeRatio)（相当于 -XX:GCTimeRatio）时扩大 EDEN，减少回收次数。</li>
+ * </ol>
+ * Survivor 按平均存活字节数调整，使其占用率在 {@link #TARGET_SURVIVOR_RATIO}% 左右；晋升阈值按最近一次的年龄分布计算：
+ * 从年龄 1 开始累加，超过 Survivor 目标占用量的那个年龄即为新的阈值，避免 Survivor 溢出导致提前晋升。
+ * </p>
+ * 所有调整都在回收之后、EDEN 和 To 为空时进行，Java 堆和堆外内存的空间都可以调整。
+ */
+public class MiniAdaptiveSizePolicy {
+    /**
+     * 是否启用，可通过 -Dmini.gc.adaptiveSizePolicy=false 关闭
+     */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("mini.gc.adaptiveSizePolicy", "true"));
+    public static final int DEFAULT_MAX_PAUSE_MILLIS = Integer.getInteger("mini.gc.maxPauseMillis", 200);
+    public static final int DEFAULT_TIME_RATIO = Integer.getInteger("mini.gc.timeRatio", 99);
+    /**
+     * Survivor 的目标占用率（%），相当于 -XX:TargetSurvivorRatio
+     */
+    public static final int TARGET_SURVIVOR_RATIO = 50;
+
+    /**
+     * 平均值中最近一次的权重
+     */
+    private static final double WEIGHT = 0.25;
+    private static final int GROW_PERCENT = 20;
+    private static final int SHRINK_PERCENT = 10;
+    private static final int MIN_EDEN_SIZE = 64 * 1024;
+    private static final int MIN_SURVIVOR_SIZE = 8 * 1024;
+
+    private final MiniVirtualMachineMemory.MiniHeapArea heap;
+    private final MiniCopyingCollector youngCollector;
+    private final long pauseGoalNanos;
+    private final int timeRatio;
+
+    private double averagePauseNanos;
+    private double averageMutatorNanos;
+    private double averageSurvivedBytes;
+    private long lastCollectionEnd;
+
+    public MiniAdaptiveSizePolicy(MiniVirtualMachineMemory.MiniHeapArea heap, MiniCopyingCollector youngCollector) {
+        this(heap, youngCollector, DEFAULT_MAX_PAUSE_MILLIS * 1_000_000L, DEFAULT_TIME_RATIO);
+    }
+
+    public MiniAdaptiveSizePolicy(MiniVirtualMachineMemory.MiniHeapArea heap, MiniCopyingCollector youngCollector,
+                                  long pauseGoalNanos, int timeRatio) {
+        this.heap = heap;
+        this.youngCollector = youngCollector;
+        this.pauseGoalNanos = pauseGoalNanos;
+        this.timeRatio = timeRatio;
+    }
+
+    /**
+     * Minor GC 结束后调用
+     */
+    public void onMinorCollection(MiniCopyingCollector.Result result) {
+        long now = System.nanoTime();
+        long mutatorNanos = lastCollectionEnd == 0 ? 0 : now - result.pauseNanos() - lastCollectionEnd;
+        lastCollectionEnd = now;
+        adjust(result.pauseNanos(), mutatorNanos, result.youngAfter(), youngCollector.getStats().getTenuringDistribution());
+    }
+
+    /**
+     * @param mutatorNanos  距离上一次回收结束，客户程序运行的时间，第一次回收时为 0
+     * @param survivedBytes 回收后 Survivor 中的字节数
+     * @param ages          下标为年龄，复制到 Survivor 中的字节数
+     */
+    void adjust(long pauseNanos, long mutatorNanos, int survivedBytes, long[] ages) {
+        averagePauseNanos = average(averagePauseNanos, pauseNanos);
+        if (mutatorNanos > 0) averageMutatorNanos = average(averageMutatorNanos, mutatorNanos);
+        averageSurvivedBytes = average(averageSurvivedBytes, survivedBytes);
+
+        // 1. EDEN：先满足停顿时间，再满足吞吐量
+        MiniVirtualMachineMemory.MiniHeap eden = heap.YOUNG_GEN.EDEN;
+        int edenBefore = eden.getCapacity();
+        long edenSize = edenBefore;
+        if (averagePauseNanos > pauseGoalNanos) {
+            edenSize -= edenSize * SHRINK_PERCENT / 100;
+        } else if (averageMutatorNanos > 0 && averagePauseNanos * timeRatio > averageMutatorNanos) {
+            edenSize += edenSize * GROW_PERCENT / 100;
+        }
+        eden.resize(clamp(edenSize, Math.min(MIN_EDEN_SIZE, eden.getReserved()), eden.getReserved()));
+
+        // 2. Survivor：两块大小相同，From 中已有的对象必须放得下
+        MiniVirtualMachineMemory.MiniHeap from = heap.YOUNG_GEN.getFrom();
+        MiniVirtualMachineMemory.MiniHeap to = heap.YOUNG_GEN.getTo();
+        int survivorBefore = to.getCapacity();
+        int survivorSize = clamp((long) (averageSurvivedBytes * 100 / TARGET_SURVIVOR_RATIO),
+                Math.max(Math.min(MIN_SURVIVOR_SIZE, to.getReserved()), from.getUsed()), to.getReserved());
+        from.resize(survivorSize);
+        to.resize(survivorSize);
+
+        // 3. 晋升阈值：存活对象按年龄从小到大累加，超过 Survivor 目标占用量的年龄即为新的阈值
+        long desired = (long) to.getCapacity() * TARGET_SURVIVOR_RATIO / 100;
+        int threshold = MiniObjectLayout.MAX_AGE;
+        long total = 0;
+        for (int age = 1; age < ages.length; age++) {
+            total += ages[age];
+            if (total > desired) {
+                threshold = age;
+                break;
+            }
+        }
+        youngCollector.adjustTenuringThreshold(threshold);
+
+        if (MiniTrace.isEnabled(MiniTraceEvent.GC_RESIZE)) {
+            MiniTrace.record(MiniTraceEvent.GC_RESIZE, edenBefore / 1024, eden.getCapacity() / 1024,
+                    survivorBefore / 1024, to.getCapacity() / 1024,
+                    youngCollector.getTenuringThreshold() + "/" + youngCollector.getMaxTenuringThreshold(), null, null, null);
+        }
+    }
+
+    private static double average(double average, double sample) {
+        return average == 0 ? sample : average * (1 - WEIGHT) + sample * WEIGHT;
+    }
+
+    private static int clamp(long size, int min, int max) {
+        return (int) Math.max(min, Math.min(size, max));
+    }
+}
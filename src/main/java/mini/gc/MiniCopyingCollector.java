@@ -0,0 +1,322 @@
+package mini.gc;
+
+import mini.data.area.MiniCardTable;
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.area.MiniVirtualStack;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 新生代复制回收（Minor GC，并行复制）
+ * <p>
+ * EDEN 和 From 中存活的对象被复制到 To，年龄达到晋升阈值或 To 放不下时复制到老年代；
+ * 复制后原对象的标记字改为转发指针，之后再遇到指向它的引用直接改成新地址。
+ * </p>
+ * <p>
+ * 根对象的各部分以及老年代的各段分给多个工作线程（{@link MiniGcWorkers}）并行扫描，每个线程把自己复制的对象压入本地栈继续处理，
+ * 空闲的线程从其它线程窃取。多个线程可能同时遇到同一个对象：各自先复制一份，再用 CAS 把原对象的标记字改为转发指针，
+ * 失败的线程把自己的副本改成填充对象并使用胜出者的地址，保证每个对象只有一个副本。
+ * </p>
+ * 根对象除了 {@link MiniRootSet} 之外，还包括老年代 → 新生代的引用：只扫描卡表（{@link MiniCardTable}）中脏卡页里的引用字段，
+ * 回收的开销取决于新生代中存活对象的多少，而不是整个堆的大小。扫描后仍然指向新生代的字段（以及晋升对象中指向新生代的字段）重新标记为脏。
+ */
+public class MiniCopyingCollector {
+    /**
+     * 晋升阈值，可通过 -Dmini.gc.tenuringThreshold 指定，相当于 -XX:MaxTenuringThreshold
+     */
+    public static final int DEFAULT_TENURING_THRESHOLD = Integer.getInteger("mini.gc.tenuringThreshold", MiniObjectLayout.MAX_AGE);
+
+    private final MiniVirtualMachineMemory.MiniHeapArea heap;
+    private final MiniRootSet roots;
+    private final MiniGcWorkers workers;
+    private volatile int maxTenuringThreshold = Math.max(0, Math.min(DEFAULT_TENURING_THRESHOLD, MiniObjectLayout.MAX_AGE));
+    /**
+     * 当前使用的晋升阈值，不超过 maxTenuringThreshold，可以由 {@link MiniAdaptiveSizePolicy} 按存活情况调整
+     */
+    private volatile int tenuringThreshold = maxTenuringThreshold;
+
+    private final MiniGcStats stats = new MiniGcStats();
+    private Result lastResult;
+
+    /**
+     * 本次回收涉及的空间，只在 collect 期间有效
+     */
+    private MiniVirtualMachineMemory.MiniHeap eden;
+    private MiniVirtualMachineMemory.MiniHeap from;
+    private MiniVirtualMachineMemory.MiniHeap to;
+    private MiniVirtualMachineMemory.MiniHeap old;
+    private final LongAdder promotedBytes = new LongAdder();
+    private final LongAdder promotedObjects = new LongAdder();
+    private final LongAdder survivorObjects = new LongAdder();
+    /**
+     * 下标为年龄，复制到 To 的字节数
+     */
+    private final AtomicLongArray ageTable = new AtomicLongArray(MiniObjectLayout.MAX_AGE + 1);
+
+    /**
+     * @param stacks 所有线程的线程栈
+     */
+    public MiniCopyingCollector(MiniVirtualMachineMemory.MiniHeapArea heap, MiniMetaSpace metaSpace,
+                                Supplier<? extends Iterable<MiniVirtualStack>> stacks) {
+        this(heap, new MiniRootSet(metaSpace, stacks), MiniGcWorkers.DEFAULT);
+    }
+
+    public MiniCopyingCollector(MiniVirtualMachineMemory.MiniHeapArea heap, MiniRootSet roots, MiniGcWorkers workers) {
+        this.heap = heap;
+        this.roots = roots;
+        this.workers = workers;
+    }
+
+    /**
+     * 作为 {@link MiniVirtualMachineMemory.ExhaustionHandler}：EDEN 耗尽时回收一次
+     *
+     * @return 回收后 EDEN 是否放得下
+     */
+    public boolean onExhausted(MiniVirtualMachineMemory.MiniHeap space, int size) {
+        collect();
+        return size <= heap.YOUNG_GEN.EDEN.getCapacity();
+    }
+
+    /**
+     * 执行一次 Minor GC，调用时所有线程都必须停在安全的位置（目前只有分配对象时才会触发）
+     */
+    public synchronized Result collect() {
+        MiniGcEvent event = new MiniGcEvent();
+        event.begin();
+        long start = System.nanoTime();
+        eden = heap.YOUNG_GEN.EDEN;
+        from = heap.YOUNG_GEN.getFrom();
+        to = heap.YOUNG_GEN.getTo();
+        old = heap.OLD_GEN;
+        promotedBytes.reset();
+        promotedObjects.reset();
+        survivorObjects.reset();
+        for (int age = 0; age < ageTable.length(); age++) {
+            ageTable.set(age, 0);
+        }
+        int youngBefore = heap.YOUNG_GEN.getUsed();
+
+        // 1. 根对象：线程栈、静态变量、字符串常量池各一个任务
+        MiniScanTask.Scanner scanner = this::scanObject;
+        List<MiniScanTask> tasks = new ArrayList<>();
+        for (Consumer<IntUnaryOperator> partition : roots.partitions()) {
+            tasks.add(new MiniScanTask(scanner, task -> partition.accept(address -> forward(address, task))));
+        }
+        // 2. 老年代中的脏卡页：先取出并清除所有脏标记，再分给各个任务；之后晋升进来的对象由复制它的线程处理
+        int oldEnd = old.getBase() + old.getUsed();
+        int[] dirtyCards = takeDirtyCards(oldEnd);
+        int cardsPerTask = Math.max(1, dirtyCards.length / (workers.getParallelism() * 4));
+        for (int i = 0; i < dirtyCards.length; i += cardsPerTask) {
+            int first = i;
+            int last = Math.min(i + cardsPerTask, dirtyCards.length);
+            tasks.add(new MiniScanTask(scanner, task -> {
+                for (int j = first; j < last; j++) {
+                    scanCard(dirtyCards[j], oldEnd, task);
+                }
+            }));
+        }
+        // 3. 并行处理，直到所有线程的本地栈都为空
+        workers.invokeAll(tasks);
+
+        // 4. EDEN 和 From 中剩下的都是垃圾，整块清空；各线程的 TLAB 也随之作废
+        eden.reset();
+        from.reset();
+        heap.YOUNG_GEN.swapSurvivors();
+        for (MiniVirtualStack stack : roots.stacks()) {
+            stack.getTlab().discard(eden);
+        }
+
+        to.recordObjects(survivorObjects.sum());
+        old.recordObjects(promotedObjects.sum());
+        eden.sampleAllocationRate();
+        to.sampleAllocationRate();
+        old.sampleAllocationRate();
+
+        long pauseNanos = System.nanoTime() - start;
+        int promoted = (int) promotedBytes.sum();
+        long[] tenuringDistribution = new long[ageTable.length()];
+        for (int age = 0; age < tenuringDistribution.length; age++) {
+            tenuringDistribution[age] = ageTable.get(age);
+        }
+        stats.record(pauseNanos, promoted, promotedObjects.sum(), tenuringDistribution);
+        long id = stats.getCollections();
+        lastResult = new Result(id, pauseNanos, youngBefore, heap.YOUNG_GEN.getUsed(), promoted, dirtyCards.length);
+        if (MiniTrace.isEnabled(MiniTraceEvent.GC_YOUNG)) {
+            MiniTrace.record(MiniTraceEvent.GC_YOUNG, id, youngBefore / 1024, lastResult.youngAfter() / 1024, promoted / 1024,
+                    String.format("%.3fms", pauseNanos / 1_000_000.0), null, null, null);
+        }
+        event.collector = "Young";
+        event.gcId = id;
+        event.usedBefore = youngBefore;
+        event.usedAfter = lastResult.youngAfter();
+        event.promotedBytes = promoted;
+        event.commit();
+        eden = from = to = old = null;
+        return lastResult;
+    }
+
+    /**
+     * 取出 [老年代起始, oldEnd) 中的所有脏卡页并清除标记，在工作线程开始之前完成，晋升对象重新标记的卡页不会被清除
+     */
+    private int[] takeDirtyCards(int oldEnd) {
+        MiniCardTable cardTable = heap.CARD_TABLE;
+        int cardEnd = old.getUsed() == 0 ? 0 : cardTable.cardOf(oldEnd - 1) + 1;
+        int[] cards = new int[16];
+        int count = 0;
+        for (int card = 0; card < cardEnd; card++) {
+            if (!cardTable.clearCard(card)) continue;
+            if (count == cards.length) cards = Arrays.copyOf(cards, count * 2);
+            cards[count++] = card;
+        }
+        return Arrays.copyOf(cards, count);
+    }
+
+    /**
+     * 处理一个脏卡页中的引用字段；对象可能跨越多个卡页，只处理落在本卡页中的字段
+     */
+    private void scanCard(int card, int oldEnd, MiniScanTask task) {
+        MiniCardTable cardTable = heap.CARD_TABLE;
+        int cardStart = cardTable.cardStart(card);
+        int cardEnd = Math.min(cardStart + MiniCardTable.CARD_SIZE, oldEnd);
+        for (int address = cardTable.blockStart(card); address < cardEnd; address += MiniObjectLayout.sizeOf(heap, address)) {
+            for (int offset : MiniObjectLayout.referenceOffsetsOf(MiniObjectLayout.getClassId(heap, address))) {
+                int field = address + offset;
+                if (field >= cardStart && field < cardEnd) {
+                    scanField(field, task);
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回对象的新地址：不在回收范围内的对象原样返回，已经复制过的返回转发指针，否则复制一份并压入当前任务的本地栈
+     */
+    private int forward(int address, MiniScanTask task) {
+        if (address == 0 || !(eden.contains(address) || from.contains(address))) return address;
+
+        long mark = heap.getLongVolatile(address + MiniObjectLayout.MARK_OFFSET);
+        if (MiniObjectLayout.isForwarded(mark)) return MiniObjectLayout.getForwardee(mark);
+
+        int size = MiniObjectLayout.sizeOf(heap, address);
+        int age = MiniObjectLayout.getAge(mark) + 1;
+        int target = age < tenuringThreshold ? to.allocate(size) : 0;
+        boolean promoted = target == 0;
+        if (promoted) {
+            // 达到晋升阈值，或者 To 已经放不下（提前晋升）
+            target = old.allocate(size);
+            if (target == 0) {
+                throw new OutOfMemoryError("Java heap space: old generation is full during minor GC");
+            }
+            heap.CARD_TABLE.recordObject(target, size);
+        }
+
+        heap.copy(address, target, size);
+        heap.putLong(target + MiniObjectLayout.MARK_OFFSET, MiniObjectLayout.withAge(mark, age));
+        if (!heap.compareAndSetLong(address + MiniObjectLayout.MARK_OFFSET, mark, MiniObjectLayout.forwardingMark(target))) {
+            // 其它线程抢先复制了这个对象，自己的副本作废
+            MiniObjectLayout.fill(heap.spaceOf(target), target, size);
+            return MiniObjectLayout.getForwardee(heap.getLongVolatile(address + MiniObjectLayout.MARK_OFFSET));
+        }
+        if (promoted) {
+            promotedBytes.add(size);
+            promotedObjects.increment();
+        } else {
+            survivorObjects.increment();
+            ageTable.addAndGet(Math.min(age, MiniObjectLayout.MAX_AGE), size);
+        }
+        task.push(target);
+        return target;
+    }
+
+    /**
+     * 更新对象的所有引用字段
+     */
+    private void scanObject(int address, MiniScanTask task) {
+        for (int offset : MiniObjectLayout.referenceOffsetsOf(MiniObjectLayout.getClassId(heap, address))) {
+            scanField(address + offset, task);
+        }
+    }
+
+    /**
+     * 更新一个引用字段，老年代中的字段仍然指向新生代时重新标记卡页
+     */
+    private void scanField(int field, MiniScanTask task) {
+        int reference = heap.getInt(field);
+        if (reference == 0) return;
+
+        int forwarded = forward(reference, task);
+        heap.putInt(field, forwarded);
+        if (to.contains(forwarded)) {
+            heap.CARD_TABLE.dirty(field);
+        }
+    }
+
+    public int getTenuringThreshold() {
+        return tenuringThreshold;
+    }
+
+    /**
+     * 设置晋升阈值的上限，当前阈值同时改为该值
+     */
+    public void setTenuringThreshold(int tenuringThreshold) {
+        if (tenuringThreshold < 0 || tenuringThreshold > MiniObjectLayout.MAX_AGE) {
+            throw new IllegalArgumentException("Tenuring threshold must be between 0 and " + MiniObjectLayout.MAX_AGE);
+        }
+        this.maxTenuringThreshold = tenuringThreshold;
+        this.tenuringThreshold = tenuringThreshold;
+    }
+
+    public int getMaxTenuringThreshold() {
+        return maxTenuringThreshold;
+    }
+
+    /**
+     * 调整当前的晋升阈值，超过上限时取上限
+     */
+    void adjustTenuringThreshold(int tenuringThreshold) {
+        this.tenuringThreshold = Math.max(0, Math.min(tenuringThreshold, maxTenuringThreshold));
+    }
+
+    public long getCollections() {
+        return stats.getCollections();
+    }
+
+    public long getTotalPauseNanos() {
+        return stats.getTotalPauseNanos();
+    }
+
+    public MiniGcStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 最近一次回收的结果，没有回收过时为 null
+     */
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 一次回收的结果
+     *
+     * @param id            第几次回收，从 1 开始
+     * @param pauseNanos    停顿时间
+     * @param youngBefore   回收前新生代（EDEN + From）已使用的字节数
+     * @param youngAfter    回收后新生代（即新的 From）已使用的字节数
+     * @param promotedBytes 晋升到老年代的字节数
+     * @param dirtyCards    扫描的脏卡页数
+     */
+    public record Result(long id, long pauseNanos, int youngBefore, int youngAfter, int promotedBytes, int dirtyCards) {
+    }
+}
@@ -0,0 +1,35 @@
+package mini.gc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 每次垃圾回收提交的 JFR 事件，开启 JFR 录制（如 -XX:StartFlightRecording）后可以在 JMC 中查看
+ */
+@Name("mini.GarbageCollection")
+@Label("Mini GC")
+@Category({"MiniJVM", "GC"})
+@Description("A garbage collection of the mini JVM heap")
+class MiniGcEvent extends Event {
+    @Label("Collector")
+    String collector;
+
+    @Label("GC Id")
+    long gcId;
+
+    @Label("Used Before")
+    @DataAmount
+    long usedBefore;
+
+    @Label("Used After")
+    @DataAmount
+    long usedAfter;
+
+    @Label("Promoted")
+    @DataAmount
+    long promotedBytes;
+}
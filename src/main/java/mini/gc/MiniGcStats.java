@@ -0,0 +1,80 @@
+package mini.gc;
+
+import mini.data.area.MiniObjectLayout;
+
+import java.util.Arrays;
+
+/**
+ * 一个回收器的累计统计：回收次数、停顿时间分布、晋升字节数，以及最近一次 Minor GC 的年龄分布
+ * <p>
+ * 只在回收结束时由回收线程更新，读取方（MBean、监控线程）拿到的是某一时刻的副本。
+ * </p>
+ */
+public class MiniGcStats {
+    /**
+     * 停顿时间直方图各个桶的上限（微秒），最后还有一个不设上限的桶
+     */
+    public static final long[] PAUSE_BUCKET_MICROS = {100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000, 1_000_000};
+
+    private long collections;
+    private long totalPauseNanos;
+    private long lastPauseNanos;
+    private long maxPauseNanos;
+    private long promotedBytes;
+    private long promotedObjects;
+    private final long[] pauseHistogram = new long[PAUSE_BUCKET_MICROS.length + 1];
+    /**
+     * 下标为年龄，值为复制到 Survivor 中该年龄的对象字节数（相当于 -XX:+PrintTenuringDistribution）
+     */
+    private long[] tenuringDistribution = new long[MiniObjectLayout.MAX_AGE + 1];
+
+    synchronized void record(long pauseNanos, long promotedBytes, long promotedObjects, long[] tenuringDistribution) {
+        collections++;
+        totalPauseNanos += pauseNanos;
+        lastPauseNanos = pauseNanos;
+        maxPauseNanos = Math.max(maxPauseNanos, pauseNanos);
+        this.promotedBytes += promotedBytes;
+        this.promotedObjects += promotedObjects;
+
+        int bucket = Arrays.binarySearch(PAUSE_BUCKET_MICROS, pauseNanos / 1000);
+        pauseHistogram[bucket >= 0 ? bucket : -bucket - 1]++;
+        if (tenuringDistribution != null) {
+            this.tenuringDistribution = tenuringDistribution;
+        }
+    }
+
+    public synchronized long getCollections() {
+        return collections;
+    }
+
+    public synchronized long getTotalPauseNanos() {
+        return totalPauseNanos;
+    }
+
+    public synchronized long getLastPauseNanos() {
+        return lastPauseNanos;
+    }
+
+    public synchronized long getMaxPauseNanos() {
+        return maxPauseNanos;
+    }
+
+    public synchronized long getPromotedBytes() {
+        return promotedBytes;
+    }
+
+    public synchronized long getPromotedObjects() {
+        return promotedObjects;
+    }
+
+    /**
+     * 第 i 个元素为停顿时间不超过 {@link #PAUSE_BUCKET_MICROS}[i] 微秒（且超过前一个桶上限）的回收次数
+     */
+    public synchronized long[] getPauseHistogram() {
+        return pauseHistogram.clone();
+    }
+
+    public synchronized long[] getTenuringDistribution() {
+        return tenuringDistribution.clone();
+    }
+}
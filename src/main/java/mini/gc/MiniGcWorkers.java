@@ -0,0 +1,64 @@
+package mini.gc;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 垃圾回收的工作线程（基于 {@link ForkJoinPool}，空闲的线程从其它线程的队列中窃取任务）
+ */
+public class MiniGcWorkers {
+    /**
+     * 工作线程数，可通过 -Dmini.gc.parallelThreads 指定，相当于 -XX:ParallelGCThreads，默认为 CPU 核数
+     */
+    public static final int DEFAULT_PARALLELISM = Integer.getInteger("mini.gc.parallelThreads", Runtime.getRuntime().availableProcessors());
+
+    public final static MiniGcWorkers DEFAULT = new MiniGcWorkers(DEFAULT_PARALLELISM);
+
+    private final ForkJoinPool pool;
+
+    public MiniGcWorkers(int parallelism) {
+        AtomicInteger ids = new AtomicInteger();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("GC Thread#" + ids.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * 并行执行一批任务，全部完成后返回；任务中抛出的异常（如 {@link OutOfMemoryError}）原样抛给调用方
+     */
+    public void invokeAll(List<? extends ForkJoinTask<?>> tasks) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * 把 [start, end) 平均分成若干段（每个工作线程几段，便于窃取），段的边界按 alignment 对齐
+     *
+     * @return 各段的起始地址，最后一个元素为 end
+     */
+    public int[] split(int start, int end, int alignment) {
+        int chunks = Math.max(1, Math.min(getParallelism() * 4, (end - start) / Math.max(alignment, 4096)));
+        int[] bounds = new int[chunks + 1];
+        long length = end - start;
+        for (int i = 0; i < chunks; i++) {
+            bounds[i] = (start + (int) (length * i / chunks)) & -alignment;
+        }
+        bounds[chunks] = end;
+        return bounds;
+    }
+}
@@ -0,0 +1,119 @@
+package mini.gc;
+
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.area.MiniVirtualStack;
+import mini.thread.MiniSafepoint;
+import mini.thread.MiniThread;
+
+import java.util.function.Supplier;
+
+/**
+ * 分代回收：新生代使用 {@link MiniCopyingCollector}，老年代使用 {@link MiniMarkCompactCollector}
+ * <p>
+ * EDEN 耗尽时先检查老年代的剩余空间是否放得下新生代目前的所有对象（最坏情况下全部晋升），
+ * 放不下时先做一次 Full GC 整理老年代，整理后仍然放不下就扩大老年代（不超过预留的大小），再做 Minor GC，避免 Minor GC 中途晋升失败。
+ * </p>
+ * <p>
+ * 每次 Minor GC 之后交给 {@link MiniAdaptiveSizePolicy} 调整 EDEN、Survivor 的大小和晋升阈值。
+ * </p>
+ * <p>
+ * 回收都在全局安全点（{@link MiniSafepoint#synchronize}）中进行，其他线程都停在安全点上，不会同时修改栈和堆。
+ * </p>
+ */
+public class MiniGenerationalCollector {
+    public final static MiniGenerationalCollector INSTANCE = new MiniGenerationalCollector(
+            MiniVirtualMachineMemory.HEAP_AREA, MiniVirtualMachineMemory.METHOD_AREA, MiniThread::stacks);
+
+    private final MiniVirtualMachineMemory.MiniHeapArea heap;
+    private final MiniCopyingCollector youngCollector;
+    private final MiniMarkCompactCollector fullCollector;
+    /**
+     * 为 null 时不做自适应调整
+     */
+    private volatile MiniAdaptiveSizePolicy sizePolicy;
+
+    /**
+     * @param stacks 所有线程的线程栈
+     */
+    public MiniGenerationalCollector(MiniVirtualMachineMemory.MiniHeapArea heap, MiniMetaSpace metaSpace,
+                                     Supplier<? extends Iterable<MiniVirtualStack>> stacks) {
+        this(heap, metaSpace, stacks, MiniGcWorkers.DEFAULT);
+    }
+
+    public MiniGenerationalCollector(MiniVirtualMachineMemory.MiniHeapArea heap, MiniMetaSpace metaSpace,
+                                     Supplier<? extends Iterable<MiniVirtualStack>> stacks, MiniGcWorkers workers) {
+        MiniRootSet roots = new MiniRootSet(metaSpace, stacks);
+        this.heap = heap;
+        this.youngCollector = new MiniCopyingCollector(heap, roots, workers);
+        this.fullCollector = new MiniMarkCompactCollector(heap, roots, workers);
+        this.sizePolicy = MiniAdaptiveSizePolicy.ENABLED ? new MiniAdaptiveSizePolicy(heap, youngCollector) : null;
+    }
+
+    /**
+     * 作为 {@link MiniVirtualMachineMemory.ExhaustionHandler}：EDEN 耗尽时回收
+     *
+     * @return 回收后 EDEN 是否放得下
+     */
+    public boolean onExhausted(MiniVirtualMachineMemory.MiniHeap space, int size) {
+        long collections = youngCollector.getCollections();
+        return MiniSafepoint.synchronize("Allocation Failure", () -> collectOnExhausted(collections, size));
+    }
+
+    private synchronized boolean collectOnExhausted(long collections, int size) {
+        MiniVirtualMachineMemory.MiniHeap eden = heap.YOUNG_GEN.EDEN;
+        // 等待安全点期间其他线程已经回收过，并且空间够用，直接重新分配
+        if (youngCollector.getCollections() != collections && eden.getCapacity() - eden.getUsed() >= size) {
+            return true;
+        }
+
+        MiniVirtualMachineMemory.MiniHeap old = heap.OLD_GEN;
+        if (old.getCapacity() - old.getUsed() < heap.YOUNG_GEN.getUsed()) {
+            fullCollector.collect();
+            if (old.getCapacity() - old.getUsed() < heap.YOUNG_GEN.getUsed()) {
+                old.resize(old.getUsed() + heap.YOUNG_GEN.getUsed());
+            }
+        }
+        collectYoung();
+        return size <= eden.getCapacity();
+    }
+
+    /**
+     * 回收整个堆：先整理老年代，此时老年代中只剩存活对象，Minor GC 不会再因为死掉的老年代对象而保留新生代对象
+     */
+    public void collectFull() {
+        MiniSafepoint.synchronize("System.gc()", this::collectFullAtSafepoint);
+    }
+
+    private synchronized void collectFullAtSafepoint() {
+        fullCollector.collect();
+        collectYoung();
+    }
+
+    private void collectYoung() {
+        MiniCopyingCollector.Result result = youngCollector.collect();
+        MiniAdaptiveSizePolicy policy = sizePolicy;
+        if (policy != null) {
+            policy.onMinorCollection(result);
+        }
+    }
+
+    public MiniCopyingCollector getYoungCollector() {
+        return youngCollector;
+    }
+
+    public MiniMarkCompactCollector getFullCollector() {
+        return fullCollector;
+    }
+
+    public MiniAdaptiveSizePolicy getSizePolicy() {
+        return sizePolicy;
+    }
+
+    /**
+     * @param sizePolicy 为 null 时关闭自适应调整，各个空间保持当前大小
+     */
+    public void setSizePolicy(MiniAdaptiveSizePolicy sizePolicy) {
+        this.sizePolicy = sizePolicy;
+    }
+}
@@ -0,0 +1,250 @@
+package mini.gc;
+
+import mini.data.area.MiniCardTable;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 老年代标记-整理回收（Full GC，Lisp2 算法）
+ * <ol>
+ *     <li>标记：从根对象出发，用显式的标记栈遍历整个堆（新生代和老年代）中的存活对象，结果记在标记位图中，对象图再深也不会耗尽宿主的线程栈。
+ *     多个工作线程并行标记，用 CAS 设置标记位，设置成功的线程负责扫描该对象；</li>
+ *     <li>计算新地址：按地址顺序遍历老年代中被标记的对象，依次紧挨着排列，新地址暂存在对象标记字的高 32 位；</li>
+ *     <li>更新引用：根对象以及所有存活对象（包括新生代中的）里指向老年代的引用改为新地址，按地址分段并行处理；</li>
+ *     <li>移动：按地址顺序把对象滑动到新地址，还原标记字，老年代的分配指针移到最后一个对象之后；同时重建卡表，仍然指向新生代的字段所在的卡页标记为脏。</li>
+ * </ol>
+ * 第 2、4 步依赖地址顺序，仍由一个线程完成。
+ * 新生代的对象只参与标记，不移动，留给随后的 Minor GC 处理。
+ */
+public class MiniMarkCompactCollector {
+    /**
+     * 标记位图中一位对应的字节数，即对象的对齐大小
+     */
+    private static final int BYTES_PER_BIT = MiniObjectLayout.ALIGNMENT;
+    private static final long LOW_MARK_BITS = 0xFFFF_FFFFL;
+    private static final VarHandle BITMAP = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final MiniVirtualMachineMemory.MiniHeapArea heap;
+    private final MiniRootSet roots;
+    private final MiniGcWorkers workers;
+    /**
+     * 整个堆的起始地址，标记位图从这里开始
+     */
+    private final int heapStart;
+    private final long[] markBitmap;
+    private final LongAdder liveObjects = new LongAdder();
+
+    private final MiniGcStats stats = new MiniGcStats();
+    private Result lastResult;
+
+    public MiniMarkCompactCollector(MiniVirtualMachineMemory.MiniHeapArea heap, MiniRootSet roots, MiniGcWorkers workers) {
+        this.heap = heap;
+        this.roots = roots;
+        this.workers = workers;
+        this.heapStart = heap.YOUNG_GEN.EDEN.getBase();
+        int heapEnd = heap.OLD_GEN.getBase() + heap.OLD_GEN.getReserved();
+        this.markBitmap = new long[((heapEnd - heapStart) / BYTES_PER_BIT + 63) >>> 6];
+    }
+
+    /**
+     * 执行一次 Full GC，调用时所有线程都必须停在安全的位置
+     */
+    public synchronized Result collect() {
+        MiniGcEvent event = new MiniGcEvent();
+        event.begin();
+        long start = System.nanoTime();
+        MiniVirtualMachineMemory.MiniHeap old = heap.OLD_GEN;
+        int oldBefore = old.getUsed();
+
+        // 1. 标记
+        liveObjects.reset();
+        MiniScanTask.Scanner scanner = this::scanObject;
+        List<MiniScanTask> markTasks = new ArrayList<>();
+        for (Consumer<IntUnaryOperator> partition : roots.partitions()) {
+            markTasks.add(new MiniScanTask(scanner, task -> partition.accept(address -> {
+                mark(address, task);
+                return address;
+            })));
+        }
+        workers.invokeAll(markTasks);
+        int liveObjects = (int) this.liveObjects.sum();
+
+        // 2. 计算新地址
+        int oldStart = old.getBase();
+        int oldEnd = oldStart + old.getUsed();
+        int compactTop = oldStart;
+        for (int address = nextMarked(oldStart, oldEnd); address < oldEnd; address = nextMarked(address + BYTES_PER_BIT, oldEnd)) {
+            long mark = heap.getLong(address + MiniObjectLayout.MARK_OFFSET);
+            heap.putLong(address + MiniObjectLayout.MARK_OFFSET, ((long) compactTop << 32) | (mark & LOW_MARK_BITS));
+            compactTop += MiniObjectLayout.sizeOf(heap, address);
+        }
+
+        // 3. 更新引用：根对象、新生代和老年代中的存活对象，对象归起始地址所在的段处理
+        List<RecursiveAction> adjustTasks = new ArrayList<>();
+        for (Consumer<IntUnaryOperator> partition : roots.partitions()) {
+            adjustTasks.add(action(() -> partition.accept(this::adjust)));
+        }
+        int[] bounds = workers.split(heapStart, oldEnd, BYTES_PER_BIT);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int chunkStart = bounds[i];
+            int chunkEnd = bounds[i + 1];
+            adjustTasks.add(action(() -> {
+                for (int address = nextMarked(chunkStart, chunkEnd); address < chunkEnd; address = nextMarked(address + BYTES_PER_BIT, chunkEnd)) {
+                    adjustObject(address);
+                }
+            }));
+        }
+        workers.invokeAll(adjustTasks);
+
+        // 4. 按地址顺序移动，新地址不会超过原地址，先移动的对象不会覆盖还没移动的对象
+        MiniCardTable cardTable = heap.CARD_TABLE;
+        cardTable.clear();
+        for (int address = nextMarked(oldStart, oldEnd); address < oldEnd; address = nextMarked(address + BYTES_PER_BIT, oldEnd)) {
+            long mark = heap.getLong(address + MiniObjectLayout.MARK_OFFSET);
+            int target = (int) (mark >>> 32);
+            int size = MiniObjectLayout.sizeOf(heap, address);
+            if (target != address) {
+                heap.copy(address, target, size);
+            }
+            heap.putLong(target + MiniObjectLayout.MARK_OFFSET, mark & LOW_MARK_BITS);
+            cardTable.recordObject(target, size);
+            for (int offset : MiniObjectLayout.referenceOffsetsOf(MiniObjectLayout.getClassId(heap, target))) {
+                int reference = heap.getInt(target + offset);
+                if (reference != 0 && !old.contains(reference)) {
+                    cardTable.dirty(target + offset);
+                }
+            }
+        }
+        old.setUsed(compactTop - oldStart);
+        Arrays.fill(markBitmap, 0L);
+
+        long pauseNanos = System.nanoTime() - start;
+        stats.record(pauseNanos, 0, 0, null);
+        long id = stats.getCollections();
+        lastResult = new Result(id, pauseNanos, oldBefore, old.getUsed(), liveObjects);
+        if (MiniTrace.isEnabled(MiniTraceEvent.GC_FULL)) {
+            MiniTrace.record(MiniTraceEvent.GC_FULL, id, oldBefore / 1024, lastResult.oldAfter() / 1024, liveObjects,
+                    String.format("%.3fms", pauseNanos / 1_000_000.0), null, null, null);
+        }
+        event.collector = "Full";
+        event.gcId = id;
+        event.usedBefore = oldBefore;
+        event.usedAfter = lastResult.oldAfter();
+        event.commit();
+        return lastResult;
+    }
+
+    /**
+     * 没有标记过的对象加上标记并压入当前任务的标记栈，多个线程同时标记同一个对象时只有一个成功
+     */
+    private void mark(int address, MiniScanTask task) {
+        int bit = (address - heapStart) / BYTES_PER_BIT;
+        int index = bit >>> 6;
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = (long) BITMAP.getVolatile(markBitmap, index);
+            if ((word & mask) != 0) return;
+        } while (!BITMAP.compareAndSet(markBitmap, index, word, word | mask));
+
+        liveObjects.increment();
+        task.push(address);
+    }
+
+    /**
+     * 标记对象引用的所有对象
+     */
+    private void scanObject(int address, MiniScanTask task) {
+        for (int offset : MiniObjectLayout.referenceOffsetsOf(MiniObjectLayout.getClassId(heap, address))) {
+            int reference = heap.getInt(address + offset);
+            if (reference != 0) {
+                mark(reference, task);
+            }
+        }
+    }
+
+    private void adjustObject(int address) {
+        for (int offset : MiniObjectLayout.referenceOffsetsOf(MiniObjectLayout.getClassId(heap, address))) {
+            int reference = heap.getInt(address + offset);
+            if (reference != 0) {
+                heap.putInt(address + offset, adjust(reference));
+            }
+        }
+    }
+
+    private static RecursiveAction action(Runnable runnable) {
+        return new RecursiveAction() {
+            @Override
+            protected void compute() {
+                runnable.run();
+            }
+        };
+    }
+
+    /**
+     * [from, to) 中下一个被标记的对象地址，没有时返回 to
+     */
+    private int nextMarked(int from, int to) {
+        if (from >= to) return to;
+        int bit = (from - heapStart) / BYTES_PER_BIT;
+        int index = bit >>> 6;
+        long word = markBitmap[index] & (-1L << bit);
+        while (word == 0) {
+            if (++index == markBitmap.length) return to;
+            word = markBitmap[index];
+        }
+        int address = heapStart + ((index << 6) + Long.numberOfTrailingZeros(word)) * BYTES_PER_BIT;
+        return Math.min(address, to);
+    }
+
+    /**
+     * 老年代对象返回第 2 步算好的新地址，其它对象不移动
+     */
+    private int adjust(int address) {
+        if (!heap.OLD_GEN.contains(address)) return address;
+        return (int) (heap.getLong(address + MiniObjectLayout.MARK_OFFSET) >>> 32);
+    }
+
+    public long getCollections() {
+        return stats.getCollections();
+    }
+
+    public long getTotalPauseNanos() {
+        return stats.getTotalPauseNanos();
+    }
+
+    public MiniGcStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 最近一次回收的结果，没有回收过时为 null
+     */
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 一次回收的结果
+     *
+     * @param id          第几次回收，从 1 开始
+     * @param pauseNanos  停顿时间
+     * @param oldBefore   回收前老年代已使用的字节数
+     * @param oldAfter    回收后老年代已使用的字节数
+     * @param liveObjects 标记的存活对象个数（包括新生代中的）
+     */
+    public record Result(long id, long pauseNanos, int oldBefore, int oldAfter, int liveObjects) {
+    }
+}
@@ -0,0 +1,61 @@
+package mini.gc;
+
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniVirtualStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 垃圾回收的根对象
+ * 1. 各线程栈帧中标记为引用的槽位；
+ * 2. 所有类的静态引用变量；
+ * 3. 字符串常量池。
+ */
+public class MiniRootSet {
+    private final MiniMetaSpace metaSpace;
+    private final Supplier<? extends Iterable<MiniVirtualStack>> stacks;
+
+    /**
+     * @param stacks 所有线程的线程栈
+     */
+    public MiniRootSet(MiniMetaSpace metaSpace, Supplier<? extends Iterable<MiniVirtualStack>> stacks) {
+        this.metaSpace = metaSpace;
+        this.stacks = stacks;
+    }
+
+    /**
+     * 依次把每个非 null 的根引用交给 visitor，并替换为其返回值；只遍历不移动时原样返回即可
+     */
+    public void update(IntUnaryOperator visitor) {
+        for (Consumer<IntUnaryOperator> partition : partitions()) {
+            partition.accept(visitor);
+        }
+    }
+
+    /**
+     * 把根对象分成互不重叠的几部分（每个线程栈一部分，静态变量、字符串常量池各一部分），供多个回收线程并行处理
+     */
+    public List<Consumer<IntUnaryOperator>> partitions() {
+        List<Consumer<IntUnaryOperator>> partitions = new ArrayList<>();
+        for (MiniVirtualStack stack : stacks.get()) {
+            partitions.add(stack::updateReferences);
+        }
+        partitions.add(visitor -> metaSpace.forEachClass(clazz -> {
+            int[] staticRefs = clazz.getStaticRefs();
+            if (staticRefs == null) return;
+            for (int i = 0; i < staticRefs.length; i++) {
+                if (staticRefs[i] != 0) staticRefs[i] = visitor.applyAsInt(staticRefs[i]);
+            }
+        }));
+        partitions.add(metaSpace::updateStringReferences);
+        return partitions;
+    }
+
+    public Iterable<MiniVirtualStack> stacks() {
+        return stacks.get();
+    }
+}
@@ -0,0 +1,77 @@
+package mini.gc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * 并行回收中的一个扫描任务：先执行初始工作（如扫描一部分根对象），再不断处理本地栈中的对象
+ * <p>
+ * 处理对象时发现的新对象压入本地栈（{@link #push(int)}），只有当前线程访问，不需要同步；
+ * 本地栈积压较多且其它工作线程可能空闲时，分出一半作为新任务，交给 {@link java.util.concurrent.ForkJoinPool} 让空闲线程窃取。
+ * </p>
+ */
+class MiniScanTask extends RecursiveAction {
+    /**
+     * 本地栈至少有这么多对象时才考虑分出去，太小的任务不值得调度
+     */
+    private static final int SPLIT_THRESHOLD = 64;
+
+    /**
+     * 处理一个对象，新发现的对象通过 {@link #push(int)} 加入同一个任务
+     */
+    @FunctionalInterface
+    interface Scanner {
+        void scan(int address, MiniScanTask task);
+    }
+
+    private final Scanner scanner;
+    private final Consumer<MiniScanTask> seed;
+    private int[] stack;
+    private int top;
+
+    MiniScanTask(Scanner scanner, Consumer<MiniScanTask> seed) {
+        this(scanner, seed, new int[SPLIT_THRESHOLD * 2], 0);
+    }
+
+    private MiniScanTask(Scanner scanner, Consumer<MiniScanTask> seed, int[] stack, int top) {
+        this.scanner = scanner;
+        this.seed = seed;
+        this.stack = stack;
+        this.top = top;
+    }
+
+    void push(int address) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = address;
+    }
+
+    @Override
+    protected void compute() {
+        if (seed != null) {
+            seed.accept(this);
+        }
+
+        List<MiniScanTask> forked = null;
+        while (top > 0) {
+            scanner.scan(stack[--top], this);
+            if (top >= SPLIT_THRESHOLD && getSurplusQueuedTaskCount() <= 0) {
+                int half = top / 2;
+                MiniScanTask task = new MiniScanTask(scanner, null, Arrays.copyOfRange(stack, top - half, top + SPLIT_THRESHOLD), half);
+                top -= half;
+                task.fork();
+                if (forked == null) forked = new ArrayList<>();
+                forked.add(task);
+            }
+        }
+        if (forked != null) {
+            for (MiniScanTask task : forked) {
+                task.join();
+            }
+        }
+    }
+}
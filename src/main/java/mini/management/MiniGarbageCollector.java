@@ -0,0 +1,58 @@
+package mini.management;
+
+import mini.gc.MiniGcStats;
+
+public class MiniGarbageCollector implements MiniGarbageCollectorMXBean {
+    private final String name;
+    private final MiniGcStats stats;
+
+    public MiniGarbageCollector(String name, MiniGcStats stats) {
+        this.name = name;
+        this.stats = stats;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCollectionCount() {
+        return stats.getCollections();
+    }
+
+    @Override
+    public long getCollectionTime() {
+        return stats.getTotalPauseNanos() / 1_000_000;
+    }
+
+    @Override
+    public double getLastPauseMillis() {
+        return stats.getLastPauseNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public double getMaxPauseMillis() {
+        return stats.getMaxPauseNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public long[] getPauseHistogram() {
+        return stats.getPauseHistogram();
+    }
+
+    @Override
+    public long[] getPauseHistogramBoundsMicros() {
+        return MiniGcStats.PAUSE_BUCKET_MICROS.clone();
+    }
+
+    @Override
+    public long getPromotedBytes() {
+        return stats.getPromotedBytes();
+    }
+
+    @Override
+    public long[] getTenuringDistribution() {
+        return stats.getTenuringDistribution();
+    }
+}
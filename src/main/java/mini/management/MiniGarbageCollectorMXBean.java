@@ -0,0 +1,36 @@
+package mini.management;
+
+/**
+ * 一个回收器的监控信息，注册为 mini.jvm:type=GarbageCollector,name=...
+ */
+public interface MiniGarbageCollectorMXBean {
+    String getName();
+
+    long getCollectionCount();
+
+    /**
+     * 累计停顿时间（毫秒）
+     */
+    long getCollectionTime();
+
+    double getLastPauseMillis();
+
+    double getMaxPauseMillis();
+
+    /**
+     * 停顿时间直方图，第 i 个桶的上限见 {@link #getPauseHistogramBoundsMicros()}，最后一个桶不设上限
+     */
+    long[] getPauseHistogram();
+
+    long[] getPauseHistogramBoundsMicros();
+
+    /**
+     * 累计晋升到老年代的字节数
+     */
+    long getPromotedBytes();
+
+    /**
+     * 最近一次 Minor GC 后 Survivor 中各年龄对象的字节数，下标为年龄
+     */
+    long[] getTenuringDistribution();
+}
@@ -0,0 +1,68 @@
+package mini.management;
+
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.gc.MiniGenerationalCollector;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * 堆和垃圾回收的监控入口
+ * <p>
+ * 既可以直接调用 {@link #getMemorySpaces()}、{@link #getGarbageCollectors()} 读取，
+ * 也可以在 JConsole、VisualVM 中的 mini.jvm 域下查看（{@link #register()} 之后）。
+ * </p>
+ */
+public final class MiniManagement {
+    public static final String DOMAIN = "mini.jvm";
+
+    private static final List<MiniMemorySpace> MEMORY_SPACES = memorySpaces(MiniVirtualMachineMemory.HEAP_AREA);
+    private static final List<MiniGarbageCollector> GARBAGE_COLLECTORS = List.of(
+            new MiniGarbageCollector("Young", MiniGenerationalCollector.INSTANCE.getYoungCollector().getStats()),
+            new MiniGarbageCollector("Full", MiniGenerationalCollector.INSTANCE.getFullCollector().getStats()));
+
+    private MiniManagement() {
+    }
+
+    public static List<MiniMemorySpace> memorySpaces(MiniVirtualMachineMemory.MiniHeapArea heap) {
+        return List.of(
+                new MiniMemorySpace("Eden", heap.YOUNG_GEN.EDEN),
+                new MiniMemorySpace("Survivor 0", heap.YOUNG_GEN.SURVIVOR_0),
+                new MiniMemorySpace("Survivor 1", heap.YOUNG_GEN.SURVIVOR_1),
+                new MiniMemorySpace("Old", heap.OLD_GEN));
+    }
+
+    public static List<MiniMemorySpace> getMemorySpaces() {
+        return MEMORY_SPACES;
+    }
+
+    public static List<MiniGarbageCollector> getGarbageCollectors() {
+        return GARBAGE_COLLECTORS;
+    }
+
+    /**
+     * 注册到平台 MBeanServer，重复调用时跳过已经注册的
+     */
+    public static synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (MiniMemorySpace space : MEMORY_SPACES) {
+                register(server, new ObjectName(DOMAIN + ":type=MemorySpace,name=" + space.getName()), space);
+            }
+            for (MiniGarbageCollector collector : GARBAGE_COLLECTORS) {
+                register(server, new ObjectName(DOMAIN + ":type=GarbageCollector,name=" + collector.getName()), collector);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register MBeans", e);
+        }
+    }
+
+    private static void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        if (!server.isRegistered(name)) {
+            server.registerMBean(mbean, name);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package mini.management;
+
+import mini.data.area.MiniVirtualMachineMemory;
+
+public class MiniMemorySpace implements MiniMemorySpaceMXBean {
+    private final String name;
+    private final MiniVirtualMachineMemory.MiniHeap space;
+
+    public MiniMemorySpace(String name, MiniVirtualMachineMemory.MiniHeap space) {
+        this.name = name;
+        this.space = space;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getUsed() {
+        return space.getUsed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return space.getCapacity();
+    }
+
+    @Override
+    public long getMaxCapacity() {
+        return space.getReserved();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return space.getAllocatedBytes();
+    }
+
+    @Override
+    public long getAllocatedObjects() {
+        return space.getAllocatedObjects();
+    }
+
+    @Override
+    public double getAllocationRate() {
+        return space.getAllocationRate();
+    }
+}
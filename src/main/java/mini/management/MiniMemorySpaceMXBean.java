@@ -0,0 +1,38 @@
+package mini.management;
+
+/**
+ * 堆中一个空间（EDEN、Survivor、老年代）的监控信息，注册为 mini.jvm:type=MemorySpace,name=...
+ */
+public interface MiniMemorySpaceMXBean {
+    String getName();
+
+    /**
+     * 已使用的字节数
+     */
+    long getUsed();
+
+    /**
+     * 空间当前的大小（字节）
+     */
+    long getCapacity();
+
+    /**
+     * 空间最大可以扩展到的大小（字节）
+     */
+    long getMaxCapacity();
+
+    /**
+     * 累计分配的字节数
+     */
+    long getAllocatedBytes();
+
+    /**
+     * 累计分配的对象个数
+     */
+    long getAllocatedObjects();
+
+    /**
+     * 最近的分配速率（字节/秒），按时间指数衰减的平均值，在 TLAB 重新申请和垃圾回收时更新
+     */
+    double getAllocationRate();
+}
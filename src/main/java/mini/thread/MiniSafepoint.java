@@ -0,0 +1,348 @@
+package mini.thread;
+
+import mini.trace.MiniTrace;
+import mini.trace.MiniTraceEvent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 安全点（Safepoint）与握手（Handshake）
+ * <p>
+ * 垃圾回收等操作要求所有客户线程都停在栈和堆一致的位置。每个线程有一个状态：
+ * <ul>
+ *     <li>{@link #RUNNING}：正在解释执行，随时可能修改自己的栈和堆；</li>
+ *     <li>{@link #SAFE}：不在解释器中（还没开始、时间片之间、park 中、已经停在安全点），不会修改栈和堆；</li>
+ *     <li>{@link #CLAIMED}：处于 SAFE 时被握手的发起方占用，发起方代替它执行握手操作，期间它不能回到 RUNNING。</li>
+ * </ul>
+ * 解释器在方法返回处（以及时间片结束处）检查全局的轮询字 {@link #poll()}：没有待处理的请求时只是一次读取加一个几乎总是不跳转的分支；
+ * 有请求时进入慢速路径，执行发给自己的握手操作，或者在安全点结束前一直等待。
+ * </p>
+ * <ol>
+ *     <li>{@link #synchronize}：全局安全点，等所有线程都离开 RUNNING 后在发起线程上执行操作，结束后所有线程继续执行，
+ *     从发起到所有线程停下的时间（time to safepoint）计入统计；</li>
+ *     <li>{@link #handshake}：只针对一个或一批线程，目标线程在下一次轮询时自己执行，或者在它处于 SAFE 时由发起方代为执行，其他线程不受影响。</li>
+ * </ol>
+ */
+public final class MiniSafepoint {
+    public static final int SAFE = 0;
+    public static final int RUNNING = 1;
+    public static final int CLAIMED = 2;
+
+    private static final VarHandle POLL_WORD;
+
+    static {
+        try {
+            POLL_WORD = MethodHandles.lookup().findStaticVarHandle(MiniSafepoint.class, "pollWord", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 轮询字：待处理的请求数（进行中的安全点和握手），为 0 时轮询直接通过
+     */
+    private static volatile int pollWord;
+    /**
+     * 是否有全局安全点正在进行
+     */
+    private static volatile boolean synchronizing;
+    /**
+     * 同一时刻只有一个全局安全点
+     */
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final ReentrantLock RESUME_LOCK = new ReentrantLock();
+    private static final Condition RESUMED = RESUME_LOCK.newCondition();
+
+    /**
+     * 统计信息：安全点次数、到达安全点的总时间和最长时间、安全点中操作的总时间，以及握手次数
+     */
+    private static long safepoints;
+    private static long totalTimeToSafepointNanos;
+    private static long maxTimeToSafepointNanos;
+    private static long totalOperationNanos;
+    private static final LongAdder handshakes = new LongAdder();
+
+    private MiniSafepoint() {
+    }
+
+    /**
+     * 安全点轮询，解释器在方法返回处调用
+     */
+    public static void poll() {
+        if (pollWord != 0) {
+            pollSlow(MiniThread.current());
+        }
+    }
+
+    private static void pollSlow(MiniThread thread) {
+        if (thread.getSafepointState() != RUNNING) return;
+        runHandshakes(thread);
+        if (synchronizing) {
+            block(thread);
+        }
+    }
+
+    /**
+     * 线程开始解释执行前调用：转为 RUNNING，有安全点正在进行时先等它结束
+     *
+     * @return 是否由 SAFE 转为 RUNNING；嵌套调用时线程已经是 RUNNING，返回 false，对应的 {@link #leave} 也不用调用
+     */
+    public static boolean enter(MiniThread thread) {
+        if (thread.getSafepointState() == RUNNING) return false;
+        while (true) {
+            if (thread.casSafepointState(SAFE, RUNNING)) {
+                // 先设置 RUNNING 再读取轮询字：发起方要么看到 RUNNING 等待这个线程，要么这里看到请求
+                if (pollWord != 0) pollSlow(thread);
+                return true;
+            }
+            // 正在被握手的发起方占用，很快就会释放
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 线程离开解释器（时间片结束、方法执行完、进入等待）时调用：转为 SAFE，此后安全点不再等它
+     *
+     * @return 是否由 RUNNING 转为 SAFE
+     */
+    public static boolean leave(MiniThread thread) {
+        if (thread.getSafepointState() != RUNNING) return false;
+        thread.setSafepointState(SAFE);
+        return true;
+    }
+
+    /**
+     * 停在安全点，直到安全点结束
+     */
+    private static void block(MiniThread thread) {
+        thread.setSafepointState(SAFE);
+        awaitResume();
+        enter(thread);
+    }
+
+    private static void awaitResume() {
+        RESUME_LOCK.lock();
+        try {
+            while (synchronizing) {
+                RESUMED.awaitUninterruptibly();
+            }
+        } finally {
+            RESUME_LOCK.unlock();
+        }
+    }
+
+    /**
+     * 全局安全点：等所有其他线程都停下后在当前线程上执行 operation，执行完后所有线程继续
+     *
+     * @param reason 原因，用于跟踪输出，如 "Allocation Failure"
+     */
+    public static <T> T synchronize(String reason, Supplier<T> operation) {
+        MiniThread self = MiniThread.current();
+        // 等待其他线程的安全点时自己也算停下了，否则两个线程同时发起时会互相等待
+        boolean left = leave(self);
+        LOCK.lock();
+        long start = System.nanoTime();
+        long reached = start;
+        int threads = 0;
+        try {
+            synchronizing = true;
+            POLL_WORD.getAndAdd(1);
+            for (MiniThread thread : MiniThread.getThreads()) {
+                if (thread == self) continue;
+                awaitSafe(thread);
+                threads++;
+            }
+            reached = System.nanoTime();
+            return operation.get();
+        } finally {
+            long end = System.nanoTime();
+            RESUME_LOCK.lock();
+            try {
+                synchronizing = false;
+                POLL_WORD.getAndAdd(-1);
+                RESUMED.signalAll();
+            } finally {
+                RESUME_LOCK.unlock();
+            }
+            record(reached - start, end - reached);
+            LOCK.unlock();
+            if (left) enter(self);
+
+            if (MiniTrace.isEnabled(MiniTraceEvent.SAFEPOINT)) {
+                MiniTrace.record(MiniTraceEvent.SAFEPOINT, threads, 0, 0, 0, reason,
+                        String.format("%.3fms", (reached - start) / 1e6), String.format("%.3fms", (end - reached) / 1e6), null);
+            }
+        }
+    }
+
+    public static void synchronize(String reason, Runnable operation) {
+        synchronize(reason, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * 等待线程离开 RUNNING（被握手占用的线程也要等它释放）：先自旋，再让出 CPU，最后短暂休眠
+     */
+    private static void awaitSafe(MiniThread thread) {
+        for (int spins = 0; thread.getSafepointState() != SAFE; spins++) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else if (spins < 1000) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+    }
+
+    private static synchronized void record(long timeToSafepointNanos, long operationNanos) {
+        safepoints++;
+        totalTimeToSafepointNanos += timeToSafepointNanos;
+        maxTimeToSafepointNanos = Math.max(maxTimeToSafepointNanos, timeToSafepointNanos);
+        totalOperationNanos += operationNanos;
+    }
+
+    /**
+     * 在一个线程上执行握手操作，执行完后返回；操作中抛出的异常抛给调用方
+     */
+    public static void handshake(MiniThread target, Consumer<MiniThread> operation) {
+        handshake(List.of(target), operation);
+    }
+
+    /**
+     * 在所有存活的线程上执行握手操作
+     */
+    public static void handshakeAll(Consumer<MiniThread> operation) {
+        handshake(new ArrayList<>(MiniThread.getThreads()), operation);
+    }
+
+    /**
+     * 在每个目标线程上执行一次握手操作，各个线程互不等待，全部执行完后返回
+     */
+    public static void handshake(Collection<MiniThread> targets, Consumer<MiniThread> operation) {
+        MiniThread self = MiniThread.current();
+        List<MiniThread> threads = new ArrayList<>(targets.size());
+        List<Handshake> pending = new ArrayList<>(targets.size());
+        for (MiniThread target : targets) {
+            Handshake handshake = new Handshake(operation, Thread.currentThread());
+            if (target == self) {
+                // 发给自己的握手直接执行
+                handshake.run(target);
+            } else {
+                target.handshakes.add(handshake);
+            }
+            threads.add(target);
+            pending.add(handshake);
+        }
+        handshakes.add(pending.size());
+
+        // 等待期间自己也算停下了：否则进行中的安全点会一直等发起方，而目标线程要等安全点结束才能被代为执行；
+        // 两个线程互相握手时也能由对方代为执行
+        boolean left = leave(self);
+        POLL_WORD.getAndAdd(1);
+        try {
+            while (true) {
+                boolean done = true;
+                for (int i = 0; i < pending.size(); i++) {
+                    if (pending.get(i).done) continue;
+                    done = false;
+                    tryRunOnBehalf(threads.get(i));
+                }
+                if (done) break;
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        } finally {
+            POLL_WORD.getAndAdd(-1);
+            if (left) enter(self);
+        }
+
+        for (Handshake handshake : pending) {
+            if (handshake.failure instanceof RuntimeException e) throw e;
+            if (handshake.failure instanceof Error e) throw e;
+        }
+    }
+
+    /**
+     * 目标线程处于 SAFE 时占用它，代替它执行握手操作；全局安全点进行中时不占用，等安全点结束
+     */
+    private static void tryRunOnBehalf(MiniThread target) {
+        if (!target.casSafepointState(SAFE, CLAIMED)) return;
+        try {
+            if (!synchronizing) runHandshakes(target);
+        } finally {
+            target.setSafepointState(SAFE);
+        }
+    }
+
+    private static void runHandshakes(MiniThread thread) {
+        Handshake handshake;
+        while ((handshake = thread.handshakes.poll()) != null) {
+            handshake.run(thread);
+        }
+    }
+
+    /**
+     * 是否有全局安全点正在进行（可能还在等其他线程停下）
+     */
+    static boolean isSynchronizing() {
+        return synchronizing;
+    }
+
+    public static synchronized long getSafepoints() {
+        return safepoints;
+    }
+
+    public static synchronized long getTotalTimeToSafepointNanos() {
+        return totalTimeToSafepointNanos;
+    }
+
+    public static synchronized long getMaxTimeToSafepointNanos() {
+        return maxTimeToSafepointNanos;
+    }
+
+    public static synchronized long getTotalOperationNanos() {
+        return totalOperationNanos;
+    }
+
+    public static long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * 一次握手操作，由目标线程或者发起方执行恰好一次
+     */
+    static final class Handshake {
+        private final Consumer<MiniThread> operation;
+        private final Thread requester;
+        private volatile boolean done;
+        private Throwable failure;
+
+        Handshake(Consumer<MiniThread> operation, Thread requester) {
+            this.operation = operation;
+            this.requester = requester;
+        }
+
+        void run(MiniThread thread) {
+            try {
+                operation.accept(thread);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            done = true;
+            LockSupport.unpark(requester);
+        }
+    }
+}
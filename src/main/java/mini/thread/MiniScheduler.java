@@ -0,0 +1,178 @@
+package mini.thread;
+
+import mini.cl.MethodCaller;
+import mini.cl.MiniClass;
+import mini.data.area.MiniVirtualStack;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户线程的 M:N 调度器：大量客户线程轮流在少数几个载体线程（carrier）上执行
+ * <p>
+ * 客户线程的栈帧和 pc 都在自己的 {@link MiniVirtualStack} 中，解释器不在宿主的调用栈上递归，
+ * 所以在任意两条指令之间都可以停下，换另一个线程接着执行，切换只是换一个栈对象，不涉及宿主线程的切换。
+ * </p>
+ * <ol>
+ *     <li>时间片：每次最多执行 {@link #DEFAULT_QUANTUM} 条指令，用完后重新排到队尾；</li>
+ *     <li>阻塞点：线程调用 {@link MiniThread#park()} 后让出载体线程，{@link MiniThread#unpark()} 时重新排队；</li>
+ *     <li>运行队列：每个载体线程有自己的队列（{@link ForkJoinPool} 的 FIFO 模式），时间片用完的线程放回当前载体线程的队列，
+ *     空闲的载体线程从其它队列中窃取。</li>
+ * </ol>
+ * <p>
+ * 新线程的栈只有 {@link #STACK_SIZE} 个槽位，用到更深时再扩容；TLAB 也比普通线程小，一个进程中可以同时存在大量线程。
+ * </p>
+ */
+public class MiniScheduler {
+    /**
+     * 载体线程数，可通过 -Dmini.scheduler.carriers 指定，默认为 CPU 核数
+     */
+    public static final int DEFAULT_CARRIERS = Integer.getInteger("mini.scheduler.carriers", Runtime.getRuntime().availableProcessors());
+    /**
+     * 时间片（指令条数），可通过 -Dmini.scheduler.quantum 指定
+     */
+    public static final int DEFAULT_QUANTUM = Integer.getInteger("mini.scheduler.quantum", 10_000);
+    /**
+     * 新线程栈的初始槽位数
+     */
+    public static final int STACK_SIZE = 256;
+    /**
+     * 调度器中线程的 TLAB 大小（字节）
+     */
+    public static final int TLAB_SIZE = 2 * 1024;
+
+    private static volatile MiniScheduler defaultScheduler;
+
+    private final ForkJoinPool carriers;
+    private final int quantum;
+
+    private final LongAdder spawned = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    /**
+     * 时间片结束（用完或者让出）的次数，即上下文切换次数
+     */
+    private final LongAdder switches = new LongAdder();
+
+    public MiniScheduler(int carriers, int quantum) {
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+        }
+        AtomicInteger ids = new AtomicInteger();
+        this.carriers = new ForkJoinPool(Math.max(1, carriers), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("Mini Carrier#" + ids.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+        this.quantum = quantum;
+    }
+
+    /**
+     * 默认调度器，第一次使用时创建
+     */
+    public static MiniScheduler getDefault() {
+        MiniScheduler scheduler = defaultScheduler;
+        if (scheduler == null) {
+            synchronized (MiniScheduler.class) {
+                scheduler = defaultScheduler;
+                if (scheduler == null) {
+                    defaultScheduler = scheduler = new MiniScheduler(DEFAULT_CARRIERS, DEFAULT_QUANTUM);
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 创建一个客户线程执行无参静态方法 method，方法返回后线程结束
+     */
+    public MiniThread spawn(String name, MiniClass clazz, MiniClass.MiniMemberInfo method) {
+        MiniVirtualStack stack = new MiniVirtualStack(STACK_SIZE, MiniVirtualStack.DEFAULT_SIZE, TLAB_SIZE);
+        MiniThread thread = new MiniThread(name, stack, this);
+        MethodCaller.enter(stack, clazz, method);
+        MiniThread.register(thread);
+        spawned.increment();
+        submit(thread);
+        return thread;
+    }
+
+    /**
+     * 把线程放入运行队列：在载体线程上时放入它自己的队列，否则放入共享的提交队列
+     */
+    void submit(MiniThread thread) {
+        Quantum task = new Quantum(thread);
+        if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == carriers) {
+            task.fork();
+        } else {
+            carriers.execute(task);
+        }
+    }
+
+    private void runQuantum(MiniThread thread) {
+        boolean finished;
+        thread.mount();
+        try {
+            finished = MethodCaller.resume(thread, quantum);
+        } catch (Throwable e) {
+            thread.fail(e);
+            finished = true;
+        } finally {
+            thread.unmount();
+        }
+        switches.increment();
+
+        if (finished) {
+            completed.increment();
+            thread.terminate();
+        } else if (thread.afterQuantum()) {
+            submit(thread);
+        }
+    }
+
+    public int getCarriers() {
+        return carriers.getParallelism();
+    }
+
+    public int getQuantum() {
+        return quantum;
+    }
+
+    public long getSpawnedThreads() {
+        return spawned.sum();
+    }
+
+    public long getCompletedThreads() {
+        return completed.sum();
+    }
+
+    public long getContextSwitches() {
+        return switches.sum();
+    }
+
+    /**
+     * 载体线程之间窃取任务的次数
+     */
+    public long getStealCount() {
+        return carriers.getStealCount();
+    }
+
+    /**
+     * 一个时间片，每次排队都是一个新的任务
+     */
+    private final class Quantum extends RecursiveAction {
+        private final MiniThread thread;
+
+        Quantum(MiniThread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        protected void compute() {
+            runQuantum(thread);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package mini.thread;
+
+import mini.cl.MethodCaller;
+import mini.cl.MiniClass;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.area.MiniVirtualStack;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 客户程序的线程
+ * <p>
+ * 每个线程有自己的虚拟机栈（{@link MiniVirtualStack}），栈帧中保存各自的 pc，栈上还挂着线程自己的 TLAB，
+ * 因此解释执行和对象分配的快速路径都不需要同步；类、常量池、静态变量、堆等其余区域由所有线程共享。
+ * </p>
+ * <p>
+ * 线程有两种运行方式：
+ * <ol>
+ *     <li>{@link #start}：运行在宿主的一个虚拟线程上，由宿主负责调度；</li>
+ *     <li>{@link MiniScheduler#spawn}：由虚拟机自己调度（M:N），多个线程轮流在少数几个载体线程上按时间片执行。</li>
+ * </ol>
+ * 启动虚拟机（{@link mini.MiniVirtualMachine#start}）的宿主线程是客户程序的主线程 {@link #MAIN}，使用 {@link MiniVirtualMachineMemory#VIRTUAL_STACK}；
+ * 其余直接调用 {@link MethodCaller} 的宿主线程在第一次进入时各自绑定一个使用新的栈的客户线程。
+ * </p>
+ */
+public class MiniThread {
+    public enum State {
+        /**
+         * 正在执行或等待执行
+         */
+        RUNNABLE,
+        /**
+         * 调用 {@link #park()} 后暂停，等待 {@link #unpark()}
+         */
+        PARKED,
+        TERMINATED
+    }
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private static final ThreadLocal<MiniThread> CURRENT = new ThreadLocal<>();
+    /**
+     * 所有存活的线程，垃圾回收时从它们的栈中查找根对象
+     */
+    private static final Set<MiniThread> THREADS = ConcurrentHashMap.newKeySet();
+    private static final VarHandle STATE;
+    private static final VarHandle SAFEPOINT_STATE;
+    private static final VarHandle HOST_THREAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            STATE = lookup.findVarHandle(MiniThread.class, "state", State.class);
+            SAFEPOINT_STATE = lookup.findVarHandle(MiniThread.class, "safepointState", int.class);
+            HOST_THREAD = lookup.findVarHandle(MiniThread.class, "hostThread", Thread.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static final MiniThread MAIN = new MiniThread("main", MiniVirtualMachineMemory.VIRTUAL_STACK, null);
+
+    static {
+        THREADS.add(MAIN);
+    }
+
+    private final long id;
+    private final String name;
+    private final MiniVirtualStack stack;
+    /**
+     * 调度这个线程的调度器，运行在宿主线程上时为 null
+     */
+    private final MiniScheduler scheduler;
+    private volatile Thread hostThread;
+    /**
+     * 是否由宿主线程第一次进入时创建（{@link #attach()}），宿主线程结束后需要清理
+     */
+    private boolean attached;
+    private volatile State state = State.RUNNABLE;
+    /**
+     * 许可，语义与 {@link LockSupport} 相同：先 unpark 后 park 时 park 直接返回
+     */
+    private volatile boolean permit;
+    /**
+     * 请求在当前指令执行完后让出载体线程，只由线程自己设置、由调度它的载体线程读取
+     */
+    private boolean yieldRequested;
+    /**
+     * 相对于安全点的状态（{@link MiniSafepoint#SAFE} 等），只有 RUNNING 时线程才可能修改栈和堆
+     */
+    private volatile int safepointState = MiniSafepoint.SAFE;
+    /**
+     * 等待在这个线程上执行的握手操作
+     */
+    final ConcurrentLinkedQueue<MiniSafepoint.Handshake> handshakes = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    /**
+     * 线程因未捕获的异常结束时记录下来
+     */
+    private volatile Throwable failure;
+
+    MiniThread(String name, MiniVirtualStack stack, MiniScheduler scheduler) {
+        this.id = NEXT_ID.getAndIncrement();
+        this.name = name;
+        this.stack = stack;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 当前正在执行的客户线程，不是主线程、不是由 {@link #start} 创建、也不在调度器中执行的宿主线程第一次调用时绑定一个
+     */
+    public static MiniThread current() {
+        MiniThread thread = CURRENT.get();
+        return thread == null ? attach() : thread;
+    }
+
+    /**
+     * 把当前宿主线程绑定为主线程，由 {@link mini.MiniVirtualMachine#start} 调用；已经绑定的宿主线程结束后可以由其他线程重新绑定
+     * <p>
+     * 当前宿主线程之前已经绑定过其他客户线程时，那个线程随之结束
+     * </p>
+     *
+     * @throws IllegalStateException 主线程已经绑定到另一个存活的宿主线程，或者当前线程正在执行
+     */
+    public static void bindMain() {
+        MiniThread previous = CURRENT.get();
+        if (previous == MAIN) return;
+        if (previous != null && previous.stack.getDepth() > 0) {
+            throw new IllegalStateException("Cannot bind main thread while " + previous + " is executing");
+        }
+
+        Thread host = Thread.currentThread();
+        Thread bound = MAIN.hostThread;
+        if ((bound != null && bound.isAlive()) || !HOST_THREAD.compareAndSet(MAIN, bound, host)) {
+            throw new IllegalStateException("Main thread is already bound to " + MAIN.hostThread);
+        }
+        if (previous != null) {
+            previous.terminate();
+        }
+        CURRENT.set(MAIN);
+    }
+
+    /**
+     * 把当前宿主线程绑定为客户线程：各自使用新的栈并登记为存活线程，
+     * 否则多个宿主线程同时调用 {@link MethodCaller} 会在同一个栈和 TLAB 上交错执行，安全点状态也会互相覆盖
+     */
+    private static MiniThread attach() {
+        Thread host = Thread.currentThread();
+        // 绑定很少发生，顺便清理宿主已经结束的线程；同时绑定的线程不能重复清理同一个
+        synchronized (THREADS) {
+            for (MiniThread attached : THREADS) {
+                if (attached.attached && !attached.hostThread.isAlive()) {
+                    attached.terminate();
+                }
+            }
+        }
+        MiniThread thread = new MiniThread(host.getName(), new MiniVirtualStack(), null);
+        thread.hostThread = host;
+        thread.attached = true;
+        THREADS.add(thread);
+        CURRENT.set(thread);
+        return thread;
+    }
+
+    /**
+     * 创建一个客户线程，在新的虚拟线程中执行无参静态方法 method，方法返回后线程结束
+     */
+    public static MiniThread start(String name, MiniClass clazz, MiniClass.MiniMemberInfo method) {
+        MiniThread thread = new MiniThread(name, new MiniVirtualStack(), null);
+        THREADS.add(thread);
+        thread.hostThread = Thread.ofVirtual().name(name).start(() -> thread.run(clazz, method));
+        return thread;
+    }
+
+    private void run(MiniClass clazz, MiniClass.MiniMemberInfo method) {
+        mount();
+        try {
+            MethodCaller.call(clazz, method);
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            unmount();
+            terminate();
+        }
+    }
+
+    /**
+     * 登记由调度器执行的新线程
+     */
+    static void register(MiniThread thread) {
+        THREADS.add(thread);
+    }
+
+    /**
+     * 当前宿主线程开始执行这个客户线程
+     */
+    void mount() {
+        CURRENT.set(this);
+    }
+
+    void unmount() {
+        CURRENT.remove();
+    }
+
+    void fail(Throwable e) {
+        failure = e;
+    }
+
+    /**
+     * 线程结束：它的栈不再是根，TLAB 中剩余的空间也交还给 EDEN
+     */
+    void terminate() {
+        // 退休 TLAB 要在 EDEN 中写填充对象，与垃圾回收丢弃 TLAB、清空 EDEN 冲突：先转为 RUNNING，安全点会等它从存活线程中移除后再开始
+        boolean entered = MiniSafepoint.enter(this);
+        try {
+            MiniVirtualMachineMemory.HEAP_AREA.retireTlab(stack.getTlab());
+            THREADS.remove(this);
+        } finally {
+            if (entered) MiniSafepoint.leave(this);
+        }
+        state = State.TERMINATED;
+        terminated.countDown();
+    }
+
+    /**
+     * 阻塞点：暂停当前线程，直到其他线程调用 {@link #unpark()}，可能没有任何原因就返回（与 {@link LockSupport#park()} 相同）
+     * <p>
+     * 由调度器执行的线程不会占着载体线程等待：当前指令执行完后让出载体线程，被唤醒后再重新排队。
+     * 因此调用方（某条指令的实现）应该把 pc 留在原地，恢复执行时重新检查等待的条件。
+     * </p>
+     */
+    public void park() {
+        if (permit) {
+            permit = false;
+            return;
+        }
+        if (scheduler != null) {
+            yieldRequested = true;
+        } else {
+            // 等待期间不会修改栈和堆，安全点不需要等它
+            boolean left = MiniSafepoint.leave(this);
+            LockSupport.park(this);
+            permit = false;
+            if (left) MiniSafepoint.enter(this);
+        }
+    }
+
+    /**
+     * 唤醒 {@link #park()} 中的线程；线程没有暂停时留下许可，下一次 park 直接返回
+     */
+    public void unpark() {
+        permit = true;
+        if (scheduler != null) {
+            if (STATE.compareAndSet(this, State.PARKED, State.RUNNABLE)) {
+                scheduler.submit(this);
+            }
+        } else {
+            Thread host = hostThread;
+            if (host != null) LockSupport.unpark(host);
+        }
+    }
+
+    /**
+     * 时间片结束后由调度器调用：线程请求过让出时转为 PARKED
+     *
+     * @return 是否仍然可以继续执行（没有暂停，或者暂停前已经被唤醒）
+     */
+    boolean afterQuantum() {
+        if (!yieldRequested) return true;
+        yieldRequested = false;
+        state = State.PARKED;
+        // 设置 PARKED 之后再检查许可：unpark 要么看到 PARKED 自己重新提交，要么在这里被看到
+        return permit && STATE.compareAndSet(this, State.PARKED, State.RUNNABLE);
+    }
+
+    public boolean isYieldRequested() {
+        return yieldRequested;
+    }
+
+    int getSafepointState() {
+        return safepointState;
+    }
+
+    void setSafepointState(int safepointState) {
+        this.safepointState = safepointState;
+    }
+
+    boolean casSafepointState(int expected, int value) {
+        return SAFEPOINT_STATE.compareAndSet(this, expected, value);
+    }
+
+    /**
+     * 所有存活线程的栈
+     */
+    public static List<MiniVirtualStack> stacks() {
+        List<MiniVirtualStack> stacks = new ArrayList<>();
+        for (MiniThread thread : THREADS) {
+            stacks.add(thread.stack);
+        }
+        return stacks;
+    }
+
+    public static Collection<MiniThread> getThreads() {
+        return Collections.unmodifiableSet(THREADS);
+    }
+
+    /**
+     * 等待线程结束，主线程不会结束，直接返回
+     */
+    public void join() throws InterruptedException {
+        if (this != MAIN) terminated.await();
+    }
+
+    public boolean isAlive() {
+        return state != State.TERMINATED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MiniVirtualStack getStack() {
+        return stack;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "MiniThread#" + id + "[" + name + "]";
+    }
+}
@@ -0,0 +1,142 @@
+package mini.trace;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 运行跟踪
+ * <p>
+ * 取代原先每条指令一次的 System.out.printf：
+ * 1. 关闭时每个跟踪点只有一次静态字段读取和位运算，不格式化、不产生任何对象；
+ * 2. 开启时只把事件和原始参数写入 {@link MiniTraceBuffer}，等到 {@link #drain} 时才格式化成原来的中文文本。
+ * </p>
+ * <p>
+ * 通过系统属性配置：-Dmini.trace=execution:debug,linking 或 -Dmini.trace=all，
+ * 不写级别时默认为 INFO；缓冲区容量（事件数）通过 -Dmini.trace.buffer 指定。
+ * </p>
+ */
+public final class MiniTrace {
+    /**
+     * 每个分类在开关掩码中占用的位数
+     */
+    private static final int LEVEL_BITS = 4;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 开关掩码，每个 (分类, 级别) 对应一位。
+     * 这里故意不用 volatile：开关变化不要求立即被所有线程看到，换来热路径上的一次普通读取
+     */
+    private static int mask;
+    private static volatile MiniTraceBuffer buffer;
+
+    static {
+        configure(System.getProperty("mini.trace"));
+    }
+
+    private MiniTrace() {
+    }
+
+    static int bitOf(MiniTraceCategory category, MiniTraceLevel level) {
+        return 1 << (category.ordinal() * LEVEL_BITS + level.ordinal());
+    }
+
+    public static boolean isEnabled(MiniTraceEvent event) {
+        return (mask & event.bit) != 0;
+    }
+
+    public static boolean isEnabled(MiniTraceCategory category, MiniTraceLevel level) {
+        return (mask & bitOf(category, level)) != 0;
+    }
+
+    /**
+     * 开启某个分类，级别不高于 level 的事件都会被记录
+     */
+    public static synchronized void enable(MiniTraceCategory category, MiniTraceLevel level) {
+        getBuffer();
+        int bits = 0;
+        for (MiniTraceLevel value : MiniTraceLevel.values()) {
+            if (value.compareTo(level) <= 0) bits |= bitOf(category, value);
+        }
+        mask = (mask & ~categoryBits(category)) | bits;
+    }
+
+    public static synchronized void disable(MiniTraceCategory category) {
+        mask &= ~categoryBits(category);
+    }
+
+    public static synchronized void disableAll() {
+        mask = 0;
+    }
+
+    /**
+     * 按配置字符串开关，eg: execution:debug,linking、all:info，null 或空字符串表示全部关闭
+     */
+    public static synchronized void configure(String config) {
+        disableAll();
+        if (config == null || config.isBlank()) return;
+
+        for (String item : config.split(",")) {
+            String[] parts = item.trim().split(":");
+            MiniTraceLevel level = parts.length > 1
+                    ? MiniTraceLevel.valueOf(parts[1].trim().toUpperCase(Locale.ROOT))
+                    : MiniTraceLevel.INFO;
+            if ("all".equalsIgnoreCase(parts[0].trim())) {
+                for (MiniTraceCategory category : MiniTraceCategory.values()) {
+                    enable(category, level);
+                }
+            } else {
+                enable(MiniTraceCategory.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), level);
+            }
+        }
+    }
+
+    public static void record(MiniTraceEvent event, Object o0) {
+        record(event, 0, 0, 0, 0, o0, null, null, null);
+    }
+
+    public static void record(MiniTraceEvent event, long v0, Object o0) {
+        record(event, v0, 0, 0, 0, o0, null, null, null);
+    }
+
+    /**
+     * 记录事件，参数按 pattern 中出现的顺序分别填入整型参数和对象参数，多余的参数忽略
+     */
+    public static void record(MiniTraceEvent event, long v0, long v1, long v2, long v3,
+                              Object o0, Object o1, Object o2, Object o3) {
+        if (!isEnabled(event)) return;
+        getBuffer().write(event, v0, v1, v2, v3, o0, o1, o2, o3);
+    }
+
+    /**
+     * 把缓冲区中尚未读取的事件格式化后依次交给 consumer
+     *
+     * @return 读取的事件数
+     */
+    public static int drain(Consumer<String> consumer) {
+        MiniTraceBuffer current = buffer;
+        return current == null ? 0 : current.drain(consumer);
+    }
+
+    public static int drain(PrintStream out) {
+        return drain(out::println);
+    }
+
+    private static int categoryBits(MiniTraceCategory category) {
+        return ((1 << LEVEL_BITS) - 1) << (category.ordinal() * LEVEL_BITS);
+    }
+
+    private static MiniTraceBuffer getBuffer() {
+        MiniTraceBuffer current = buffer;
+        if (current == null) {
+            synchronized (MiniTrace.class) {
+                current = buffer;
+                if (current == null) {
+                    current = new MiniTraceBuffer(Integer.getInteger("mini.trace.buffer", DEFAULT_BUFFER_SIZE));
+                    buffer = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,121 @@
+package mini.trace;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 跟踪事件环形缓冲区（无锁，多写一读）
+ * <p>
+ * 每个事件固定占用 VALUE_WIDTH 个 long 和 OBJECT_WIDTH 个对象槽位，写入方通过原子递增的序号抢占位置，
+ * 写完参数后再发布序号；缓冲区写满后直接覆盖最旧的事件，写入方从不等待。
+ * 读取方按序号顺序读取，遇到被覆盖或尚未发布完成的事件直接跳过。
+ * </p>
+ */
+final class MiniTraceBuffer {
+    static final int VALUE_WIDTH = 4;
+    static final int OBJECT_WIDTH = 4;
+
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int capacity;
+    private final int indexMask;
+    private final MiniTraceEvent[] events;
+    private final long[] values;
+    private final Object[] objects;
+    /**
+     * 每个位置上已发布事件的序号，-1 表示还没有写入
+     */
+    private final long[] sequences;
+
+    /**
+     * 下一个可用的序号
+     */
+    private final AtomicLong next = new AtomicLong();
+    /**
+     * 下一个要读取的序号
+     */
+    private long cursor;
+
+    MiniTraceBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        }
+        this.capacity = capacity;
+        this.indexMask = capacity - 1;
+        this.events = new MiniTraceEvent[capacity];
+        this.values = new long[capacity * VALUE_WIDTH];
+        this.objects = new Object[capacity * OBJECT_WIDTH];
+        this.sequences = new long[capacity];
+        Arrays.fill(sequences, -1);
+    }
+
+    void write(MiniTraceEvent event, long v0, long v1, long v2, long v3, Object o0, Object o1, Object o2, Object o3) {
+        long sequence = next.getAndIncrement();
+        int index = (int) (sequence & indexMask);
+
+        // 先作废旧事件，避免读取方读到新旧混杂的参数
+        SEQUENCES.setOpaque(sequences, index, -1L);
+        VarHandle.storeStoreFence();
+
+        events[index] = event;
+        int valueOffset = index * VALUE_WIDTH;
+        values[valueOffset] = v0;
+        values[valueOffset + 1] = v1;
+        values[valueOffset + 2] = v2;
+        values[valueOffset + 3] = v3;
+        int objectOffset = index * OBJECT_WIDTH;
+        objects[objectOffset] = o0;
+        objects[objectOffset + 1] = o1;
+        objects[objectOffset + 2] = o2;
+        objects[objectOffset + 3] = o3;
+
+        SEQUENCES.setRelease(sequences, index, sequence);
+    }
+
+    /**
+     * 按写入顺序格式化并取出缓冲区中的事件
+     *
+     * @return 取出的事件数
+     */
+    synchronized int drain(Consumer<String> consumer) {
+        long end = next.get();
+        // 已经被覆盖的部分直接跳过
+        long sequence = Math.max(cursor, end - capacity);
+        long[] eventValues = new long[VALUE_WIDTH];
+        Object[] eventObjects = new Object[OBJECT_WIDTH];
+
+        int count = 0;
+        for (; sequence < end; sequence++) {
+            int index = (int) (sequence & indexMask);
+            if ((long) SEQUENCES.getAcquire(sequences, index) != sequence) continue;
+
+            MiniTraceEvent event = events[index];
+            System.arraycopy(values, index * VALUE_WIDTH, eventValues, 0, VALUE_WIDTH);
+            System.arraycopy(objects, index * OBJECT_WIDTH, eventObjects, 0, OBJECT_WIDTH);
+
+            // 复制期间被新事件覆盖了
+            VarHandle.loadLoadFence();
+            if ((long) SEQUENCES.getAcquire(sequences, index) != sequence) continue;
+
+            consumer.accept(event.format(eventValues, eventObjects));
+            count++;
+        }
+        cursor = sequence;
+
+        return count;
+    }
+
+    /**
+     * 累计写入的事件数（包括已被覆盖的）
+     */
+    long getWritten() {
+        return next.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,31 @@
+package mini.trace;
+
+/**
+ * 跟踪分类，每个分类可以单独开关
+ */
+public enum MiniTraceCategory {
+    /**
+     * 类加载
+     */
+    LOADING,
+    /**
+     * 链接：验证、准备、解析
+     */
+    LINKING,
+    /**
+     * 字节码执行
+     */
+    EXECUTION,
+    /**
+     * 堆内存分配
+     */
+    ALLOCATION,
+    /**
+     * 垃圾回收
+     */
+    GC,
+    /**
+     * 安全点与握手
+     */
+    SAFEPOINT,
+}
@@ -0,0 +1,126 @@
+package mini.trace;
+
+import java.util.Arrays;
+
+/**
+ * 跟踪事件
+ * <p>
+ * 事件只在记录时保存原始参数，输出的文本（pattern）等到读取缓冲区时才格式化。
+ * pattern 中的 %d（含宽度，如 %4d）依次取整型参数，%s 依次取对象参数，
+ * 指令事件统一以 "pc (类名#方法名): " 开头。
+ * </p>
+ */
+public enum MiniTraceEvent {
+    // ========== 类加载 ==========
+    LOAD(MiniTraceCategory.LOADING, MiniTraceLevel.INFO, "Load: %s"),
+    STARTUP(MiniTraceCategory.LOADING, MiniTraceLevel.INFO, "Startup: 加载 %d 个类，耗时 %dus（读取 %s，解析 %s，链接 %s，初始化 %s）"),
+
+    // ========== 链接 ==========
+    VERIFY(MiniTraceCategory.LINKING, MiniTraceLevel.INFO, "Verify"),
+    PREPARE(MiniTraceCategory.LINKING, MiniTraceLevel.INFO, "Prepare: %s"),
+    PREPARE_STATIC(MiniTraceCategory.LINKING, MiniTraceLevel.DEBUG, "    %s = 零值（%s，槽位 %d）"),
+    RESOLVE(MiniTraceCategory.LINKING, MiniTraceLevel.INFO, "Resolve: %s"),
+
+    // ========== 字节码执行 ==========
+    DUP(MiniTraceCategory.EXECUTION, "[dup] 复制栈顶元素 %d"),
+    BIPUSH(MiniTraceCategory.EXECUTION, "[bipush] 将常量 %d 压入栈"),
+    LDC(MiniTraceCategory.EXECUTION, "[ldc] 将常量 %s 压入栈"),
+    LDC2_W(MiniTraceCategory.EXECUTION, "[ldc2_w] 将常量 %s 压入栈"),
+    ACONST_NULL(MiniTraceCategory.EXECUTION, "[aconst_null] 将 null 值压入栈"),
+    ICONST(MiniTraceCategory.EXECUTION, "[iconst] 将常量 %d 压入栈"),
+    ASTORE(MiniTraceCategory.EXECUTION, "[astore] 将栈顶值 %s 存储到局部变量 %d"),
+    ISTORE(MiniTraceCategory.EXECUTION, "[istore] 将栈顶值 %d 存储到局部变量 %d"),
+    ILOAD(MiniTraceCategory.EXECUTION, "[iload] 将局部变量 %d 的值 %d 压入栈"),
+    ALOAD(MiniTraceCategory.EXECUTION, "[aload] 将局部变量 %d 的值 %s 压入栈"),
+    GETSTATIC(MiniTraceCategory.EXECUTION, "[getstatic] 将静态变量 %s 的值 %s 压入栈"),
+    PUTSTATIC(MiniTraceCategory.EXECUTION, "[putstatic] 将栈顶值 %s 存储到静态变量 %s"),
+    GETFIELD(MiniTraceCategory.EXECUTION, "[getfield] 将对象 0x%x 的字段 %s 的值 %s 压入栈"),
+    PUTFIELD(MiniTraceCategory.EXECUTION, "[putfield] 将栈顶值 %s 存储到对象 0x%x 的字段 %s 中"),
+    PUTFIELD_NOT_FOUND(MiniTraceCategory.EXECUTION, "[putfield] 找不到字段 %s"),
+    NEW(MiniTraceCategory.EXECUTION, "[new] 创建 %s 对象实例 0x%x"),
+    IADD(MiniTraceCategory.EXECUTION, "[iadd] 将栈顶两个值 %d 和 %d 相加，结果 %d 压入栈"),
+    INVOKE(MiniTraceCategory.EXECUTION, "[%s] 调用实例初始化方法 %s"),
+    INVOKEDYNAMIC(MiniTraceCategory.EXECUTION, "[invokedynamic] %s"),
+    IRETURN(MiniTraceCategory.EXECUTION, "[ireturn] 执行结束"),
+    RETURN(MiniTraceCategory.EXECUTION, "[return] 执行结束"),
+
+    // ========== 内存分配 ==========
+    ALLOCATE(MiniTraceCategory.ALLOCATION, MiniTraceLevel.DEBUG, "Allocate: %s %d 字节，地址 0x%x"),
+    TLAB_REFILL(MiniTraceCategory.ALLOCATION, MiniTraceLevel.DEBUG, "TLAB refill: 0x%x ~ 0x%x，上一块浪费 %d 字节"),
+
+    // ========== 垃圾回收 ==========
+    GC_YOUNG(MiniTraceCategory.GC, MiniTraceLevel.INFO, "GC(%d) Pause Young %dK->%dK，晋升 %dK，耗时 %s"),
+    GC_RESIZE(MiniTraceCategory.GC, MiniTraceLevel.INFO, "Resize: EDEN %dK->%dK，Survivor %dK->%dK，晋升阈值 %s"),
+    GC_FULL(MiniTraceCategory.GC, MiniTraceLevel.INFO, "Full GC(%d) Pause Full %dK->%dK，存活对象 %d 个，耗时 %s"),
+
+    // ========== 安全点 ==========
+    SAFEPOINT(MiniTraceCategory.SAFEPOINT, MiniTraceLevel.INFO, "Safepoint \"%s\"，等待 %d 个线程，到达安全点 %s，执行 %s"),
+    ;
+
+    private static final String INSTRUCTION_HEADER = "   %4d (%s#%s): ";
+
+    private final MiniTraceCategory category;
+    private final MiniTraceLevel level;
+    private final String pattern;
+    /**
+     * pattern 中各个参数的类型：J 为整型，L 为对象
+     */
+    private final char[] argumentKinds;
+    /**
+     * 该事件在 {@link MiniTrace} 开关掩码中对应的位
+     */
+    final int bit;
+
+    MiniTraceEvent(MiniTraceCategory category, String pattern) {
+        this(category, MiniTraceLevel.DEBUG, INSTRUCTION_HEADER + pattern);
+    }
+
+    MiniTraceEvent(MiniTraceCategory category, MiniTraceLevel level, String pattern) {
+        this.category = category;
+        this.level = level;
+        this.pattern = pattern;
+        this.argumentKinds = parseArgumentKinds(pattern);
+        this.bit = MiniTrace.bitOf(category, level);
+    }
+
+    public MiniTraceCategory getCategory() {
+        return category;
+    }
+
+    public MiniTraceLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * 按 pattern 把记录下来的参数格式化为文本
+     */
+    String format(long[] values, Object[] objects) {
+        Object[] args = new Object[argumentKinds.length];
+        int valueIndex = 0;
+        int objectIndex = 0;
+        for (int i = 0; i < argumentKinds.length; i++) {
+            args[i] = argumentKinds[i] == 'J' ? values[valueIndex++] : objects[objectIndex++];
+        }
+        return String.format(pattern, args);
+    }
+
+    private static char[] parseArgumentKinds(String pattern) {
+        char[] kinds = new char[pattern.length()];
+        int count = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) != '%') continue;
+            // 跳过宽度等修饰
+            do {
+                i++;
+            } while (Character.isDigit(pattern.charAt(i)) || pattern.charAt(i) == '-');
+            switch (pattern.charAt(i)) {
+                case 'd', 'x', 'X' -> kinds[count++] = 'J';
+                case 's' -> kinds[count++] = 'L';
+                default -> {
+                    // %n、%% 不占参数
+                }
+            }
+        }
+        return Arrays.copyOf(kinds, count);
+    }
+}
@@ -0,0 +1,10 @@
+package mini.trace;
+
+/**
+ * 跟踪级别，开启某个级别时比它更重要的级别也一并开启
+ */
+public enum MiniTraceLevel {
+    WARN,
+    INFO,
+    DEBUG,
+}
@@ -1,10 +1,13 @@
 package mini;
 
 import demo.HelloStackVM;
+import mini.cl.MiniDecodedCode;
 import mini.cl.MiniStackFrame;
+import mini.data.structure.MiniLocalVariableTable;
+import mini.data.structure.MiniOperandStack;
 import org.junit.jupiter.api.Test;
 
-import java.util.HashMap;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class MiniExecutionEngineTest {
 
@@ -31,7 +34,7 @@ public class MiniExecutionEngineTest {
                 "return"
         };
 
-        MiniStackFrame stackFrame = new MiniStackFrame(null, "main", new HashMap<>());
+        MiniStackFrame stackFrame = new MiniStackFrame(null, "main", new MiniLocalVariableTable(4), new MiniOperandStack(2));
         int pc = 0;
         for (String instruction : instructions) {
             MiniExecutionEngine.INSTANCE.execute(stackFrame, pc++, instruction);
@@ -54,10 +57,33 @@ public class MiniExecutionEngineTest {
                 "return",
         };
 
-        MiniStackFrame stackFrame = new MiniStackFrame(null, "main", new HashMap<>());
+        MiniStackFrame stackFrame = new MiniStackFrame(null, "main", new MiniLocalVariableTable(4), new MiniOperandStack(2));
         int pc = 0;
         for (String instruction : instructions) {
             MiniExecutionEngine.INSTANCE.execute(stackFrame, pc++, instruction);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * invokedynamic 按描述符弹出参数、压入返回值，long、double 占两个槽位
+     */
+    @Test
+    public void invokedynamicTwoSlotTypes() {
+        MiniOperandStack operandStack = new MiniOperandStack(6);
+        MiniStackFrame stackFrame = new MiniStackFrame(null, "main", new MiniLocalVariableTable(4), operandStack);
+        operandStack.pushInt(1);
+        operandStack.pushLong(2L);
+        operandStack.pushDouble(3.0);
+        operandStack.pushRef(0);
+
+        new MiniExecutionEngine.InvokedynamicInstruction().execute(stackFrame, 0, 0,
+                new MiniDecodedCode.InvokeDynamicOperand(0, "apply", "(IJDLjava/lang/Object;)J", new char[]{'I', 'J', 'D', 'L'}, 'J'));
+        assertEquals(2, operandStack.size());
+        assertEquals(0L, operandStack.popLong());
+
+        operandStack.pushLong(4L);
+        new MiniExecutionEngine.InvokedynamicInstruction().execute(stackFrame, 1, 0,
+                new MiniDecodedCode.InvokeDynamicOperand(0, "apply", "(J)D", new char[]{'J'}, 'D'));
+        assertEquals(2, operandStack.size());
+    }
+}
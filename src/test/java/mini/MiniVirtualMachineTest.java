@@ -0,0 +1,38 @@
+package mini;
+
+import mini.cl.MiniClass;
+import mini.data.area.MiniVirtualMachineMemory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniVirtualMachineTest {
+
+    /**
+     * 启动类并行解析后按父类先于子类的顺序定义，再次启动时跳过已经加载的类
+     */
+    @Test
+    public void startup() throws IOException {
+        MiniVirtualMachine.start(null);
+
+        MiniClass object = MiniVirtualMachineMemory.METHOD_AREA.findLoadedClass(null, "demo/java/lang/MiniObject");
+        MiniClass system = MiniVirtualMachineMemory.METHOD_AREA.findLoadedClass(null, "demo/java/lang/MiniSystem");
+        MiniClass printStream = MiniVirtualMachineMemory.METHOD_AREA.findLoadedClass(null, "demo/java/io/MiniPrintStream");
+        assertNotNull(object);
+        assertNull(object.getSuperClass());
+        assertSame(object, system.getSuperClass());
+        assertSame(object, printStream.getSuperClass());
+        assertEquals("demo.java.lang.MiniObject", system.getSuperClassName());
+
+        MiniVirtualMachine.StartupReport report = MiniVirtualMachine.getStartupReport();
+        assertNotNull(report);
+        assertTrue(report.wallNanos() > 0);
+
+        report = MiniVirtualMachine.loadBootstrapClasses(new String[]{"demo/java/lang/MiniObject", "demo/java/lang/MiniSystem"});
+        assertEquals(0, report.classes());
+        assertEquals(0, report.readNanos());
+        assertEquals(0, report.parseNanos());
+    }
+}
@@ -1,11 +1,22 @@
 package mini.cl;
 
 import mini.MiniVirtualMachine;
+import mini.cl.loader.MiniApplicationClassLoader;
+import mini.data.area.MiniObjectLayout;
 import mini.data.area.MiniVirtualMachineMemory;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,12 +29,31 @@ public class MiniBootstrapClassLoaderTest {
         MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.HelloStackVM");
         // 验证类名
         assertEquals("demo.HelloStackVM", clazz.getName());
-        assertEquals(15, (Integer) clazz.getStaticVariables().get("k"));
+        assertEquals(15, clazz.getStaticValues()[clazz.getField("k", "I").getSlot()]);
 
         MiniClass.MiniMemberInfo main = clazz.getMethod("main");
-        MiniStackFrame stackFrame = MethodCaller.call(clazz, main, new HashMap<>());
+        MiniStackFrame stackFrame = MethodCaller.call(clazz, main);
 
-        assertEquals(7, stackFrame.getLocalVariableTable().get(3));
+        assertEquals(7, stackFrame.getLocalVariableTable().getInt(3));
+        // 所有栈帧都已经在虚拟机栈上正常返回
+        assertEquals(0, MiniVirtualMachineMemory.VIRTUAL_STACK.getDepth());
+    }
+
+    @Test
+    public void findMember() throws IOException {
+        MiniVirtualMachine.start(null);
+
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.HelloStackVM");
+        // 按名称 + 描述符查找，重载方法互不影响
+        MiniClass.MiniMemberInfo add = clazz.getMethod("add", "(II)I");
+        assertEquals("add", add.getName());
+        assertSame(add, clazz.getMethod("add", "(II)I"));
+        assertNull(clazz.getMethod("add", "(JJ)J"));
+
+        assertEquals("I", clazz.getField("k", "I").getDescriptor());
+        assertNull(clazz.getField("k", "J"));
+        // 父类是 MiniObject
+        assertEquals("demo.java.lang.MiniObject", clazz.getSuperClass().getName());
     }
 
     /**
@@ -43,10 +73,97 @@ public class MiniBootstrapClassLoaderTest {
         assertEquals("demo.TestObject", clazz.getName());
 
         MiniClass.MiniMemberInfo main = clazz.getMethod("main");
-        MiniStackFrame stackFrame = MethodCaller.call(clazz, main, new HashMap<>());
+        MiniStackFrame stackFrame = MethodCaller.call(clazz, main);
+
+        // 对象头 16 字节，int id、String name 各占 4 字节
+        assertEquals(24, clazz.getInstanceSize());
+        int objectRef = stackFrame.getLocalVariableTable().getRef(1);
+        assertEquals(clazz.getClassId(), MiniObjectLayout.getClassId(objectRef));
+
+        MiniClass.MiniMemberInfo id = clazz.getField("id", "I");
+        MiniClass.MiniMemberInfo name = clazz.getField("name", "Ljava/lang/String;");
+        assertEquals(16, id.getOffset());
+        assertEquals(100, MiniVirtualMachineMemory.HEAP_AREA.getInt(objectRef + id.getOffset()));
+        assertEquals("TestObject", MiniObjectLayout.readString(MiniVirtualMachineMemory.HEAP_AREA.getInt(objectRef + name.getOffset())));
+        assertArrayEquals(new int[]{name.getOffset()}, clazz.getReferenceOffsets());
+    }
+
+    /**
+     * 多个线程同时通过同一个加载器加载同一个类时只定义一次；不同的加载器实例定义的是不同的类
+     */
+    @Test
+    public void loadConcurrently() throws Exception {
+        MiniVirtualMachine.start(null);
+        MiniClass shared = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.HelloStackVM");
 
-        System.out.println("==============================================================================");
-        System.out.println(MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN.toString().substring(0, 1024));
+        MiniApplicationClassLoader loader = new MiniApplicationClassLoader();
+        int threads = 8;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Future<MiniClass>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            Callable<MiniClass> task = () -> {
+                barrier.await();
+                return loader.loadClass("demo.HelloStackVM");
+            };
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(task));
+            }
+        }
+
+        MiniClass clazz = futures.get(0).get();
+        for (Future<MiniClass> future : futures) {
+            assertSame(clazz, future.get());
+        }
+        assertSame(loader, clazz.getClassLoader());
+        assertNotSame(shared, clazz);
+        assertSame(clazz, MiniVirtualMachineMemory.METHOD_AREA.findLoadedClass(loader, "demo/HelloStackVM"));
+        // 等待的线程得到的是已经初始化完的类
+        assertEquals(15, clazz.getStaticValues()[clazz.getField("k", "I").getSlot()]);
+
+        AtomicInteger defined = new AtomicInteger();
+        MiniVirtualMachineMemory.METHOD_AREA.forEachClass(c -> {
+            if (c.getClassLoader() == loader) defined.incrementAndGet();
+        });
+        assertEquals(1, defined.get());
     }
 
-}
\ No newline at end of file
+    /**
+     * 多个宿主线程同时加载、初始化不同的类：每个线程在自己的栈上执行 &lt;clinit&gt;，静态变量互不干扰
+     */
+    @Test
+    public void initializeConcurrently() throws Exception {
+        MiniVirtualMachine.start(null);
+
+        int threads = 8;
+        int rounds = 20;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Future<List<MiniClass>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            Callable<List<MiniClass>> task = () -> {
+                List<MiniClass> classes = new ArrayList<>();
+                for (int round = 0; round < rounds; round++) {
+                    barrier.await();
+                    // 每个加载器实例定义的是不同的类，各自执行一次 <clinit>
+                    classes.add(new MiniApplicationClassLoader().loadClass("demo.HelloStackVM"));
+                }
+                return classes;
+            };
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(task));
+            }
+        }
+
+        Set<MiniClass> classes = new HashSet<>();
+        for (Future<List<MiniClass>> future : futures) {
+            for (MiniClass clazz : future.get()) {
+                assertTrue(classes.add(clazz));
+                long[] statics = clazz.getStaticValues();
+                assertEquals(5, statics[clazz.getField("i", "I").getSlot()]);
+                assertEquals(10, statics[clazz.getField("j", "I").getSlot()]);
+                assertEquals(15, statics[clazz.getField("k", "I").getSlot()]);
+            }
+        }
+        assertEquals(threads * rounds, classes.size());
+        assertEquals(0, MiniVirtualMachineMemory.VIRTUAL_STACK.getDepth());
+    }
+}
@@ -0,0 +1,48 @@
+package mini.data.area;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniCardTableTest {
+
+    @Test
+    public void dirty() {
+        MiniVirtualMachineMemory.MiniHeapArea area = new MiniVirtualMachineMemory.MiniHeapArea(4096);
+        MiniCardTable cardTable = area.CARD_TABLE;
+        assertEquals(4096 / MiniCardTable.CARD_SIZE, cardTable.getCardCount());
+
+        // 只有老年代中的写入才会标记卡页
+        int young = area.allocate(null, 16);
+        area.putReference(young, young);
+        int old = area.OLD_GEN.allocate(MiniCardTable.CARD_SIZE + 16);
+        area.putReference(old + MiniCardTable.CARD_SIZE + 8, young);
+        assertFalse(cardTable.isDirty(0));
+        assertTrue(cardTable.isDirty(1));
+
+        assertTrue(cardTable.clearCard(1));
+        assertFalse(cardTable.clearCard(1));
+    }
+
+    /**
+     * 每个卡页记录覆盖其起始位置的对象
+     */
+    @Test
+    public void blockStart() {
+        MiniVirtualMachineMemory.MiniHeap old = new MiniVirtualMachineMemory.MiniHeap(0x1000, 4 * MiniCardTable.CARD_SIZE);
+        MiniCardTable cardTable = new MiniCardTable(old);
+
+        int small = old.allocate(24);
+        cardTable.recordObject(small, 24);
+        // 跨越第 1、2 个卡页的起始位置
+        int large = old.allocate(2 * MiniCardTable.CARD_SIZE);
+        cardTable.recordObject(large, 2 * MiniCardTable.CARD_SIZE);
+        int next = old.allocate(MiniCardTable.CARD_SIZE);
+        cardTable.recordObject(next, MiniCardTable.CARD_SIZE);
+
+        assertEquals(small, cardTable.blockStart(0));
+        assertEquals(large, cardTable.blockStart(1));
+        assertEquals(large, cardTable.blockStart(2));
+        assertEquals(next, cardTable.blockStart(3));
+    }
+}
@@ -0,0 +1,94 @@
+package mini.data.area;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.system.SystemUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniConstantPoolTest {
+
+    @Test
+    public void read() throws IOException {
+        byte[] classData = FileUtil.readBytes(SystemUtil.getUserInfo().getCurrentDir() + "\\src\\main\\java\\demo\\HelloStackVM.class");
+        // 跳过魔数和版本号
+        ByteBuffer input = ByteBuffer.wrap(classData).position(8);
+
+        MiniConstantPool pool = MiniConstantPool.read(input);
+        input.getShort(); // access_flags
+        int thisClass = Short.toUnsignedInt(input.getShort());
+
+        assertEquals(MiniConstantPool.CONSTANT_Class, pool.getTag(thisClass));
+        assertEquals("demo/HelloStackVM", pool.getClassName(thisClass));
+
+        // 符号引用解析为 record，可以直接按索引找到名称和描述符
+        for (int i = 1; i < pool.size(); i++) {
+            if (pool.getTag(i) != MiniConstantPool.CONSTANT_Fieldref) continue;
+            MiniConstantPool.MemberRef ref = pool.getMemberRef(i);
+            MiniConstantPool.NameAndType nameAndType = pool.getNameAndType(ref.nameAndTypeIndex());
+            assertNotNull(pool.getUtf8(nameAndType.nameIndex()));
+            assertNotNull(pool.getUtf8(nameAndType.descriptorIndex()));
+        }
+    }
+
+    @Test
+    public void twoSlotConstants() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeShort(7);
+        output.writeByte(MiniConstantPool.CONSTANT_Long);
+        output.writeLong(1L << 40);
+        output.writeByte(MiniConstantPool.CONSTANT_Double);
+        output.writeDouble(2.5);
+        output.writeByte(MiniConstantPool.CONSTANT_Float);
+        output.writeFloat(1.5f);
+        output.writeByte(MiniConstantPool.CONSTANT_Integer);
+        output.writeInt(-7);
+
+        MiniConstantPool pool = MiniConstantPool.read(ByteBuffer.wrap(bytes.toByteArray()));
+        // long、double 各占两项
+        assertEquals(1L << 40, pool.getLong(1));
+        assertEquals(2.5, pool.getDouble(3));
+        assertEquals(1.5f, pool.getFloat(5));
+        assertEquals(-7, pool.getInt(6));
+
+        assertNull(pool.getResolved(6));
+        pool.setResolved(6, "resolved");
+        assertEquals("resolved", pool.getResolved(6));
+    }
+
+    /**
+     * Utf8 只记录偏移，读取时才解码；堆外的 ByteBuffer 和非 ASCII 内容同样可以解码
+     */
+    @Test
+    public void lazyUtf8() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeShort(4);
+        output.writeByte(MiniConstantPool.CONSTANT_Utf8);
+        output.writeUTF("Code");
+        output.writeByte(MiniConstantPool.CONSTANT_Utf8);
+        output.writeUTF("常量池");
+        output.writeByte(MiniConstantPool.CONSTANT_Class);
+        output.writeShort(1);
+        byte[] data = bytes.toByteArray();
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        for (ByteBuffer input : new ByteBuffer[]{ByteBuffer.wrap(data), direct}) {
+            MiniConstantPool pool = MiniConstantPool.read(input);
+            assertFalse(input.hasRemaining());
+
+            assertTrue(pool.isUtf8(1, "Code"));
+            assertFalse(pool.isUtf8(1, "Cod"));
+            assertFalse(pool.isUtf8(2, "Code"));
+            assertEquals("常量池", pool.getUtf8(2));
+            assertEquals("Code", pool.getClassName(3));
+            assertSame(pool.getUtf8(1), pool.getUtf8(1));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package mini.data.area;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniHeapTest {
+
+    @Test
+    public void bumpPointer() {
+        MiniVirtualMachineMemory.MiniHeap heap = new MiniVirtualMachineMemory.MiniHeap(0x1000, 64);
+        assertEquals(0x1000, heap.allocate(16));
+        assertEquals(0x1010, heap.allocate(16));
+        // 空间不够时返回 0，top 保持不变
+        assertEquals(0, heap.allocate(40));
+        assertEquals(32, heap.getUsed());
+    }
+
+    /**
+     * 多个线程同时分配，每个线程拿到的地址互不重叠
+     */
+    @Test
+    public void concurrentAllocate() throws InterruptedException {
+        int threads = 4;
+        int count = 1000;
+        MiniVirtualMachineMemory.MiniHeap heap = new MiniVirtualMachineMemory.MiniHeap(0x1000, threads * count * 16);
+        Set<Integer> addresses = ConcurrentHashMap.newKeySet();
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    addresses.add(heap.allocate(16));
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * count, addresses.size());
+        assertFalse(addresses.contains(0));
+        assertEquals(0, heap.allocate(16));
+    }
+
+    @Test
+    public void tlabRefill() {
+        MiniVirtualMachineMemory.MiniHeapArea area = new MiniVirtualMachineMemory.MiniHeapArea(64 * 1024);
+        MiniTlab tlab = new MiniTlab(1024);
+
+        // 第一次分配时申请 TLAB，之后在 TLAB 中连续分配
+        int first = area.allocate(tlab, 24);
+        assertEquals(first + 24, area.allocate(tlab, 24));
+        assertEquals(1, tlab.getRefills());
+
+        // 可分配 1024 - 16 字节（末尾预留一个对象头），用完后重新申请，预留部分写成填充对象
+        Set<Integer> addresses = new HashSet<>();
+        for (int i = 2; i < 42; i++) {
+            addresses.add(area.allocate(tlab, 24));
+        }
+        assertEquals(0, tlab.getFree());
+        int next = area.allocate(tlab, 24);
+        assertEquals(2, tlab.getRefills());
+        assertEquals(16, tlab.getWastedBytes());
+        assertEquals(16, area.getTlabWastedBytes());
+        assertFalse(addresses.contains(next));
+
+        int filler = first + 1024 - 16;
+        assertEquals(MiniObjectLayout.FILLER_CLASS_ID, area.YOUNG_GEN.EDEN.getInt(filler + MiniObjectLayout.CLASS_ID_OFFSET));
+        assertEquals(16, area.YOUNG_GEN.EDEN.getInt(filler + MiniObjectLayout.LENGTH_OFFSET));
+    }
+
+    /**
+     * 放不进 TLAB 的大对象直接在 EDEN 中分配，不丢弃当前 TLAB
+     */
+    @Test
+    public void largeObjectOutsideTlab() {
+        MiniVirtualMachineMemory.MiniHeapArea area = new MiniVirtualMachineMemory.MiniHeapArea(64 * 1024);
+        MiniTlab tlab = new MiniTlab(1024);
+        area.allocate(tlab, 24);
+
+        area.allocate(tlab, 2048);
+        assertEquals(1, tlab.getRefills());
+        assertEquals(1, tlab.getSlowAllocations());
+        assertEquals(1, area.getSharedAllocations());
+    }
+
+    @Test
+    public void exhausted() {
+        MiniVirtualMachineMemory.MiniHeapArea area = new MiniVirtualMachineMemory.MiniHeapArea(1024);
+        assertThrows(OutOfMemoryError.class, () -> area.allocate(null, 2048));
+
+        // 耗尽时通知处理方（如触发垃圾回收），处理方没有释放出空间时仍然抛出 OutOfMemoryError
+        int[] calls = {0};
+        area.setExhaustionHandler((space, size) -> {
+            calls[0]++;
+            return false;
+        });
+        assertThrows(OutOfMemoryError.class, () -> area.allocate(null, 2048));
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void offHeap() {
+        try (MiniVirtualMachineMemory.MiniHeapArea area = new MiniVirtualMachineMemory.MiniHeapArea(1024, 512, 2048, true)) {
+            assertTrue(area.YOUNG_GEN.EDEN.isOffHeap());
+            assertEquals(area.YOUNG_GEN.SURVIVOR_1.getBase() + 512, area.OLD_GEN.getBase());
+
+            int address = area.allocate(null, 16);
+            area.putLong(address, 0x1234_5678_9ABC_DEF0L);
+            area.putInt(address + 8, -7);
+            assertEquals(0x1234_5678_9ABC_DEF0L, area.getLong(address));
+            assertEquals(-7, area.getInt(address + 8));
+
+            // 跨空间整块复制
+            int target = area.OLD_GEN.allocate(16);
+            area.copy(address, target, 16);
+            assertEquals(0x1234_5678_9ABC_DEF0L, area.getLong(target));
+            assertEquals(-7, area.getInt(target + 8));
+        }
+    }
+
+    /**
+     * 调整大小时保留已分配的内容，地址不变；不能缩小到已使用的部分以下，也不能超过预留的大小
+     */
+    @Test
+    public void resize() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            MiniVirtualMachineMemory.MiniHeap space = new MiniVirtualMachineMemory.MiniHeap(0x1000, 64, 256, offHeap);
+            int address = space.allocate(32);
+            space.putLong(address + 24, 0x1234_5678_9ABC_DEF0L);
+            assertEquals(0, space.allocate(64));
+
+            space.resize(128);
+            assertEquals(128, space.getCapacity());
+            assertEquals(0x1234_5678_9ABC_DEF0L, space.getLong(address + 24));
+            assertEquals(address + 32, space.allocate(64));
+
+            space.resize(1024);
+            assertEquals(256, space.getCapacity());
+            assertThrows(IllegalArgumentException.class, () -> space.resize(64));
+            space.close();
+        }
+    }
+
+    @Test
+    public void sizeProperty() {
+        System.setProperty("mini.heap.test", "64m");
+        assertEquals(64 * 1024 * 1024, MiniVirtualMachineMemory.MiniHeapArea.sizeProperty("mini.heap.test", 0));
+        System.setProperty("mini.heap.test", "1000");
+        assertEquals(1000, MiniVirtualMachineMemory.MiniHeapArea.sizeProperty("mini.heap.test", 0));
+        System.clearProperty("mini.heap.test");
+        assertEquals(8, MiniVirtualMachineMemory.MiniHeapArea.sizeProperty("mini.heap.test", 8));
+    }
+}
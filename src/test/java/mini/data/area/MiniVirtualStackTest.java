@@ -0,0 +1,61 @@
+package mini.data.area;
+
+import mini.cl.MiniStackFrame;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniVirtualStackTest {
+
+    @Test
+    public void pushAndPopFrame() {
+        MiniVirtualStack stack = new MiniVirtualStack(16);
+
+        MiniStackFrame caller = stack.pushFrame(null, "main", 2, 2);
+        caller.getOperandStack().pushInt(3);
+        caller.getOperandStack().pushInt(4);
+
+        MiniStackFrame callee = stack.pushFrame(null, "add", 2, 2);
+        caller.getOperandStack().popArguments(callee.getLocalVariableTable(), 2);
+        assertEquals(2, stack.getDepth());
+        assertEquals(8, stack.getUsedSlots());
+        assertEquals(3, callee.getLocalVariableTable().getInt(0));
+        assertEquals(4, callee.getLocalVariableTable().getInt(1));
+
+        stack.popFrame();
+        assertEquals(4, stack.getUsedSlots());
+
+        // 同一深度的栈帧对象被复用
+        assertSame(callee, stack.pushFrame(null, "add", 2, 2));
+        assertEquals(8, stack.getMaxUsedSlots());
+    }
+
+    /**
+     * 扩容后已有栈帧的内容不变，并改为指向新的数组
+     */
+    @Test
+    public void grow() {
+        MiniVirtualStack stack = new MiniVirtualStack(8, 64, MiniTlab.DEFAULT_SIZE);
+        MiniStackFrame caller = stack.pushFrame(null, "main", 2, 2);
+        caller.getLocalVariableTable().setRef(0, 0x1234);
+        caller.getOperandStack().pushInt(7);
+
+        MiniStackFrame callee = stack.pushFrame(null, "deep", 6, 4);
+        assertEquals(16, stack.getCommittedSlots());
+        assertEquals(0x1234, caller.getLocalVariableTable().getRef(0));
+        assertEquals(7, caller.getOperandStack().popInt());
+        callee.getLocalVariableTable().setInt(5, 42);
+        assertEquals(42, callee.getLocalVariableTable().getInt(5));
+
+        assertThrows(StackOverflowError.class, () -> stack.pushFrame(null, "overflow", 30, 30));
+        assertEquals(64, stack.getCapacity());
+    }
+
+    @Test
+    public void overflow() {
+        MiniVirtualStack stack = new MiniVirtualStack(8);
+        stack.pushFrame(null, "a", 2, 2);
+        stack.pushFrame(null, "b", 2, 2);
+        assertThrows(StackOverflowError.class, () -> stack.pushFrame(null, "c", 1, 0));
+    }
+}
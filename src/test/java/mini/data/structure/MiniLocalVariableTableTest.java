@@ -0,0 +1,41 @@
+package mini.data.structure;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniLocalVariableTableTest {
+
+    @Test
+    public void twoSlotValues() {
+        MiniLocalVariableTable locals = new MiniLocalVariableTable(5);
+        locals.setInt(0, 7);
+        locals.setLong(1, 0x1234_5678_9ABC_DEF0L);
+        locals.setDouble(3, 3.14);
+
+        assertEquals(7, locals.getInt(0));
+        assertEquals(0x1234_5678_9ABC_DEF0L, locals.getLong(1));
+        assertEquals(3.14, locals.getDouble(3));
+    }
+
+    /**
+     * 参数按原顺序从操作数栈复制到局部变量表，eg: add(int a, long b, Object c)
+     */
+    @Test
+    public void popArguments() {
+        MiniOperandStack stack = new MiniOperandStack(5);
+        stack.pushInt(1);
+        stack.pushLong(-2L);
+        stack.pushRef(0x10000);
+
+        MiniLocalVariableTable locals = new MiniLocalVariableTable(4);
+        stack.popArguments(locals, 4);
+
+        assertTrue(stack.isEmpty());
+        assertEquals(1, locals.getInt(0));
+        assertEquals(-2L, locals.getLong(1));
+        assertEquals(0x10000, locals.getRef(3));
+        assertTrue(locals.isRef(3));
+        assertFalse(locals.isRef(0));
+    }
+}
@@ -0,0 +1,32 @@
+package mini.data.structure;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniOperandStackTest {
+
+    @Test
+    public void pushAndPop() {
+        MiniOperandStack stack = new MiniOperandStack(3);
+        stack.pushInt(3);
+        stack.pushRef(0x10000);
+        stack.dup();
+
+        assertEquals(3, stack.size());
+        assertEquals(0x10000, stack.popRef());
+        assertEquals(0x10000, stack.popRef());
+        assertEquals(3, stack.popInt());
+        assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void overflow() {
+        MiniOperandStack stack = new MiniOperandStack(1);
+        stack.pushInt(1);
+        assertThrows(IllegalStateException.class, () -> stack.pushInt(2));
+
+        stack.popInt();
+        assertThrows(IllegalStateException.class, stack::popInt);
+    }
+}
@@ -0,0 +1,72 @@
+package mini.gc;
+
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniVirtualMachineMemory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniAdaptiveSizePolicyTest {
+    private static final int K = 1024;
+
+    private MiniVirtualMachineMemory.MiniHeapArea heap;
+    private MiniCopyingCollector collector;
+
+    @BeforeEach
+    public void setUp() {
+        heap = new MiniVirtualMachineMemory.MiniHeapArea(128 * K, 512 * K, 32 * K, 64 * K, 256 * K, 256 * K, false);
+        collector = new MiniCopyingCollector(heap, new MiniRootSet(new MiniMetaSpace(), List::of), MiniGcWorkers.DEFAULT);
+    }
+
+    /**
+     * 停顿超过目标时缩小 EDEN
+     */
+    @Test
+    public void shrinkEdenForPauseGoal() {
+        MiniAdaptiveSizePolicy policy = new MiniAdaptiveSizePolicy(heap, collector, 1_000_000L, 99);
+        policy.adjust(5_000_000L, 100_000_000L, 0, new long[MiniObjectLayout.MAX_AGE + 1]);
+        assertTrue(heap.YOUNG_GEN.EDEN.getCapacity() < 128 * K);
+    }
+
+    /**
+     * 回收时间占比超过 1 / (1 + timeRatio) 时扩大 EDEN，但不超过预留的大小
+     */
+    @Test
+    public void growEdenForThroughput() {
+        MiniAdaptiveSizePolicy policy = new MiniAdaptiveSizePolicy(heap, collector, 1_000_000_000L, 99);
+        policy.adjust(1_000_000L, 10_000_000L, 0, new long[MiniObjectLayout.MAX_AGE + 1]);
+        int grown = heap.YOUNG_GEN.EDEN.getCapacity();
+        assertTrue(grown > 128 * K);
+
+        for (int i = 0; i < 20; i++) {
+            policy.adjust(1_000_000L, 10_000_000L, 0, new long[MiniObjectLayout.MAX_AGE + 1]);
+        }
+        assertEquals(512 * K, heap.YOUNG_GEN.EDEN.getCapacity());
+    }
+
+    /**
+     * Survivor 按存活字节数调整到 50% 占用率，晋升阈值取累计字节数超过目标占用量的年龄
+     */
+    @Test
+    public void survivorAndTenuringThreshold() {
+        MiniAdaptiveSizePolicy policy = new MiniAdaptiveSizePolicy(heap, collector, 1_000_000_000L, 99);
+        long[] ages = new long[MiniObjectLayout.MAX_AGE + 1];
+        ages[1] = 4 * K;
+        ages[2] = 4 * K;
+        ages[3] = 4 * K;
+        policy.adjust(1_000_000L, 0, 8 * K, ages);
+
+        assertEquals(16 * K, heap.YOUNG_GEN.getTo().getCapacity());
+        assertEquals(16 * K, heap.YOUNG_GEN.getFrom().getCapacity());
+        assertEquals(3, collector.getTenuringThreshold());
+
+        // 不超过设置的上限
+        collector.setTenuringThreshold(2);
+        policy.adjust(1_000_000L, 0, 8 * K, ages);
+        assertEquals(2, collector.getTenuringThreshold());
+    }
+}
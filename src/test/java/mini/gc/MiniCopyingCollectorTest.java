@@ -0,0 +1,179 @@
+package mini.gc;
+
+import mini.MiniVirtualMachine;
+import mini.cl.MiniClass;
+import mini.cl.MiniStackFrame;
+import mini.data.area.MiniCardTable;
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.area.MiniVirtualStack;
+import mini.data.structure.MiniLocalVariableTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniCopyingCollectorTest {
+    private MiniVirtualMachineMemory.MiniHeapArea heap;
+    private MiniVirtualStack stack;
+    private MiniCopyingCollector collector;
+    private MiniClass clazz;
+    private int idOffset;
+    private int nameOffset;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        MiniVirtualMachine.start(null);
+        // TestObject { int id; String name; }
+        clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        idOffset = clazz.getField("id", "I").getOffset();
+        nameOffset = clazz.getField("name", "Ljava/lang/String;").getOffset();
+
+        heap = new MiniVirtualMachineMemory.MiniHeapArea(64 * 1024);
+        stack = new MiniVirtualStack(16);
+        collector = new MiniCopyingCollector(heap, new MiniMetaSpace(), () -> List.of(stack));
+    }
+
+    @Test
+    public void copyLiveObjects() {
+        MiniStackFrame frame = stack.pushFrame(null, "main", 2, 2);
+        int object = newObject(clazz.getClassId(), clazz.getInstanceSize(), 0);
+        int name = newObject(MiniObjectLayout.CHAR_ARRAY_CLASS_ID, 24, 3);
+        heap.putInt(object + nameOffset, name);
+        frame.getLocalVariableTable().setRef(0, object);
+        // 没有被引用的对象
+        newObject(clazz.getClassId(), clazz.getInstanceSize(), 0);
+
+        MiniCopyingCollector.Result result = collector.collect();
+
+        assertEquals(72, result.youngBefore());
+        assertEquals(48, result.youngAfter());
+        assertEquals(0, heap.YOUNG_GEN.EDEN.getUsed());
+
+        // 引用已经更新为 To（现在的 From）中的新地址
+        int moved = frame.getLocalVariableTable().getRef(0);
+        assertTrue(heap.YOUNG_GEN.getFrom().contains(moved));
+        assertEquals(clazz.getClassId(), MiniObjectLayout.getClassId(heap, moved));
+        assertEquals(1, MiniObjectLayout.getAge(heap.getLong(moved)));
+        int movedName = heap.getInt(moved + nameOffset);
+        assertTrue(heap.YOUNG_GEN.getFrom().contains(movedName));
+        assertEquals(3, heap.getInt(movedName + MiniObjectLayout.LENGTH_OFFSET));
+    }
+
+    @Test
+    public void promoteAndRememberOldToYoung() {
+        collector.setTenuringThreshold(2);
+        MiniStackFrame frame = stack.pushFrame(null, "main", 2, 2);
+        frame.getOperandStack().pushRef(newObject(clazz.getClassId(), clazz.getInstanceSize(), 0));
+
+        collector.collect();
+        MiniCopyingCollector.Result result = collector.collect();
+
+        // 第二次回收时年龄达到阈值，晋升到老年代
+        int promoted = frame.getOperandStack().peekRef();
+        assertTrue(heap.OLD_GEN.contains(promoted));
+        assertEquals(clazz.getInstanceSize(), result.promotedBytes());
+        assertEquals(0, result.youngAfter());
+
+        // 老年代对象引用的新生代对象同样存活
+        int name = newObject(MiniObjectLayout.CHAR_ARRAY_CLASS_ID, 24, 3);
+        heap.putReference(promoted + nameOffset, name);
+        result = collector.collect();
+        assertEquals(1, result.dirtyCards());
+        int movedName = heap.getInt(promoted + nameOffset);
+        assertNotEquals(name, movedName);
+        assertTrue(heap.YOUNG_GEN.getFrom().contains(movedName));
+        assertEquals(3, collector.getCollections());
+    }
+
+    /**
+     * 只扫描脏卡页：没有被写过的老年代对象不会让新生代对象存活，扫描后仍然指向新生代的卡页保持为脏
+     */
+    @Test
+    public void scanDirtyCardsOnly() {
+        collector.setTenuringThreshold(0);
+        MiniStackFrame frame = stack.pushFrame(null, "main", 2, 2);
+        // 100 个对象直接晋升，占用多个卡页
+        int[] promoted = new int[100];
+        for (int i = 0; i < promoted.length; i++) {
+            int object = newObject(clazz.getClassId(), clazz.getInstanceSize(), 0);
+            frame.getLocalVariableTable().setRef(0, object);
+            collector.collect();
+            promoted[i] = frame.getLocalVariableTable().getRef(0);
+        }
+        assertTrue(heap.OLD_GEN.getUsed() > 2 * MiniCardTable.CARD_SIZE);
+
+        // 未经写屏障直接写入的引用不会被发现，对应的新生代对象被回收
+        collector.setTenuringThreshold(MiniObjectLayout.MAX_AGE);
+        heap.putInt(promoted[0] + nameOffset, newObject(MiniObjectLayout.CHAR_ARRAY_CLASS_ID, 24, 3));
+        int last = promoted[promoted.length - 1];
+        heap.putReference(last + nameOffset, newObject(MiniObjectLayout.CHAR_ARRAY_CLASS_ID, 24, 3));
+        MiniCopyingCollector.Result result = collector.collect();
+
+        assertEquals(1, result.dirtyCards());
+        assertEquals(24, result.youngAfter());
+        assertTrue(heap.YOUNG_GEN.getFrom().contains(heap.getInt(last + nameOffset)));
+        assertTrue(heap.CARD_TABLE.isDirty(heap.CARD_TABLE.cardOf(last + nameOffset)));
+    }
+
+    /**
+     * EDEN 耗尽时通过 ExhaustionHandler 触发回收，分配随后成功
+     */
+    @Test
+    public void collectOnExhausted() {
+        heap.setExhaustionHandler(collector::onExhausted);
+        for (int i = 0; i < 10_000; i++) {
+            heap.allocate(null, 24);
+        }
+        assertTrue(collector.getCollections() > 0);
+    }
+
+    /**
+     * 多个线程同时遇到同一个对象时只复制一份，所有引用都指向同一个新地址
+     */
+    @Test
+    public void parallelCopyOnce() {
+        List<MiniVirtualStack> stacks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            stacks.add(new MiniVirtualStack(256));
+        }
+        MiniCopyingCollector parallel = new MiniCopyingCollector(heap,
+                new MiniRootSet(new MiniMetaSpace(), () -> stacks), new MiniGcWorkers(4));
+        // 每个线程栈都引用同一批对象：shared[i].name = shared[i + 1]
+        int count = 200;
+        int[] shared = new int[count];
+        for (int i = 0; i < count; i++) {
+            shared[i] = newObject(clazz.getClassId(), clazz.getInstanceSize(), 0);
+            heap.putInt(shared[i] + idOffset, i);
+            if (i > 0) heap.putInt(shared[i - 1] + nameOffset, shared[i]);
+        }
+        for (MiniVirtualStack s : stacks) {
+            MiniStackFrame frame = s.pushFrame(null, "main", count, 1);
+            for (int i = 0; i < count; i++) {
+                frame.getLocalVariableTable().setRef(i, shared[count - 1 - i]);
+            }
+        }
+
+        parallel.collect();
+
+        MiniLocalVariableTable first = stacks.get(0).peekFrame().getLocalVariableTable();
+        for (MiniVirtualStack s : stacks) {
+            MiniLocalVariableTable locals = s.peekFrame().getLocalVariableTable();
+            for (int i = 0; i < count; i++) {
+                int moved = locals.getRef(i);
+                assertEquals(first.getRef(i), moved);
+                assertEquals(count - 1 - i, heap.getInt(moved + idOffset));
+                if (i > 0) assertEquals(locals.getRef(i - 1), heap.getInt(moved + nameOffset));
+            }
+        }
+    }
+
+    private int newObject(int classId, int size, int length) {
+        return MiniObjectLayout.allocate(heap, null, size, classId, length);
+    }
+}
@@ -0,0 +1,173 @@
+package mini.gc;
+
+import mini.MiniVirtualMachine;
+import mini.cl.MiniClass;
+import mini.cl.MiniStackFrame;
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.area.MiniVirtualStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniMarkCompactCollectorTest {
+    private MiniVirtualMachineMemory.MiniHeapArea heap;
+    private MiniVirtualStack stack;
+    private MiniMarkCompactCollector collector;
+    private MiniClass clazz;
+    private int idOffset;
+    private int nameOffset;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        MiniVirtualMachine.start(null);
+        // TestObject { int id; String name; }
+        clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        idOffset = clazz.getField("id", "I").getOffset();
+        nameOffset = clazz.getField("name", "Ljava/lang/String;").getOffset();
+
+        heap = new MiniVirtualMachineMemory.MiniHeapArea(256 * 1024);
+        stack = new MiniVirtualStack(256);
+        collector = new MiniMarkCompactCollector(heap, new MiniRootSet(new MiniMetaSpace(), () -> List.of(stack)), MiniGcWorkers.DEFAULT);
+    }
+
+    @Test
+    public void slideLiveObjects() {
+        MiniStackFrame frame = stack.pushFrame(null, "main", 2, 2);
+        MiniVirtualMachineMemory.MiniHeap old = heap.OLD_GEN;
+        // 老年代：垃圾、a、垃圾、b，a.name = b
+        newObject(old, 0);
+        int a = newObject(old, 1);
+        newObject(old, 0);
+        int b = newObject(old, 2);
+        heap.putInt(a + nameOffset, b);
+        heap.putLong(a + MiniObjectLayout.MARK_OFFSET, MiniObjectLayout.withAge(MiniObjectLayout.MARK_UNLOCKED, 7));
+        frame.getLocalVariableTable().setRef(0, a);
+        // 新生代中的存活对象引用老年代的 b
+        int young = newObject(heap.YOUNG_GEN.EDEN, 3);
+        heap.putInt(young + nameOffset, b);
+        frame.getLocalVariableTable().setRef(1, young);
+
+        MiniMarkCompactCollector.Result result = collector.collect();
+
+        int size = clazz.getInstanceSize();
+        assertEquals(4 * size, result.oldBefore());
+        assertEquals(2 * size, result.oldAfter());
+        assertEquals(3, result.liveObjects());
+        assertEquals(2 * size, old.getUsed());
+
+        // 存活对象依次滑动到老年代开头，引用和内容随之更新，标记字还原
+        int movedA = frame.getLocalVariableTable().getRef(0);
+        int movedB = old.getBase() + size;
+        assertEquals(old.getBase(), movedA);
+        assertEquals(movedB, heap.getInt(movedA + nameOffset));
+        assertEquals(movedB, heap.getInt(young + nameOffset));
+        assertEquals(young, frame.getLocalVariableTable().getRef(1));
+        assertEquals(1, heap.getInt(movedA + idOffset));
+        assertEquals(2, heap.getInt(movedB + idOffset));
+        assertEquals(7, MiniObjectLayout.getAge(heap.getLong(movedA)));
+        assertEquals(MiniObjectLayout.MARK_UNLOCKED, heap.getLong(movedB));
+
+        // 整理后仍然用指针碰撞分配
+        assertEquals(old.getBase() + 2 * size, old.allocate(size));
+    }
+
+    /**
+     * 很长的链表也不会耗尽宿主的线程栈
+     */
+    @Test
+    public void deepObjectGraph() {
+        MiniStackFrame frame = stack.pushFrame(null, "main", 1, 1);
+        int count = heap.OLD_GEN.getCapacity() / clazz.getInstanceSize() / 2;
+        int head = 0;
+        for (int i = 0; i < count; i++) {
+            newObject(heap.OLD_GEN, -1);
+            int node = newObject(heap.OLD_GEN, i);
+            heap.putInt(node + nameOffset, head);
+            head = node;
+        }
+        frame.getLocalVariableTable().setRef(0, head);
+
+        MiniMarkCompactCollector.Result result = collector.collect();
+
+        assertEquals(count, result.liveObjects());
+        int node = frame.getLocalVariableTable().getRef(0);
+        for (int i = count - 1; i >= 0; i--) {
+            assertEquals(i, heap.getInt(node + idOffset));
+            node = heap.getInt(node + nameOffset);
+        }
+        assertEquals(0, node);
+    }
+
+    /**
+     * 多个线程并行标记，每个对象只被标记、统计一次
+     */
+    @Test
+    public void parallelMark() {
+        MiniMarkCompactCollector parallel = new MiniMarkCompactCollector(heap,
+                new MiniRootSet(new MiniMetaSpace(), () -> List.of(stack)), new MiniGcWorkers(4));
+        MiniStackFrame frame = stack.pushFrame(null, "main", 100, 1);
+        // 100 条链表汇入同一条公共链表
+        int common = 0;
+        for (int i = 0; i < 500; i++) {
+            int node = newObject(heap.OLD_GEN, i);
+            heap.putInt(node + nameOffset, common);
+            common = node;
+        }
+        for (int i = 0; i < 100; i++) {
+            int head = common;
+            for (int j = 0; j < 10; j++) {
+                newObject(heap.OLD_GEN, -1);
+                int node = newObject(heap.OLD_GEN, j);
+                heap.putInt(node + nameOffset, head);
+                head = node;
+            }
+            frame.getLocalVariableTable().setRef(i, head);
+        }
+
+        MiniMarkCompactCollector.Result result = parallel.collect();
+
+        assertEquals(500 + 100 * 10, result.liveObjects());
+        assertEquals((500 + 100 * 10) * clazz.getInstanceSize(), result.oldAfter());
+        int node = frame.getLocalVariableTable().getRef(99);
+        for (int j = 0; j < 10; j++) {
+            node = heap.getInt(node + nameOffset);
+        }
+        assertEquals(499, heap.getInt(node + idOffset));
+    }
+
+    /**
+     * 老年代放不下新生代时，分代回收先执行 Full GC
+     */
+    @Test
+    public void fullBeforeYoungWhenOldIsFull() {
+        MiniGenerationalCollector generational = new MiniGenerationalCollector(heap, new MiniMetaSpace(), () -> List.of(stack));
+        generational.getYoungCollector().setTenuringThreshold(0);
+        heap.setExhaustionHandler(generational::onExhausted);
+        MiniStackFrame frame = stack.pushFrame(null, "main", 1, 1);
+        for (int i = 0; i < 100_000; i++) {
+            int object = newObject(null, i);
+            if (i % 1000 == 0) frame.getLocalVariableTable().setRef(0, object);
+        }
+
+        assertTrue(generational.getFullCollector().getCollections() > 0);
+        assertEquals(99_000, heap.getInt(frame.getLocalVariableTable().getRef(0) + idOffset));
+    }
+
+    /**
+     * @param space 为 null 时通过 EDEN 的分配入口申请
+     */
+    private int newObject(MiniVirtualMachineMemory.MiniHeap space, int id) {
+        int size = clazz.getInstanceSize();
+        int address = space == null
+                ? MiniObjectLayout.allocate(heap, null, size, clazz.getClassId(), 0)
+                : MiniObjectLayout.initialize(space, space.allocate(size), size, clazz.getClassId(), 0);
+        heap.putInt(address + idOffset, id);
+        return address;
+    }
+}
@@ -0,0 +1,73 @@
+package mini.management;
+
+import mini.MiniVirtualMachine;
+import mini.cl.MiniClass;
+import mini.cl.MiniStackFrame;
+import mini.data.area.MiniMetaSpace;
+import mini.data.area.MiniObjectLayout;
+import mini.data.area.MiniTlab;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.data.area.MiniVirtualStack;
+import mini.gc.MiniCopyingCollector;
+import mini.gc.MiniGcStats;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniManagementTest {
+
+    @Test
+    public void spacesAndCollector() throws Exception {
+        MiniVirtualMachine.start(null);
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        MiniVirtualMachineMemory.MiniHeapArea heap = new MiniVirtualMachineMemory.MiniHeapArea(64 * 1024);
+        MiniVirtualStack stack = new MiniVirtualStack(16);
+        MiniCopyingCollector collector = new MiniCopyingCollector(heap, new MiniMetaSpace(), () -> List.of(stack));
+        List<MiniMemorySpace> spaces = MiniManagement.memorySpaces(heap);
+        MiniMemorySpace eden = spaces.get(0);
+        MiniGarbageCollector young = new MiniGarbageCollector("Young", collector.getStats());
+
+        // 在 TLAB 中分配 10 个对象，第 1 个保持存活
+        MiniTlab tlab = stack.getTlab();
+        MiniStackFrame frame = stack.pushFrame(null, "main", 1, 1);
+        for (int i = 0; i < 10; i++) {
+            int address = MiniObjectLayout.allocate(heap, tlab, clazz.getInstanceSize(), clazz.getClassId(), 0);
+            if (i == 0) frame.getLocalVariableTable().setRef(0, address);
+        }
+        assertEquals(64 * 1024, eden.getCapacity());
+        assertEquals(MiniTlab.DEFAULT_SIZE, eden.getUsed());
+        assertTrue(eden.getAllocationRate() > 0);
+        // 读取不改变分配速率
+        assertEquals(eden.getAllocationRate(), eden.getAllocationRate());
+
+        collector.collect();
+
+        // TLAB 作废时汇总对象个数，存活的对象复制到 Survivor
+        assertEquals(10, eden.getAllocatedObjects());
+        assertEquals(MiniTlab.DEFAULT_SIZE, eden.getAllocatedBytes());
+        assertEquals(0, eden.getUsed());
+        assertEquals(1, spaces.get(1).getAllocatedObjects() + spaces.get(2).getAllocatedObjects());
+        assertEquals(1, young.getCollectionCount());
+        assertEquals(1, Arrays.stream(young.getPauseHistogram()).sum());
+        assertEquals(clazz.getInstanceSize(), young.getTenuringDistribution()[1]);
+        assertEquals(0, young.getPromotedBytes());
+    }
+
+    @Test
+    public void register() throws Exception {
+        MiniVirtualMachine.start(null);
+        MiniManagement.register();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName eden = new ObjectName(MiniManagement.DOMAIN + ":type=MemorySpace,name=Eden");
+        assertEquals((long) MiniVirtualMachineMemory.HEAP_AREA.YOUNG_GEN.EDEN.getCapacity(), server.getAttribute(eden, "Capacity"));
+        ObjectName young = new ObjectName(MiniManagement.DOMAIN + ":type=GarbageCollector,name=Young");
+        assertEquals(MiniGcStats.PAUSE_BUCKET_MICROS.length + 1, ((long[]) server.getAttribute(young, "PauseHistogram")).length);
+    }
+}
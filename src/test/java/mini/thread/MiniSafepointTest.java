@@ -0,0 +1,215 @@
+package mini.thread;
+
+import mini.data.area.MiniVirtualStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniSafepointTest {
+
+    /**
+     * 模拟一个一直在执行、不断轮询的线程
+     */
+    private static final class Spinner implements Runnable {
+        final MiniThread thread = new MiniThread("spinner", new MiniVirtualStack(), null);
+        final CountDownLatch running = new CountDownLatch(1);
+        volatile boolean stop;
+        volatile long polls;
+
+        @Override
+        public void run() {
+            thread.mount();
+            MiniSafepoint.enter(thread);
+            running.countDown();
+            while (!stop) {
+                MiniSafepoint.poll();
+                polls++;
+            }
+            MiniSafepoint.leave(thread);
+            thread.unmount();
+        }
+    }
+
+    private static Thread start(Spinner spinner) throws InterruptedException {
+        MiniThread.register(spinner.thread);
+        Thread host = new Thread(spinner);
+        host.start();
+        spinner.running.await();
+        return host;
+    }
+
+    private static void stop(Spinner spinner, Thread host) throws InterruptedException {
+        spinner.stop = true;
+        host.join();
+        spinner.thread.terminate();
+    }
+
+    /**
+     * 安全点中其他线程都已停下，不再轮询；结束后继续执行
+     */
+    @Test
+    public void synchronize() throws InterruptedException {
+        Spinner spinner = new Spinner();
+        Thread host = start(spinner);
+        long safepoints = MiniSafepoint.getSafepoints();
+        try {
+            String result = MiniSafepoint.synchronize("test", () -> {
+                assertEquals(MiniSafepoint.SAFE, spinner.thread.getSafepointState());
+                long polls = spinner.polls;
+                Thread.onSpinWait();
+                assertEquals(polls, spinner.polls);
+                return "done";
+            });
+            assertEquals("done", result);
+
+            long polls = spinner.polls;
+            while (spinner.polls == polls) {
+                Thread.onSpinWait();
+            }
+        } finally {
+            stop(spinner, host);
+        }
+
+        assertEquals(safepoints + 1, MiniSafepoint.getSafepoints());
+        assertTrue(MiniSafepoint.getTotalTimeToSafepointNanos() > 0);
+        assertTrue(MiniSafepoint.getMaxTimeToSafepointNanos() <= MiniSafepoint.getTotalTimeToSafepointNanos());
+    }
+
+    /**
+     * 执行中的线程在轮询时自己执行握手操作；处于 SAFE 的线程由发起方代为执行
+     */
+    @Test
+    public void handshake() throws InterruptedException {
+        Spinner spinner = new Spinner();
+        Thread host = start(spinner);
+        AtomicReference<Thread> executor = new AtomicReference<>();
+        try {
+            MiniSafepoint.handshake(spinner.thread, thread -> {
+                assertSame(spinner.thread, thread);
+                executor.set(Thread.currentThread());
+            });
+            assertSame(host, executor.get());
+
+            spinner.stop = true;
+            host.join();
+            MiniSafepoint.handshake(spinner.thread, thread -> executor.set(Thread.currentThread()));
+            assertSame(Thread.currentThread(), executor.get());
+
+            assertThrows(IllegalStateException.class, () -> MiniSafepoint.handshake(spinner.thread, thread -> {
+                throw new IllegalStateException();
+            }));
+        } finally {
+            stop(spinner, host);
+        }
+    }
+
+    /**
+     * 在新的宿主线程上以 RUNNING 状态执行 body，body 中的异常记录到 failure
+     */
+    private static Thread run(MiniThread thread, Runnable body, AtomicReference<Throwable> failure) {
+        MiniThread.register(thread);
+        return Thread.ofPlatform().daemon().name(thread.getName()).start(() -> {
+            thread.mount();
+            MiniSafepoint.enter(thread);
+            try {
+                body.run();
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                MiniSafepoint.leave(thread);
+                thread.unmount();
+            }
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 握手的发起方等待期间不阻塞安全点：安全点进行中目标线程不能被代为执行，发起方等到安全点结束后再完成握手
+     */
+    @Test
+    public void handshakeDuringSynchronize() throws InterruptedException {
+        MiniThread target = new MiniThread("target", new MiniVirtualStack(), null);
+        MiniThread requester = new MiniThread("requester", new MiniVirtualStack(), null);
+        MiniThread.register(target);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<MiniThread> handshaken = new AtomicReference<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch synchronizing = new CountDownLatch(1);
+        try {
+            Thread host = run(requester, () -> {
+                entered.countDown();
+                await(synchronizing);
+                MiniSafepoint.handshake(target, handshaken::set);
+                assertEquals(MiniSafepoint.RUNNING, requester.getSafepointState());
+            }, failure);
+            entered.await();
+
+            AtomicReference<Integer> requesterState = new AtomicReference<>();
+            Thread safepoint = Thread.ofPlatform().daemon().start(() -> MiniSafepoint.synchronize("test",
+                    () -> requesterState.set(requester.getSafepointState())));
+            // 安全点开始后才发起握手，此时它正在等待仍处于 RUNNING 的发起方
+            while (!MiniSafepoint.isSynchronizing()) {
+                Thread.onSpinWait();
+            }
+            synchronizing.countDown();
+
+            safepoint.join(TimeUnit.SECONDS.toMillis(10));
+            host.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(safepoint.isAlive());
+            assertFalse(host.isAlive());
+            assertNull(failure.get());
+            assertEquals(MiniSafepoint.SAFE, requesterState.get());
+            assertSame(target, handshaken.get());
+        } finally {
+            target.terminate();
+            requester.terminate();
+        }
+    }
+
+    /**
+     * 两个执行中的线程同时向对方发起握手，各自由对方代为执行
+     */
+    @Test
+    public void mutualHandshake() throws InterruptedException {
+        MiniThread first = new MiniThread("first", new MiniVirtualStack(), null);
+        MiniThread second = new MiniThread("second", new MiniVirtualStack(), null);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<MiniThread> firstHandshaken = new AtomicReference<>();
+        AtomicReference<MiniThread> secondHandshaken = new AtomicReference<>();
+        CountDownLatch entered = new CountDownLatch(2);
+        try {
+            Thread firstHost = run(first, () -> {
+                entered.countDown();
+                await(entered);
+                MiniSafepoint.handshake(second, secondHandshaken::set);
+            }, failure);
+            Thread secondHost = run(second, () -> {
+                entered.countDown();
+                await(entered);
+                MiniSafepoint.handshake(first, firstHandshaken::set);
+            }, failure);
+
+            firstHost.join(TimeUnit.SECONDS.toMillis(10));
+            secondHost.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(firstHost.isAlive());
+            assertFalse(secondHost.isAlive());
+            assertNull(failure.get());
+            assertSame(first, firstHandshaken.get());
+            assertSame(second, secondHandshaken.get());
+        } finally {
+            first.terminate();
+            second.terminate();
+        }
+    }
+}
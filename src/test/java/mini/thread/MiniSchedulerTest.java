@@ -0,0 +1,62 @@
+package mini.thread;
+
+import mini.MiniVirtualMachine;
+import mini.cl.MiniClass;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.gc.MiniGenerationalCollector;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniSchedulerTest {
+
+    /**
+     * 大量线程在两个载体线程上按很小的时间片轮流执行
+     */
+    @Test
+    public void runManyThreads() throws IOException, InterruptedException {
+        MiniVirtualMachine.start(null);
+        MiniGenerationalCollector.INSTANCE.collectFull();
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        MiniClass.MiniMemberInfo main = clazz.getMethod("main");
+
+        MiniScheduler scheduler = new MiniScheduler(2, 3);
+        List<MiniThread> threads = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            threads.add(scheduler.spawn("green-" + i, clazz, main));
+        }
+        for (MiniThread thread : threads) {
+            thread.join();
+        }
+
+        for (MiniThread thread : threads) {
+            assertNull(thread.getFailure());
+            assertEquals(MiniThread.State.TERMINATED, thread.getState());
+            assertEquals(0, thread.getStack().getDepth());
+        }
+        assertEquals(1000, scheduler.getSpawnedThreads());
+        assertEquals(1000, scheduler.getCompletedThreads());
+        // 每个线程都要执行不止 3 条指令，至少被切换过一次
+        assertTrue(scheduler.getContextSwitches() > 2000);
+    }
+
+    /**
+     * 先 unpark 后 park 时 park 直接返回；由调度器执行的线程 park 后只是请求让出
+     */
+    @Test
+    public void parkPermit() {
+        MiniThread thread = new MiniThread("parked", MiniVirtualMachineMemory.VIRTUAL_STACK, new MiniScheduler(1, 10));
+        thread.unpark();
+        thread.park();
+        assertFalse(thread.isYieldRequested());
+
+        thread.park();
+        assertTrue(thread.isYieldRequested());
+        assertFalse(thread.afterQuantum());
+        assertEquals(MiniThread.State.PARKED, thread.getState());
+    }
+}
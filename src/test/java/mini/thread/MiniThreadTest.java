@@ -0,0 +1,152 @@
+package mini.thread;
+
+import mini.MiniVirtualMachine;
+import mini.cl.MethodCaller;
+import mini.cl.MiniClass;
+import mini.data.area.MiniVirtualMachineMemory;
+import mini.gc.MiniGenerationalCollector;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniThreadTest {
+
+    @Test
+    public void mainThread() throws IOException {
+        MiniVirtualMachine.start(null);
+        assertSame(MiniThread.MAIN, MiniThread.current());
+        assertSame(MiniVirtualMachineMemory.VIRTUAL_STACK, MiniThread.current().getStack());
+        assertTrue(MiniThread.stacks().contains(MiniVirtualMachineMemory.VIRTUAL_STACK));
+    }
+
+    /**
+     * 多个线程同时执行，各自使用自己的栈和 TLAB
+     */
+    @Test
+    public void runConcurrently() throws IOException, InterruptedException {
+        MiniVirtualMachine.start(null);
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        MiniClass.MiniMemberInfo main = clazz.getMethod("main");
+
+        List<MiniThread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(MiniThread.start("worker-" + i, clazz, main));
+        }
+        for (MiniThread thread : threads) {
+            thread.join();
+        }
+
+        for (MiniThread thread : threads) {
+            assertNull(thread.getFailure());
+            assertFalse(thread.isAlive());
+            assertNotSame(MiniVirtualMachineMemory.VIRTUAL_STACK, thread.getStack());
+            assertEquals(0, thread.getStack().getDepth());
+            assertTrue(thread.getStack().getTlab().getAllocatedBytes() > 0);
+            assertFalse(MiniThread.stacks().contains(thread.getStack()));
+        }
+    }
+
+    /**
+     * 宿主线程直接调用时各自绑定一个客户线程，使用自己的栈，不会和主线程共用
+     */
+    @Test
+    public void attachHostThreads() throws IOException, InterruptedException {
+        MiniVirtualMachine.start(null);
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        MiniClass.MiniMemberInfo main = clazz.getMethod("main");
+        MiniThread self = MiniThread.current();
+
+        int count = 4;
+        MiniThread[] attached = new MiniThread[count];
+        Throwable[] failures = new Throwable[count];
+        CountDownLatch ready = new CountDownLatch(count);
+        List<Thread> hosts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            hosts.add(Thread.ofPlatform().name("host-" + i).start(() -> {
+                try {
+                    attached[index] = MiniThread.current();
+                    ready.countDown();
+                    ready.await();
+                    for (int j = 0; j < 100; j++) {
+                        MethodCaller.call(clazz, main);
+                    }
+                    assertSame(attached[index], MiniThread.current());
+                } catch (Throwable e) {
+                    failures[index] = e;
+                }
+            }));
+        }
+        for (Thread host : hosts) {
+            host.join();
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertNull(failures[i]);
+            assertNotSame(self, attached[i]);
+            assertNotSame(MiniThread.MAIN, attached[i]);
+            assertEquals("host-" + i, attached[i].getName());
+            assertEquals(0, attached[i].getStack().getDepth());
+            assertTrue(attached[i].getStack().getTlab().getAllocatedBytes() > 0);
+        }
+        assertEquals(count, Arrays.stream(attached).map(MiniThread::getStack).distinct().count());
+
+        // 宿主线程结束后，下一次绑定时清理
+        Thread.ofPlatform().start(MiniThread::current).join();
+        for (MiniThread thread : attached) {
+            assertFalse(thread.isAlive());
+            assertFalse(MiniThread.getThreads().contains(thread));
+        }
+    }
+
+    /**
+     * 线程结束时退休 TLAB 不能与垃圾回收同时进行：一边反复 Full GC，一边不断有线程结束
+     */
+    @Test
+    public void terminateDuringCollections() throws Exception {
+        MiniVirtualMachine.start(null);
+        MiniClass clazz = MiniVirtualMachineMemory.METHOD_AREA.APP_CLASS_LOADER.loadClass("demo.TestObject");
+        MiniClass.MiniMemberInfo main = clazz.getMethod("main");
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong collections = new AtomicLong();
+        Thread collector = Thread.ofPlatform().daemon().name("collector").start(() -> {
+            try {
+                while (!stop.get()) {
+                    MiniGenerationalCollector.INSTANCE.collectFull();
+                    collections.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        try {
+            for (int round = 0; round < 50; round++) {
+                List<MiniThread> threads = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    threads.add(MiniThread.start("worker-" + i, clazz, main));
+                }
+                for (MiniThread thread : threads) {
+                    thread.join();
+                    assertNull(thread.getFailure());
+                    assertFalse(MiniThread.getThreads().contains(thread));
+                }
+            }
+        } finally {
+            stop.set(true);
+            collector.join();
+        }
+        assertNull(failure.get());
+        assertTrue(collections.get() > 0);
+    }
+}
@@ -0,0 +1,63 @@
+package mini.trace;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniTraceTest {
+
+    @BeforeEach
+    public void setUp() {
+        MiniTrace.disableAll();
+        MiniTrace.drain(line -> {
+        });
+    }
+
+    @Test
+    public void configure() {
+        MiniTrace.configure("execution:debug,linking");
+        assertTrue(MiniTrace.isEnabled(MiniTraceEvent.ISTORE));
+        assertTrue(MiniTrace.isEnabled(MiniTraceEvent.PREPARE));
+        // linking 默认只开到 INFO
+        assertFalse(MiniTrace.isEnabled(MiniTraceEvent.PREPARE_STATIC));
+        assertFalse(MiniTrace.isEnabled(MiniTraceEvent.LOAD));
+
+        MiniTrace.disable(MiniTraceCategory.EXECUTION);
+        assertFalse(MiniTrace.isEnabled(MiniTraceEvent.ISTORE));
+        assertTrue(MiniTrace.isEnabled(MiniTraceEvent.PREPARE));
+    }
+
+    @Test
+    public void recordAndDrain() {
+        MiniTrace.configure("execution:debug");
+        MiniTrace.record(MiniTraceEvent.ISTORE, 3, 7, 1, 0, "demo.HelloStackVM", "main", null, null);
+        MiniTrace.record(MiniTraceEvent.GETSTATIC, 5, 0, 0, 0, "demo.HelloStackVM", "main", "k", 15);
+        // 关闭的分类不会被记录
+        MiniTrace.record(MiniTraceEvent.PREPARE, "demo.HelloStackVM");
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(2, MiniTrace.drain(lines::add));
+        assertEquals("      3 (demo.HelloStackVM#main): [istore] 将栈顶值 7 存储到局部变量 1", lines.get(0));
+        assertEquals("      5 (demo.HelloStackVM#main): [getstatic] 将静态变量 k 的值 15 压入栈", lines.get(1));
+
+        // 已经读取过的事件不会重复输出
+        assertEquals(0, MiniTrace.drain(lines::add));
+    }
+
+    @Test
+    public void overwriteOldest() {
+        MiniTraceBuffer buffer = new MiniTraceBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.write(MiniTraceEvent.LOAD, 0, 0, 0, 0, "Class" + i, null, null, null);
+        }
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(4, buffer.drain(lines::add));
+        assertEquals("Load: Class2", lines.get(0));
+        assertEquals("Load: Class5", lines.get(3));
+    }
+}